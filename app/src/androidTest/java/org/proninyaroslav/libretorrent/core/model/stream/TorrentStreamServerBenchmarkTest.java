@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.stream;
+
+import static org.junit.Assert.*;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.proninyaroslav.libretorrent.AbstractTest;
+import org.proninyaroslav.libretorrent.core.model.AddTorrentParams;
+import org.proninyaroslav.libretorrent.core.model.TorrentEngineListener;
+import org.proninyaroslav.libretorrent.core.model.data.Priority;
+import org.proninyaroslav.libretorrent.core.utils.Utils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures the total throughput of several clients that stream
+ * different torrents from TorrentStreamServer at the same time.
+ * Torrents are downloaded completely before the measurement,
+ * so the result depends only on the read pipeline, not on the network.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class TorrentStreamServerBenchmarkTest extends AbstractTest {
+    private static final String TAG = TorrentStreamServerBenchmarkTest.class.getSimpleName();
+
+    private static final String HOSTNAME = "127.0.0.1";
+    private static final int PORT = 8801;
+    private static final int CLIENTS_PER_TORRENT = 2;
+    private static final long READ_LENGTH = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String torrentUrl = "https://webtorrent.io/torrents/wired-cd.torrent";
+    private final String torrentName = "The WIRED CD - Rip. Sample. Mash. Share";
+    private final String torrentHash = "a88fda5954e89178c372716a6a78b8180ed4dad3";
+    private final int filesCount = 18;
+    private final String torrentUrl2 = "https://webtorrent.io/torrents/sintel.torrent";
+    private final String torrentName2 = "Sintel";
+    private final String torrentHash2 = "08ada5a7a6183aae1e09d831df6748d566095a10";
+    private final int filesCount2 = 11;
+
+    private TorrentStreamServer server;
+
+    @Before
+    public void init() {
+        super.init();
+
+        engine.start();
+        server = new TorrentStreamServer(HOSTNAME, PORT);
+        try {
+            server.start(context);
+        } catch (Exception e) {
+            fail(Log.getStackTraceString(e));
+        }
+    }
+
+    @After
+    public void finish() {
+        server.stop();
+        engine.deleteTorrents(List.of(torrentHash, torrentHash2), true);
+
+        super.finish();
+    }
+
+    @Test
+    public void multiClientThroughput() throws Exception {
+        var dir = Uri.parse("file://" + fs.getDefaultDownloadPath());
+        var params = List.of(
+                makeParams(torrentUrl, torrentHash, torrentName, filesCount, dir),
+                makeParams(torrentUrl2, torrentHash2, torrentName2, filesCount2, dir)
+        );
+
+        var finished = new CountDownLatch(params.size());
+        engine.addListener(new TorrentEngineListener() {
+            @Override
+            public void onTorrentFinished(@NonNull String id) {
+                if (id.equals(torrentHash) || id.equals(torrentHash2)) {
+                    finished.countDown();
+                }
+            }
+        });
+        for (var p : params) {
+            engine.addTorrentSync(p, true);
+        }
+        assertTrue(finished.await(30, TimeUnit.MINUTES));
+
+        var urls = new ArrayList<String>();
+        for (var p : params) {
+            for (int i = 0; i < CLIENTS_PER_TORRENT; i++) {
+                urls.add(TorrentStreamServer.makeStreamUrl(HOSTNAME, PORT, p.sha1hash, 0));
+            }
+        }
+
+        ExecutorService exec = Executors.newFixedThreadPool(urls.size());
+        try {
+            long startTime = System.nanoTime();
+            var results = new ArrayList<Future<Long>>();
+            for (var url : urls) {
+                results.add(exec.submit(() -> readStream(url)));
+            }
+            long totalBytes = 0;
+            for (var result : results) {
+                long bytes = result.get();
+                assertTrue(bytes > 0);
+                totalBytes += bytes;
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            Log.i(TAG, String.format("%d clients, %d bytes in %d ms, %.2f MiB/s",
+                    urls.size(), totalBytes, elapsedMs,
+                    (totalBytes / (1024.0 * 1024.0)) / Math.max(elapsedMs, 1) * 1000));
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    private long readStream(String url) throws Exception {
+        var conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestProperty("Range", "bytes=0-" + (READ_LENGTH - 1));
+        try (InputStream is = conn.getInputStream()) {
+            var buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                total += n;
+            }
+            return total;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private AddTorrentParams makeParams(String url, String hash, String name, int filesCount, Uri dir) {
+        var priorities = new Priority[filesCount];
+        Arrays.fill(priorities, Priority.DEFAULT);
+
+        return new AddTorrentParams(downloadTorrent(url), false,
+                hash, name, priorities, dir,
+                false, false, new ArrayList<>(), false);
+    }
+
+    private String downloadTorrent(String url) {
+        File tmp = fs.makeTempFile(".torrent");
+        try {
+            byte[] response = Utils.fetchHttpUrl(context, url);
+            org.apache.commons.io.FileUtils.writeByteArrayToFile(tmp, response);
+
+        } catch (Exception e) {
+            fail(Log.getStackTraceString(e));
+        }
+
+        return "file://" + tmp.getAbsolutePath();
+    }
+}
@@ -258,6 +258,92 @@ public class DatabaseMigrationTest {
         db.close();
     }
 
+    @Test
+    public void testMigration10to11_TorrentStats() throws IOException {
+        var db = helper.createDatabase(TEST_DATABASE_NAME, 10);
+        db.execSQL("INSERT INTO Torrent (id, name, downloadPath, dateAdded, manuallyPaused, " +
+                        "sequentialDownload, downloadingMetadata, visibility, firstLastPiecePriority) " +
+                        "VALUES (?, ?, ?, 0, 0, 0, 0, 0, 0)",
+                new Object[]{torrentHash, torrentName, "file://" + fs.getDefaultDownloadPath()});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(
+                TEST_DATABASE_NAME,
+                11,
+                true,
+                DatabaseMigration.MIGRATION_10_11
+        );
+
+        // The existing torrent gets the "never saved" stats
+        var cursor = db.query("SELECT totalBytes, receivedBytes, uploadedBytes, progress " +
+                "FROM Torrent WHERE id = ?", new Object[]{torrentHash});
+        assertTrue(cursor.moveToFirst());
+        assertEquals(-1, cursor.getLong(0));
+        assertEquals(0, cursor.getLong(1));
+        assertEquals(0, cursor.getLong(2));
+        assertEquals(0, cursor.getInt(3));
+
+        cursor.close();
+        db.close();
+    }
+
+    @Test
+    public void testMigration11to12_FeedChannelCache() throws IOException {
+        var db = helper.createDatabase(TEST_DATABASE_NAME, 11);
+        db.execSQL("INSERT INTO FeedChannel (url, name, lastUpdate, autoDownload, isRegexFilter) " +
+                "VALUES (?, ?, 0, 0, 0)", new Object[]{feedUrl, feedName});
+        db.close();
+
+        db = helper.runMigrationsAndValidate(
+                TEST_DATABASE_NAME,
+                12,
+                true,
+                DatabaseMigration.MIGRATION_11_12
+        );
+
+        // The existing channel has no cached response yet
+        var cursor = db.query("SELECT url, etag, lastModified, contentHash FROM FeedChannel");
+        assertTrue(cursor.moveToFirst());
+        assertEquals(feedUrl, cursor.getString(0));
+        assertTrue(cursor.isNull(1));
+        assertTrue(cursor.isNull(2));
+        assertTrue(cursor.isNull(3));
+
+        cursor.close();
+        db.close();
+    }
+
+    @Test
+    public void testMigration12to13_FeedItemIndices() throws IOException {
+        var db = helper.createDatabase(TEST_DATABASE_NAME, 12);
+        db.close();
+
+        db = helper.runMigrationsAndValidate(
+                TEST_DATABASE_NAME,
+                13,
+                true,
+                DatabaseMigration.MIGRATION_12_13
+        );
+
+        // Verify the indices exist
+        var cursor = db.query("PRAGMA index_list(`FeedItem`)");
+        boolean hasTitleIndex = false;
+        boolean hasFetchDateIndex = false;
+        int nameColumn = cursor.getColumnIndex("name");
+        while (cursor.moveToNext()) {
+            String name = cursor.getString(nameColumn);
+            if ("index_FeedItem_title".equals(name))
+                hasTitleIndex = true;
+            else if ("index_FeedItem_fetchDate".equals(name))
+                hasFetchDateIndex = true;
+        }
+        assertTrue(hasTitleIndex);
+        assertTrue(hasFetchDateIndex);
+
+        cursor.close();
+        db.close();
+    }
+
     private void addFeedChannel(SQLiteDatabase sqliteDb, ContentValues values) {
         assertNotEquals(-1, sqliteDb.replace("feeds", null, values));
     }
@@ -14,4 +14,28 @@ public interface FeedParser {
 	 * @return Feed object containing parsed data
 	 */
 	Feed parse(InputStream inStream) throws FeedException;
+
+	/**
+	 * Parses the feed from the specified stream, passing each item to the
+	 * listener as soon as it has been read. Items are not added to the
+	 * returned feed, which contains only the channel data read so far.
+	 * 
+	 * @param inStream InputStream for the web feed
+	 * @param listener receives the items in document order
+	 * @return Feed object containing parsed channel data
+	 */
+	Feed parse(InputStream inStream, ItemListener listener) throws FeedException;
+
+	/**
+	 * Receives the feed items during streaming parsing.
+	 */
+	interface ItemListener {
+
+		/**
+		 * Called after the item has been read.
+		 * 
+		 * @return false to stop parsing the rest of the feed
+		 */
+		boolean onItem(Item item);
+	}
 }
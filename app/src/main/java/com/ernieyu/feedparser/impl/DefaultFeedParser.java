@@ -20,6 +20,13 @@ public class DefaultFeedParser implements FeedParser {
 
     @Override
     public Feed parse(InputStream inStream) throws FeedException {
+        return parse(inStream, null);
+    }
+
+    @Override
+    public Feed parse(InputStream inStream, ItemListener listener) throws FeedException {
+        // Create SAX handler.
+        FeedHandler handler = new FeedHandler(listener);
         try {
             // Create SAX parser.
             SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -30,9 +37,6 @@ public class DefaultFeedParser implements FeedParser {
             reader.setFeature("http://xml.org/sax/features/namespaces", true);
             reader.setFeature("http://xml.org/sax/features/namespace-prefixes", false);
             
-        	// Create SAX handler.
-        	FeedHandler handler = new FeedHandler();
-        	
             // Parse feed and return data.
         	parser.parse(new XMLInputStream(inStream), handler);
         	Feed feed = handler.getFeed();
@@ -41,6 +45,10 @@ public class DefaultFeedParser implements FeedParser {
             
             return feed;
         
+        } catch (FeedHandler.StopParsingException ex) {
+            // Stopped by the listener, the rest of the feed is skipped.
+            return handler.getFeed();
+
         } catch (Exception ex) {
         	throw new FeedException(ex);
         }
@@ -1,7 +1,9 @@
 package com.ernieyu.feedparser.impl;
 
 import com.ernieyu.feedparser.Feed;
+import com.ernieyu.feedparser.FeedParser;
 import com.ernieyu.feedparser.FeedType;
+import com.ernieyu.feedparser.Item;
 
 import org.apache.commons.text.StringEscapeUtils;
 import org.xml.sax.Attributes;
@@ -20,11 +22,26 @@ class FeedHandler extends DefaultHandler {
     private static final String ITEM = "item";
     private static final String ENTRY = "entry";
 
+    /**
+     * Thrown when the item listener requests to stop parsing.
+     */
+    static class StopParsingException extends SAXException {
+    }
+
+    private final FeedParser.ItemListener itemListener;
     private Stack<BaseElement> elementStack;
     private Feed feed;
     private FeedType type;
     private StringBuilder buffer;
     
+    /**
+     * Constructs a FeedHandler. If the item listener is not null, items are
+     * passed to it instead of being added to the feed.
+     */
+    public FeedHandler(FeedParser.ItemListener itemListener) {
+        this.itemListener = itemListener;
+    }
+
     /**
      * Returns the feed.
      */
@@ -120,8 +137,13 @@ class FeedHandler extends DefaultHandler {
         }
         currentElement.setContent(content);
         
-        // Add current element to its parent.
-        if (!elementStack.empty()) {
+        // Pass item to the listener or add current element to its parent.
+        if (itemListener != null && currentElement instanceof Item) {
+            if (!itemListener.onItem((Item) currentElement)) {
+                closeOpenElements();
+                throw new StopParsingException();
+            }
+        } else if (!elementStack.empty()) {
             BaseElement parent = elementStack.peek();
             parent.addElement(localName, currentElement);
         }
@@ -129,4 +151,15 @@ class FeedHandler extends DefaultHandler {
         // Clear content buffer.
         buffer.delete(0, buffer.length());
     }
+
+    /**
+     * Adds the elements that haven't been closed yet to their parents,
+     * so that the channel data read so far is available in the feed.
+     */
+    private void closeOpenElements() {
+        while (elementStack.size() > 1) {
+            BaseElement element = elementStack.pop();
+            elementStack.peek().addElement(element.getName(), element);
+        }
+    }
 }
@@ -166,11 +166,14 @@ public abstract class NanoHTTPD {
             safeClose(this.inputStream);
             safeClose(this.acceptSocket);
         }
+        public InetAddress getInetAddress() {
+            return this.acceptSocket.getInetAddress();
+        }
         @Override
         public void run() {
             OutputStream outputStream = null;
             try {
-                outputStream = this.acceptSocket.getOutputStream();
+                outputStream = createOutputStream(this.acceptSocket);
                 TempFileManager tempFileManager = NanoHTTPD.this.tempFileManagerFactory.create();
                 HTTPSession session = new HTTPSession(tempFileManager, this.inputStream, outputStream, this.acceptSocket.getInetAddress());
                 while (!this.acceptSocket.isClosed()) {
@@ -1581,6 +1584,17 @@ public abstract class NanoHTTPD {
     protected ClientHandler createClientHandler(final Socket finalAccept, final InputStream inputStream) {
         return new ClientHandler(inputStream, finalAccept);
     }
+    /**
+     * Returns the stream that responses are written to, subclasses can wrap
+     * the socket output stream, e.g. to collect statistics.
+     *
+     * @param socket
+     *            the socket the client is connected to
+     * @return the output stream
+     */
+    protected OutputStream createOutputStream(final Socket socket) throws IOException {
+        return socket.getOutputStream();
+    }
     /**
      * Instantiate the server runnable, can be overwritten by subclasses to
      * provide a subclass of the ServerRunnable.
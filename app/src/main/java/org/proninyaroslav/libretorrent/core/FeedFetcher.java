@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.exception.FetchLinkException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Downloads the feeds in parallel on a bounded pool, with a limit of
+ * concurrent connections to the same host. The responses are handed over
+ * to the caller thread in the order of completion, so that parsing and
+ * saving of fast feeds isn't blocked by the slow ones.
+ */
+
+public class FeedFetcher implements Closeable {
+    public static final int DEFAULT_MAX_FETCHES = 8;
+    public static final int DEFAULT_MAX_FETCHES_PER_HOST = 2;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 15_000; /* ms */
+    public static final int DEFAULT_READ_TIMEOUT = 30_000; /* ms */
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxFetchesPerHost;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final ExecutorService exec;
+
+    /*
+     * Validators of the last fetched feed content. ETag and Last-Modified
+     * are sent back as If-None-Match and If-Modified-Since, the content hash
+     * catches servers that don't support conditional requests
+     */
+
+    public record Validators(
+            @Nullable String etag,
+            @Nullable String lastModified,
+            @Nullable String contentHash
+    ) {
+    }
+
+    public record Request(long channelId, @NonNull String url, @Nullable Validators validators) {
+        public Request(long channelId, @NonNull String url) {
+            this(channelId, url, null);
+        }
+    }
+
+    /*
+     * The body is null in case of error or if the feed hasn't changed
+     * since the previous fetch. Latency includes the time of the connection
+     * and reading of the response, in milliseconds
+     */
+
+    public record Response(
+            @NonNull Request request,
+            @Nullable byte[] body,
+            @Nullable Validators validators,
+            @Nullable Exception error,
+            long latency
+    ) {
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        public boolean isNotModified() {
+            return error == null && body == null;
+        }
+    }
+
+    public interface ResponseHandler {
+        void onResponse(@NonNull Response response);
+    }
+
+    public FeedFetcher() {
+        this(DEFAULT_MAX_FETCHES, DEFAULT_MAX_FETCHES_PER_HOST,
+                DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    public FeedFetcher(int maxFetches, int maxFetchesPerHost,
+                       int connectTimeout, int readTimeout) {
+        this.maxFetchesPerHost = maxFetchesPerHost;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+
+        AtomicInteger threadNum = new AtomicInteger();
+        var pool = new ThreadPoolExecutor(maxFetches, maxFetches, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                (r) -> {
+                    Thread t = new Thread(r, "FeedFetcher-" + threadNum.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        exec = pool;
+    }
+
+    /*
+     * Blocks until all requests are completed. The handler is called
+     * in the caller thread as soon as each response arrives
+     */
+
+    public void fetchAll(
+            @NonNull List<Request> requests,
+            @NonNull ResponseHandler handler
+    ) throws InterruptedException {
+        var completed = new LinkedBlockingQueue<Response>();
+        /* Accessed only from the caller thread */
+        var pendingByHost = new HashMap<String, ArrayDeque<Request>>();
+
+        for (var request : requests) {
+            pendingByHost.computeIfAbsent(getHost(request.url()), (__) -> new ArrayDeque<>())
+                    .add(request);
+        }
+        /* Each host has at most maxFetchesPerHost downloads in progress */
+        for (var host : pendingByHost.keySet()) {
+            for (int i = 0; i < maxFetchesPerHost; i++) {
+                if (!dispatchNext(host, pendingByHost, completed)) {
+                    break;
+                }
+            }
+        }
+
+        for (int remaining = requests.size(); remaining > 0; remaining--) {
+            Response response = completed.take();
+            /* Start the next download of this host before handling the current one */
+            dispatchNext(getHost(response.request().url()), pendingByHost, completed);
+
+            handler.onResponse(response);
+        }
+    }
+
+    private boolean dispatchNext(
+            String host,
+            HashMap<String, ArrayDeque<Request>> pendingByHost,
+            LinkedBlockingQueue<Response> completed
+    ) {
+        var pending = pendingByHost.get(host);
+        if (pending == null || pending.isEmpty()) {
+            return false;
+        }
+        Request request = pending.poll();
+        exec.execute(() -> completed.add(fetch(request)));
+
+        return true;
+    }
+
+    @NonNull
+    public Response fetch(@NonNull Request request) {
+        long startTime = System.nanoTime();
+        byte[] body = null;
+        Validators validators = null;
+        Exception error = null;
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(request.url()).openConnection();
+            conn.setInstanceFollowRedirects(true);
+            conn.setConnectTimeout(connectTimeout);
+            conn.setReadTimeout(readTimeout);
+            conn.setRequestMethod("GET");
+
+            Validators prev = request.validators();
+            if (prev != null && prev.etag() != null) {
+                conn.setRequestProperty("If-None-Match", prev.etag());
+            }
+            if (prev != null && prev.lastModified() != null) {
+                conn.setRequestProperty("If-Modified-Since", prev.lastModified());
+            }
+
+            int responseCode = conn.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                /* The server may send the updated validators along with 304 */
+                validators = new Validators(
+                        headerOrDefault(conn, "ETag", prev == null ? null : prev.etag()),
+                        headerOrDefault(conn, "Last-Modified", prev == null ? null : prev.lastModified()),
+                        (prev == null ? null : prev.contentHash())
+                );
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                body = read(conn);
+                validators = new Validators(
+                        conn.getHeaderField("ETag"),
+                        conn.getHeaderField("Last-Modified"),
+                        makeHash(body)
+                );
+                if (prev != null && validators.contentHash() != null
+                        && validators.contentHash().equals(prev.contentHash())) {
+                    body = null;
+                }
+            } else {
+                throw new FetchLinkException("Error while downloading file: " + responseCode);
+            }
+
+        } catch (IOException e) {
+            error = new FetchLinkException(e);
+
+        } catch (Exception e) {
+            error = e;
+
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        return new Response(request, body, validators, error, latency);
+    }
+
+    private static byte[] read(HttpURLConnection conn) throws IOException {
+        int length = conn.getContentLength();
+        try (InputStream is = conn.getInputStream();
+             var os = new ByteArrayOutputStream(length > 0 ? length : BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                os.write(buffer, 0, bytesRead);
+            }
+
+            return os.toByteArray();
+        }
+    }
+
+    private static String headerOrDefault(HttpURLConnection conn, String name, String defaultValue) {
+        String value = conn.getHeaderField(name);
+
+        return (value == null ? defaultValue : value);
+    }
+
+    @Nullable
+    private static String makeHash(byte[] data) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest(data)) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return sb.toString();
+    }
+
+    private static String getHost(String url) {
+        try {
+            String host = new URL(url).getHost();
+            return (host == null ? "" : host.toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    @Override
+    public void close() {
+        exec.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/*
+ * Collects the new items from the streaming FeedParser. Feeds list the
+ * newest items first, so after a run of items that are already saved or
+ * older than the keep time, the rest of the feed is considered old
+ * and parsing is stopped.
+ */
+
+public class FeedItemCollector implements FeedParser.ItemHandler {
+    public static final int DEFAULT_STOP_RUN = 10;
+
+    private final Predicate<String> isKnownId;
+    private final long acceptMinDate;
+    private final int stopRun;
+    private final ArrayList<FeedItem> items = new ArrayList<>();
+    private int oldRun;
+    private int skipped;
+    private boolean stopped;
+
+    public FeedItemCollector(@NonNull Predicate<String> isKnownId, long acceptMinDate) {
+        this(isKnownId, acceptMinDate, DEFAULT_STOP_RUN);
+    }
+
+    public FeedItemCollector(@NonNull Predicate<String> isKnownId, long acceptMinDate, int stopRun) {
+        this.isKnownId = isKnownId;
+        this.acceptMinDate = acceptMinDate;
+        this.stopRun = stopRun;
+    }
+
+    @Override
+    public boolean onItem(@NonNull FeedItem item) {
+        if (isOld(item)) {
+            skipped++;
+            if (++oldRun >= stopRun) {
+                stopped = true;
+                return false;
+            }
+            return true;
+        }
+
+        oldRun = 0;
+        items.add(item);
+
+        return true;
+    }
+
+    private boolean isOld(FeedItem item) {
+        /* Check the date first, it's free */
+        return item.pubDate > 0 && item.pubDate <= acceptMinDate || isKnownId.test(item.id);
+    }
+
+    @NonNull
+    public List<FeedItem> getItems() {
+        return items;
+    }
+
+    /*
+     * Number of old items that have been read before stopping
+     */
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+}
@@ -38,6 +38,7 @@ import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
 import org.proninyaroslav.libretorrent.core.utils.Utils;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -58,11 +59,25 @@ public class FeedParser {
     private final FeedChannel feedChannel;
     private Feed feed;
 
+    public interface ItemHandler {
+        /*
+         * Return false to stop parsing, the rest of the items are skipped
+         */
+        boolean onItem(@NonNull FeedItem item);
+    }
+
     public FeedParser(@NonNull Context context, @NonNull FeedChannel feedChannel) throws Exception {
+        this(feedChannel, Utils.fetchHttpUrl(context, feedChannel.url));
+    }
+
+    /*
+     * Parse the already downloaded feed, see FeedFetcher
+     */
+
+    public FeedParser(@NonNull FeedChannel feedChannel, byte[] response) throws Exception {
         this.feedChannel = feedChannel;
         ByteArrayInputStream bsStream = null;
         try {
-            byte[] response = Utils.fetchHttpUrl(context, feedChannel.url);
             if (response == null)
                 return;
             bsStream = new ByteArrayInputStream(response);
@@ -79,6 +94,22 @@ public class FeedParser {
         }
     }
 
+    /*
+     * Streaming parsing: items are passed to the handler one by one
+     * in document order, without building the whole feed in memory.
+     * getItems() returns nothing in this case
+     */
+
+    public FeedParser(
+            @NonNull FeedChannel feedChannel,
+            @NonNull InputStream is,
+            @NonNull ItemHandler handler
+    ) throws Exception {
+        this.feedChannel = feedChannel;
+        feed = FeedParserFactory.newParser().parse(is,
+                (item) -> handler.onItem(makeItem(item)));
+    }
+
     public String getTitle() {
         return feed.getTitle();
     }
@@ -88,27 +119,31 @@ public class FeedParser {
         if (feed == null)
             return items;
 
-        for (Item item : feed.getItemList()) {
-            List<String> links = item.getLinks();
-            String articleUrl = getFirstNotNullLink(links);
-            String downloadUrl = watchDownloadableLink(links);
+        for (Item item : feed.getItemList())
+            items.add(makeItem(item));
+
+        return items;
+    }
 
-            /* Find url with torrent/magnet */
-            if (downloadUrl == null)
-                downloadUrl = findDownloadUrl(item);
+    private FeedItem makeItem(Item item) {
+        List<String> links = item.getLinks();
+        String articleUrl = getFirstNotNullLink(links);
+        String downloadUrl = watchDownloadableLink(links);
 
-            Date pubDate = item.getPubDate();
-            long pubDateTime = 0;
-            if (pubDate != null)
-                pubDateTime = pubDate.getTime();
+        /* Find url with torrent/magnet */
+        if (downloadUrl == null)
+            downloadUrl = findDownloadUrl(item);
 
-            FeedItem feedItem = new FeedItem(feedChannel.id, downloadUrl,
-                    articleUrl, item.getTitle(), pubDateTime);
-            feedItem.fetchDate = System.currentTimeMillis();
-            items.add(feedItem);
-        }
+        Date pubDate = item.getPubDate();
+        long pubDateTime = 0;
+        if (pubDate != null)
+            pubDateTime = pubDate.getTime();
 
-        return items;
+        FeedItem feedItem = new FeedItem(feedChannel.id, downloadUrl,
+                articleUrl, item.getTitle(), pubDateTime);
+        feedItem.fetchDate = System.currentTimeMillis();
+
+        return feedItem;
     }
 
     private String getFirstNotNullLink(List<String> links) {
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.collections;
+
+import androidx.annotation.NonNull;
+
+/*
+ * Bloom filter for strings. mightContain() never returns false
+ * for an added string, and returns true for a missing one with
+ * about the given false positive probability, as long as no more
+ * than capacity strings have been added. Not thread-safe.
+ */
+
+public class BloomFilter {
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+    private final int capacity;
+    private int size;
+
+    public BloomFilter(int capacity, double fpp) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+
+        if (fpp <= 0 || fpp >= 1)
+            throw new IllegalArgumentException("False positive probability must be in (0, 1)");
+
+        this.capacity = capacity;
+        long m = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        bits = new long[(int) ((m + 63) / 64)];
+        numBits = bits.length * 64L;
+        numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+    }
+
+    public void add(@NonNull String s) {
+        long hash = hash(s);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    public boolean mightContain(@NonNull String s) {
+        long hash = hash(s);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /*
+     * Number of added strings, including repeated ones
+     */
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /*
+     * The false positive probability is higher than requested
+     */
+
+    public boolean isSaturated() {
+        return size > capacity;
+    }
+
+    private long index(int combinedHash) {
+        /* Flip all the bits if it's negative (guaranteed positive number) */
+        if (combinedHash < 0)
+            combinedHash = ~combinedHash;
+
+        return combinedHash % numBits;
+    }
+
+    /*
+     * 64-bit FNV-1a with the MurmurHash3 finalizer,
+     * two 32-bit halves are used for double hashing
+     */
+
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.collections;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * List that is kept sorted by the comparator and can be patched by key
+ * without sorting all the items again. Items with the same sort order
+ * keep their insertion order. Not thread-safe.
+ */
+
+public class SortedKeyedList<K, V> {
+    private final Function<V, K> keyMapper;
+    private Comparator<? super V> comparator;
+    private final ArrayList<V> items = new ArrayList<>();
+    private final HashMap<K, V> itemsByKey = new HashMap<>();
+
+    public SortedKeyedList(
+            @NonNull Function<V, K> keyMapper,
+            @NonNull Comparator<? super V> comparator
+    ) {
+        this.keyMapper = keyMapper;
+        this.comparator = comparator;
+    }
+
+    /*
+     * Replace all items and sort them
+     */
+
+    public void setAll(@NonNull List<V> newItems) {
+        items.clear();
+        itemsByKey.clear();
+        for (V item : newItems) {
+            V oldItem = itemsByKey.put(keyMapper.apply(item), item);
+            if (oldItem != null) {
+                items.remove(oldItem);
+            }
+            items.add(item);
+        }
+        items.sort(comparator);
+    }
+
+    public void setComparator(@NonNull Comparator<? super V> comparator) {
+        this.comparator = comparator;
+        items.sort(comparator);
+    }
+
+    /*
+     * Add a new item or replace the item with the same key.
+     * If the sort order of the replaced item hasn't changed, it keeps its position
+     */
+
+    public void put(@NonNull V item) {
+        K key = keyMapper.apply(item);
+        V oldItem = itemsByKey.put(key, item);
+        if (oldItem != null) {
+            int i = indexOf(oldItem, key);
+            if (isInOrder(i, item)) {
+                items.set(i, item);
+                return;
+            }
+            items.remove(i);
+        }
+        items.add(upperBound(item), item);
+    }
+
+    public boolean remove(@NonNull K key) {
+        V oldItem = itemsByKey.remove(key);
+        if (oldItem == null) {
+            return false;
+        }
+        items.remove(indexOf(oldItem, key));
+
+        return true;
+    }
+
+    public V get(@NonNull K key) {
+        return itemsByKey.get(key);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public void clear() {
+        items.clear();
+        itemsByKey.clear();
+    }
+
+    /*
+     * Returns a sorted copy of the items
+     */
+
+    @NonNull
+    public List<V> toList() {
+        return new ArrayList<>(items);
+    }
+
+    private boolean isInOrder(int i, V item) {
+        return (i == 0 || comparator.compare(items.get(i - 1), item) <= 0) &&
+                (i == items.size() - 1 || comparator.compare(item, items.get(i + 1)) <= 0);
+    }
+
+    /*
+     * Binary search the range of equal items and then look for the key in it
+     */
+
+    private int indexOf(V item, K key) {
+        int low = lowerBound(item);
+        int size = items.size();
+        for (int i = low; i < size && comparator.compare(items.get(i), item) == 0; i++) {
+            if (key.equals(keyMapper.apply(items.get(i)))) {
+                return i;
+            }
+        }
+        /* The comparator is inconsistent, fall back to the linear search */
+        for (int i = 0; i < size; i++) {
+            if (key.equals(keyMapper.apply(items.get(i)))) {
+                return i;
+            }
+        }
+
+        throw new IllegalStateException("Item not found: " + key);
+    }
+
+    private int lowerBound(V item) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(items.get(mid), item) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private int upperBound(V item) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(items.get(mid), item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.filter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedChannel;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
+import org.proninyaroslav.libretorrent.core.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * Compiled auto-download filter of the feed channel. The item matches
+ * if it matches at least one line of the filter:
+ *  - keyword mode: the title contains one of the words of the line
+ *    (case-insensitive), all lines are checked by one KeywordMatcher;
+ *  - regex mode: the title fully matches the pattern of the line,
+ *    the patterns are combined into one alternation where possible.
+ * An empty filter matches all items, as well as a filter with
+ * an invalid pattern (so that nothing is silently missed).
+ */
+
+public class FeedItemFilter {
+    /*
+     * Back references (group numbers would shift in a combined pattern),
+     * comments mode (a comment would swallow the closing parenthesis)
+     * and unterminated quotes (\Q would swallow it as well)
+     */
+    private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\(\\d|k<|Q)|\\(\\?[a-zA-Z-]*x");
+
+    private static final ConcurrentHashMap<Long, FeedItemFilter> channelFilters =
+            new ConcurrentHashMap<>();
+
+    private final String source;
+    private final boolean isRegex;
+    private final String separator;
+    private final boolean matchAll;
+    private final KeywordMatcher keywords;
+    private final List<Pattern> patterns;
+    private final String invalidPattern;
+
+    private FeedItemFilter(String source, boolean isRegex, String separator,
+                           boolean matchAll, KeywordMatcher keywords,
+                           List<Pattern> patterns, String invalidPattern) {
+        this.source = source;
+        this.isRegex = isRegex;
+        this.separator = separator;
+        this.matchAll = matchAll;
+        this.keywords = keywords;
+        this.patterns = patterns;
+        this.invalidPattern = invalidPattern;
+    }
+
+    /*
+     * Returns the cached filter of the channel, it's compiled again
+     * only if the filter text, mode or separator have been changed
+     */
+
+    @NonNull
+    public static FeedItemFilter forChannel(@NonNull FeedChannel channel,
+                                            @NonNull String separator) {
+        FeedItemFilter filter = channelFilters.get(channel.id);
+        if (filter == null || !filter.isCompiledFrom(channel.filter, channel.isRegexFilter, separator)) {
+            filter = compile(channel.filter, channel.isRegexFilter, separator);
+            channelFilters.put(channel.id, filter);
+        }
+
+        return filter;
+    }
+
+    @NonNull
+    public static FeedItemFilter compile(@Nullable String filter, boolean isRegex,
+                                         @NonNull String separator) {
+        if (filter == null || filter.isEmpty())
+            return new FeedItemFilter(filter, isRegex, separator, true, null, List.of(), null);
+
+        String[] lines = filter.split(Utils.NEWLINE_PATTERN);
+        if (isRegex)
+            return compileRegex(filter, separator, lines);
+
+        var words = new ArrayList<String>();
+        for (String line : lines) {
+            if (line.isEmpty())
+                continue;
+            for (String word : line.split(separator))
+                words.add(word.trim());
+        }
+        var keywords = new KeywordMatcher(words);
+
+        return new FeedItemFilter(filter, false, separator, keywords.isEmpty(),
+                keywords, List.of(), null);
+    }
+
+    private static FeedItemFilter compileRegex(String filter, String separator, String[] lines) {
+        var sources = new ArrayList<String>();
+        for (String line : lines) {
+            if (!line.isEmpty())
+                sources.add(line);
+        }
+
+        var patterns = new ArrayList<Pattern>();
+        var combinable = new ArrayList<Pattern>();
+        var combined = new StringBuilder();
+        for (String line : sources) {
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(line);
+            } catch (PatternSyntaxException e) {
+                return new FeedItemFilter(filter, true, separator, true, null, List.of(), line);
+            }
+            if (NOT_COMBINABLE.matcher(line).find()) {
+                patterns.add(pattern);
+            } else {
+                combinable.add(pattern);
+                if (combined.length() > 0)
+                    combined.append('|');
+                combined.append("(?:").append(line).append(')');
+            }
+        }
+        if (combined.length() > 0) {
+            try {
+                patterns.add(0, Pattern.compile(combined.toString()));
+            } catch (PatternSyntaxException e) {
+                /* Missed by NOT_COMBINABLE, check the lines separately */
+                patterns.addAll(0, combinable);
+            }
+        }
+
+        return new FeedItemFilter(filter, true, separator, patterns.isEmpty(),
+                null, patterns, null);
+    }
+
+    public boolean matches(@NonNull FeedItem item) {
+        return matches(item.title);
+    }
+
+    public boolean matches(@NonNull String title) {
+        if (matchAll)
+            return true;
+
+        if (keywords != null)
+            return keywords.containsAny(title);
+
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(title).matches())
+                return true;
+        }
+
+        return false;
+    }
+
+    /*
+     * The pattern that failed to compile, the filter matches all items in this case
+     */
+
+    @Nullable
+    public String getInvalidPattern() {
+        return invalidPattern;
+    }
+
+    private boolean isCompiledFrom(String filter, boolean isRegex, String separator) {
+        return this.isRegex == isRegex
+                && Objects.equals(source, filter)
+                && this.separator.equals(separator);
+    }
+}
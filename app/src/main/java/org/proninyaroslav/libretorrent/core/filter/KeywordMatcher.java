@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.filter;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/*
+ * Case-insensitive multi-keyword substring search (Aho-Corasick automaton).
+ * Checks a text against all keywords in a single pass, regardless
+ * of the number of keywords. Immutable and thread-safe after construction.
+ */
+
+public class KeywordMatcher {
+    private static final int ROOT = 0;
+
+    /* Outgoing edges of each node, keys are sorted */
+    private char[][] edgeChars = new char[16][];
+    private int[][] edgeNodes = new int[16][];
+    private int[] fail = new int[16];
+    /* The node or one of its suffixes is the end of a keyword */
+    private boolean[] terminal = new boolean[16];
+    private int numNodes;
+    private final boolean empty;
+
+    /*
+     * Empty keywords are ignored
+     */
+
+    public KeywordMatcher(@NonNull Collection<String> keywords) {
+        newNode();
+        boolean hasKeywords = false;
+        for (String keyword : keywords) {
+            if (keyword.isEmpty())
+                continue;
+            addKeyword(keyword);
+            hasKeywords = true;
+        }
+        empty = !hasKeywords;
+        buildFailLinks();
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean containsAny(@NonNull CharSequence text) {
+        if (empty)
+            return false;
+
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = getEdge(node, c)) < 0 && node != ROOT)
+                node = fail[node];
+            node = (next < 0 ? ROOT : next);
+            if (terminal[node])
+                return true;
+        }
+
+        return false;
+    }
+
+    private void addKeyword(String keyword) {
+        int node = ROOT;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = Character.toLowerCase(keyword.charAt(i));
+            int next = getEdge(node, c);
+            if (next < 0) {
+                next = newNode();
+                putEdge(node, c, next);
+            }
+            node = next;
+        }
+        terminal[node] = true;
+    }
+
+    private void buildFailLinks() {
+        var queue = new ArrayDeque<Integer>();
+        for (int child : edgeNodes[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                char c = edgeChars[node][i];
+                int child = edgeNodes[node][i];
+                int f = fail[node];
+                int next;
+                while ((next = getEdge(f, c)) < 0 && f != ROOT)
+                    f = fail[f];
+                fail[child] = (next < 0 || next == child ? ROOT : next);
+                terminal[child] |= terminal[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int newNode() {
+        if (numNodes == fail.length) {
+            int capacity = numNodes * 2;
+            edgeChars = Arrays.copyOf(edgeChars, capacity);
+            edgeNodes = Arrays.copyOf(edgeNodes, capacity);
+            fail = Arrays.copyOf(fail, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        edgeChars[numNodes] = new char[0];
+        edgeNodes[numNodes] = new int[0];
+
+        return numNodes++;
+    }
+
+    private int getEdge(int node, char c) {
+        int i = Arrays.binarySearch(edgeChars[node], c);
+
+        return (i < 0 ? -1 : edgeNodes[node][i]);
+    }
+
+    private void putEdge(int node, char c, int child) {
+        char[] chars = edgeChars[node];
+        int[] nodes = edgeNodes[node];
+        int pos = -(Arrays.binarySearch(chars, c) + 1);
+
+        char[] newChars = new char[chars.length + 1];
+        int[] newNodes = new int[nodes.length + 1];
+        System.arraycopy(chars, 0, newChars, 0, pos);
+        System.arraycopy(nodes, 0, newNodes, 0, pos);
+        newChars[pos] = c;
+        newNodes[pos] = child;
+        System.arraycopy(chars, pos, newChars, pos + 1, chars.length - pos);
+        System.arraycopy(nodes, pos, newNodes, pos + 1, nodes.length - pos);
+
+        edgeChars[node] = newChars;
+        edgeNodes[node] = newNodes;
+    }
+}
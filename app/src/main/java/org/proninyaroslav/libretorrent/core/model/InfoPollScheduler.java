@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.functions.BiPredicate;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/*
+ * Runs the torrent info queries on a small bounded pool instead of
+ * a thread per subscription. Subscriptions to the same data of the same
+ * torrent share a single polling loop, the latest result is replayed
+ * to the new subscribers.
+ */
+
+class InfoPollScheduler {
+    private static final String TAG = InfoPollScheduler.class.getSimpleName();
+
+    /* Max number of concurrent native queries */
+    static final int MAX_QUERIES = 2;
+    private static final long KEEP_ALIVE_TIME = 30; /* sec */
+
+    private final ThreadPoolExecutor exec;
+    private final Scheduler scheduler;
+    private final ConcurrentHashMap<String, Flowable<?>> pollers = new ConcurrentHashMap<>();
+    private final AtomicInteger activePollers = new AtomicInteger();
+    private final AtomicLong completedQueries = new AtomicLong();
+
+    InfoPollScheduler() {
+        AtomicInteger threadNum = new AtomicInteger();
+        exec = new ThreadPoolExecutor(MAX_QUERIES, MAX_QUERIES,
+                KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                (r) -> {
+                    Thread t = new Thread(r, "TorrentInfo-" + threadNum.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        exec.allowCoreThreadTimeOut(true);
+        scheduler = Schedulers.from(exec);
+    }
+
+    /*
+     * For one-shot loads, e.g. the initial value of a flow
+     */
+
+    void execute(@NonNull Runnable task) {
+        exec.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                completedQueries.incrementAndGet();
+            }
+        });
+    }
+
+    /*
+     * Polls the query every interval while there are subscribers, starting immediately.
+     * Subscriptions with the same key share one loop; null results aren't emitted,
+     * and neither are results that are equal to the previous one
+     */
+
+    @SuppressWarnings("unchecked")
+    <T> Flowable<T> poll(
+            @NonNull String key,
+            long interval,
+            @NonNull Callable<T> query,
+            @NonNull BiPredicate<T, T> comparer
+    ) {
+        return Flowable.defer(() ->
+                (Flowable<T>) pollers.computeIfAbsent(key, (k) ->
+                        makePoller(k, interval, query, comparer))
+        );
+    }
+
+    private <T> Flowable<T> makePoller(
+            String key,
+            long interval,
+            Callable<T> query,
+            BiPredicate<T, T> comparer
+    ) {
+        AtomicReference<Flowable<T>> self = new AtomicReference<>();
+        Flowable<T> poller = Flowable.interval(0, interval, TimeUnit.MILLISECONDS, scheduler)
+                .onBackpressureDrop()
+                .mapOptional((__) -> {
+                    try {
+                        return Optional.ofNullable(query.call());
+                    } catch (Exception e) {
+                        Log.e(TAG, "Polling " + key + " error: " + Log.getStackTraceString(e));
+                        return Optional.<T>empty();
+                    } finally {
+                        completedQueries.incrementAndGet();
+                    }
+                })
+                .distinctUntilChanged(comparer)
+                .doOnSubscribe((__) -> activePollers.incrementAndGet())
+                .doFinally(() -> {
+                    activePollers.decrementAndGet();
+                    /* The last subscriber has gone */
+                    pollers.remove(key, self.get());
+                })
+                .replay(1)
+                .refCount();
+        self.set(poller);
+
+        return poller;
+    }
+
+    @NonNull
+    InfoPollStats getStats() {
+        return new InfoPollStats(
+                activePollers.get(),
+                exec.getActiveCount(),
+                exec.getQueue().size(),
+                completedQueries.get()
+        );
+    }
+}
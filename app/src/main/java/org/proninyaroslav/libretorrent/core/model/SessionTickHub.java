@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfoField;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/*
+ * Builds the session stats and the info of all torrents once per tick
+ * and shares the result between all subscribers, instead of letting
+ * every flow rebuild the same list on each session stats alert.
+ * The tick is fast while there are foreground (UI) subscribers and slows
+ * down when only the background ones (e.g. the service notification) remain.
+ * The info list contains the union of the fields requested by the current list
+ * subscribers. The info of a single torrent (e.g. on the details screen)
+ * is built separately with its own fields, so that the optional fields
+ * aren't filled in for all torrents. If only the stats are observed,
+ * the ticks don't contain the info at all.
+ */
+
+class SessionTickHub {
+    static final long FOREGROUND_INTERVAL = 1000; /* ms */
+    static final long BACKGROUND_INTERVAL = 5000; /* ms */
+    /* Session stats alerts don't arrive at exact intervals */
+    private static final long INTERVAL_TOLERANCE = 250; /* ms */
+
+    /*
+     * Snapshot shared by all subscribers, must not be modified
+     */
+
+    record Tick(
+            @NonNull SessionStats stats,
+            @NonNull List<TorrentInfo> infoList,
+            @NonNull Map<String, TorrentInfo> infoById,
+            @NonNull Set<TorrentInfoField> fields,
+            /* Fields of the info built for the single torrent subscribers */
+            @NonNull Map<String, Set<TorrentInfoField>> fieldsById,
+            /* False if there are no list subscribers, the info list is empty */
+            boolean hasInfo,
+            /* SystemClock.elapsedRealtime() before the snapshot was built */
+            long time
+    ) {
+        @Nullable
+        TorrentInfo getInfo(@NonNull String id) {
+            return infoById.get(id);
+        }
+
+        @NonNull
+        Set<TorrentInfoField> getFields(@NonNull String id) {
+            var idFields = fieldsById.get(id);
+            return (idFields == null ? fields : idFields);
+        }
+
+        boolean hasInfo(@NonNull Set<TorrentInfoField> fields) {
+            return hasInfo && this.fields.containsAll(fields);
+        }
+
+        boolean hasInfo(@NonNull String id, @NonNull Set<TorrentInfoField> fields) {
+            var idFields = fieldsById.get(id);
+            return (idFields == null ? hasInfo(fields) : idFields.containsAll(fields));
+        }
+    }
+
+    private static class IdSubscribers {
+        int count;
+        /* Indexed by TorrentInfoField ordinal */
+        final int[] fields = new int[TorrentInfoField.values().length];
+    }
+
+    private final TorrentEngine engine;
+    private final AtomicInteger foregroundSubscribers = new AtomicInteger();
+    private final AtomicInteger infoSubscribers = new AtomicInteger();
+    /* Indexed by TorrentInfoField ordinal */
+    private final AtomicIntegerArray fieldSubscribers =
+            new AtomicIntegerArray(TorrentInfoField.values().length);
+    /* Guarded by itself */
+    private final HashMap<String, IdSubscribers> idSubscribers = new HashMap<>();
+    private final Flowable<Tick> ticks;
+
+    SessionTickHub(@NonNull TorrentEngine engine) {
+        this.engine = engine;
+        this.ticks = makeTickFlowable()
+                .replay(1)
+                .refCount();
+    }
+
+    /*
+     * Replays the latest tick to new subscribers. Foreground subscribers
+     * switch the hub to the fast interval for as long as they are subscribed.
+     * The info with the requested fields is included starting from the next tick,
+     * use Tick.hasInfo() to skip the ticks without it
+     */
+
+    Flowable<Tick> observe(boolean foreground, @NonNull Set<TorrentInfoField> fields) {
+        return observe(foreground, fields, true);
+    }
+
+    /*
+     * Doesn't require the info, the stats-only ticks are
+     * emitted while there are no info subscribers
+     */
+
+    Flowable<Tick> observeStats(boolean foreground) {
+        return observe(foreground, TorrentInfoField.none(), false);
+    }
+
+    /*
+     * Observes the info of a single torrent, always in the foreground.
+     * Use Tick.hasInfo(id, fields) to skip the ticks without it
+     */
+
+    Flowable<Tick> observeInfo(@NonNull String id, @NonNull Set<TorrentInfoField> fields) {
+        return ticks
+                .doOnSubscribe((__) -> {
+                    foregroundSubscribers.incrementAndGet();
+                    synchronized (idSubscribers) {
+                        var subscribers = idSubscribers.get(id);
+                        if (subscribers == null) {
+                            subscribers = new IdSubscribers();
+                            idSubscribers.put(id, subscribers);
+                        }
+                        subscribers.count++;
+                        for (var field : fields) {
+                            subscribers.fields[field.ordinal()]++;
+                        }
+                    }
+                })
+                .doFinally(() -> {
+                    foregroundSubscribers.decrementAndGet();
+                    synchronized (idSubscribers) {
+                        var subscribers = idSubscribers.get(id);
+                        if (subscribers == null) {
+                            return;
+                        }
+                        if (--subscribers.count == 0) {
+                            idSubscribers.remove(id);
+                        } else {
+                            for (var field : fields) {
+                                subscribers.fields[field.ordinal()]--;
+                            }
+                        }
+                    }
+                });
+    }
+
+    private Flowable<Tick> observe(
+            boolean foreground,
+            Set<TorrentInfoField> fields,
+            boolean info
+    ) {
+        return ticks
+                .doOnSubscribe((__) -> {
+                    if (foreground) {
+                        foregroundSubscribers.incrementAndGet();
+                    }
+                    if (info) {
+                        infoSubscribers.incrementAndGet();
+                    }
+                    for (var field : fields) {
+                        fieldSubscribers.incrementAndGet(field.ordinal());
+                    }
+                })
+                .doFinally(() -> {
+                    if (foreground) {
+                        foregroundSubscribers.decrementAndGet();
+                    }
+                    if (info) {
+                        infoSubscribers.decrementAndGet();
+                    }
+                    for (var field : fields) {
+                        fieldSubscribers.decrementAndGet(field.ordinal());
+                    }
+                });
+    }
+
+    long getInterval() {
+        return (foregroundSubscribers.get() > 0 ? FOREGROUND_INTERVAL : BACKGROUND_INTERVAL);
+    }
+
+    private Flowable<Tick> makeTickFlowable() {
+        return Flowable.create((emitter) -> {
+            final AtomicLong lastTickTime = new AtomicLong(-1);
+
+            TorrentEngineListener listener = new TorrentEngineListener() {
+                @Override
+                public void onSessionStats(@NonNull SessionStats stats) {
+                    long now = SystemClock.elapsedRealtime();
+                    long last = lastTickTime.get();
+                    if (last >= 0 && now - last < getInterval() - INTERVAL_TOLERANCE) {
+                        return;
+                    }
+                    lastTickTime.set(now);
+
+                    try {
+                        Tick tick = makeTick(stats, now);
+                        if (!emitter.isCancelled()) {
+                            emitter.onNext(tick);
+                        }
+                    } catch (Throwable e) {
+                        if (!emitter.isCancelled()) {
+                            emitter.onError(e);
+                        }
+                    }
+                }
+            };
+
+            if (!emitter.isCancelled()) {
+                engine.addListener(listener);
+                emitter.setDisposable(Disposable.fromAction(() ->
+                        engine.removeListener(listener)));
+            }
+
+        }, BackpressureStrategy.LATEST);
+    }
+
+    private Set<TorrentInfoField> getFields() {
+        var fields = TorrentInfoField.none();
+        for (var field : TorrentInfoField.values()) {
+            if (fieldSubscribers.get(field.ordinal()) > 0) {
+                fields.add(field);
+            }
+        }
+
+        return fields;
+    }
+
+    private Map<String, Set<TorrentInfoField>> getFieldsById() {
+        var fieldsById = new HashMap<String, Set<TorrentInfoField>>();
+        synchronized (idSubscribers) {
+            for (var entry : idSubscribers.entrySet()) {
+                var fields = TorrentInfoField.none();
+                for (var field : TorrentInfoField.values()) {
+                    if (entry.getValue().fields[field.ordinal()] > 0) {
+                        fields.add(field);
+                    }
+                }
+                fieldsById.put(entry.getKey(), Collections.unmodifiableSet(fields));
+            }
+        }
+
+        return fieldsById;
+    }
+
+    private Tick makeTick(SessionStats stats, long time) {
+        boolean hasInfo = infoSubscribers.get() > 0;
+        var fieldsById = getFieldsById();
+        if (!hasInfo && fieldsById.isEmpty()) {
+            return new Tick(
+                    stats,
+                    Collections.emptyList(),
+                    Collections.emptyMap(),
+                    Collections.emptySet(),
+                    Collections.emptyMap(),
+                    false,
+                    time
+            );
+        }
+
+        var fields = (hasInfo ? getFields() : TorrentInfoField.none());
+        List<TorrentInfo> infoList = (hasInfo ?
+                engine.makeInfoListSync(fields) :
+                Collections.emptyList());
+        var infoById = new HashMap<String, TorrentInfo>(infoList.size() * 2);
+        for (var info : infoList) {
+            infoById.put(info.torrentId, info);
+        }
+
+        var it = fieldsById.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            String id = entry.getKey();
+            /* The list already has all fields */
+            if (hasInfo && fields.containsAll(entry.getValue())) {
+                it.remove();
+                continue;
+            }
+            TorrentInfo info = engine.makeInfoSync(id, entry.getValue());
+            if (info == null) {
+                infoById.remove(id);
+            } else {
+                infoById.put(id, info);
+            }
+        }
+
+        return new Tick(
+                stats,
+                Collections.unmodifiableList(infoList),
+                Collections.unmodifiableMap(infoById),
+                Collections.unmodifiableSet(fields),
+                Collections.unmodifiableMap(fieldsById),
+                hasInfo,
+                time
+        );
+    }
+}
@@ -43,21 +43,31 @@ import org.proninyaroslav.libretorrent.core.logger.Logger;
 import org.proninyaroslav.libretorrent.core.model.data.AdvancedTorrentInfo;
 import org.proninyaroslav.libretorrent.core.model.data.MagnetInfo;
 import org.proninyaroslav.libretorrent.core.model.data.PeerInfo;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
 import org.proninyaroslav.libretorrent.core.model.data.Priority;
+import org.proninyaroslav.libretorrent.core.model.data.SessionRestoreStats;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfoField;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
 import org.proninyaroslav.libretorrent.core.model.data.TrackerInfo;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TagInfo;
 import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
+import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentWithTags;
 import org.proninyaroslav.libretorrent.core.model.data.metainfo.TorrentMetaInfo;
+import org.proninyaroslav.libretorrent.core.model.session.AlertDispatchStats;
+import org.proninyaroslav.libretorrent.core.model.session.AlertThreadStats;
+import org.proninyaroslav.libretorrent.core.model.session.FastResumeWriterStats;
+import org.proninyaroslav.libretorrent.core.model.session.PiecesAvailability;
 import org.proninyaroslav.libretorrent.core.model.session.TorrentDownload;
 import org.proninyaroslav.libretorrent.core.model.session.TorrentSession;
 import org.proninyaroslav.libretorrent.core.model.session.TorrentSessionImpl;
 import org.proninyaroslav.libretorrent.core.model.stream.TorrentInputStream;
 import org.proninyaroslav.libretorrent.core.model.stream.TorrentStream;
+import org.proninyaroslav.libretorrent.core.model.stream.StreamServerStats;
+import org.proninyaroslav.libretorrent.core.model.stream.TorrentFileInputStream;
 import org.proninyaroslav.libretorrent.core.model.stream.TorrentStreamServer;
 import org.proninyaroslav.libretorrent.core.settings.SessionSettings;
 import org.proninyaroslav.libretorrent.core.settings.SettingsRepository;
-import org.proninyaroslav.libretorrent.core.storage.TagRepository;
 import org.proninyaroslav.libretorrent.core.storage.TorrentRepository;
 import org.proninyaroslav.libretorrent.core.system.FileDescriptorWrapper;
 import org.proninyaroslav.libretorrent.core.system.FileSystemFacade;
@@ -79,8 +89,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.reactivex.rxjava3.core.BackpressureStrategy;
 import io.reactivex.rxjava3.core.Completable;
@@ -96,11 +109,13 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 public class TorrentEngine {
     private static final String TAG = TorrentEngine.class.getSimpleName();
 
+    /* Waiting for the dormant torrent to be added */
+    private static final long ACTIVATE_TIMEOUT = 10000; /* ms */
+
     private final Context appContext;
     private final TorrentSession session;
     private TorrentStreamServer torrentStreamServer;
     private final TorrentRepository repo;
-    private final TagRepository tagRepo;
     private final SettingsRepository pref;
     private final TorrentNotifier notifier;
     private final CompositeDisposable disposables = new CompositeDisposable();
@@ -128,7 +143,6 @@ public class TorrentEngine {
     private TorrentEngine(@NonNull Context appContext) {
         this.appContext = appContext;
         repo = RepositoryHelper.getTorrentRepository(appContext);
-        tagRepo = RepositoryHelper.getTagRepository(appContext);
         fs = SystemFacadeHelper.getFileSystemFacade(appContext);
         pref = RepositoryHelper.getSettingsRepository(appContext);
         notifier = TorrentNotifier.getInstance(appContext);
@@ -473,10 +487,7 @@ public class TorrentEngine {
     }
 
     public void pauseResumeTorrent(@NonNull String id) {
-        disposables.add(Completable.fromRunnable(() -> {
-                    TorrentDownload task = session.getTask(id);
-                    if (task == null)
-                        return;
+        disposables.add(Completable.fromRunnable(() -> session.activateTorrent(id, (task) -> {
                     try {
                         if (task.isPaused())
                             task.resumeManually();
@@ -487,7 +498,7 @@ public class TorrentEngine {
                         /* Ignore */
                     }
 
-                }).subscribeOn(Schedulers.io())
+                })).subscribeOn(Schedulers.io())
                 .subscribe());
     }
 
@@ -498,9 +509,7 @@ public class TorrentEngine {
                     if (!isRunning())
                         return;
 
-                    TorrentDownload task = session.getTask(id);
-                    if (task != null)
-                        task.forceRecheck();
+                    session.activateTorrent(id, TorrentDownload::forceRecheck);
                 }));
     }
 
@@ -545,20 +554,14 @@ public class TorrentEngine {
         if (!isRunning())
             return;
 
-        TorrentDownload task = session.getTask(id);
-        if (task == null)
-            return;
-
-        task.replaceTrackers(new HashSet<>(urls));
+        session.activateTorrent(id, (task) -> task.replaceTrackers(new HashSet<>(urls)));
     }
 
     public void addTrackers(@NonNull String id, @NonNull List<String> urls) {
         if (!isRunning())
             return;
 
-        TorrentDownload task = session.getTask(id);
-        if (task != null)
-            task.addTrackers(new HashSet<>(urls));
+        session.activateTorrent(id, (task) -> task.addTrackers(new HashSet<>(urls)));
     }
 
     public String makeMagnet(@NonNull String id, boolean includePriorities) {
@@ -567,7 +570,7 @@ public class TorrentEngine {
 
         TorrentDownload task = session.getTask(id);
         if (task == null)
-            return null;
+            return session.makeDormantMagnet(id, includePriorities);
 
         return task.makeMagnet(includePriorities);
     }
@@ -590,13 +593,25 @@ public class TorrentEngine {
                         emitter.onError(err);
                     }
                 }
+
+                @Override
+                public void onTorrentLoaded(@NonNull String torrentId) {
+                    if (!id.equals(torrentId) || emitter.isCancelled())
+                        return;
+
+                    TorrentMetaInfo info = getTorrentMetaInfo(id);
+                    if (info != null)
+                        emitter.onNext(info);
+                }
             };
             if (!emitter.isCancelled()) {
+                boolean dormant = session.isDormant(id);
                 TorrentMetaInfo info = getTorrentMetaInfo(id);
-                if (info == null)
-                    emitter.onError(new NullPointerException());
-                else
+                if (info != null)
                     emitter.onNext(info);
+                else if (!dormant)
+                    emitter.onError(new NullPointerException());
+                /* Otherwise wait for the dormant torrent to be loaded */
 
                 session.addListener(listener);
                 emitter.setDisposable(Disposable.fromAction(() ->
@@ -609,7 +624,7 @@ public class TorrentEngine {
         if (!isRunning())
             return null;
 
-        TorrentDownload task = session.getTask(id);
+        TorrentDownload task = getTaskOrActivate(id);
         if (task == null)
             return null;
 
@@ -625,13 +640,13 @@ public class TorrentEngine {
         return info;
     }
 
-    public boolean[] getPieces(@NonNull String id) {
+    public PieceMap getPieces(@NonNull String id) {
         if (!isRunning())
-            return new boolean[0];
+            return PieceMap.empty();
 
         TorrentDownload task = session.getTask(id);
         if (task == null)
-            return new boolean[0];
+            return PieceMap.empty();
 
         return task.pieces();
     }
@@ -659,9 +674,7 @@ public class TorrentEngine {
                     if (!isRunning())
                         return;
 
-                    TorrentDownload task = session.getTask(id);
-                    if (task != null)
-                        task.setTorrentName(name);
+                    session.activateTorrent(id, (task) -> task.setTorrentName(name));
 
                 }).subscribeOn(Schedulers.io())
                 .subscribe());
@@ -672,9 +685,7 @@ public class TorrentEngine {
                     if (!isRunning())
                         return;
 
-                    TorrentDownload task = session.getTask(id);
-                    if (task != null)
-                        task.setDownloadPath(path);
+                    session.activateTorrent(id, (task) -> task.setDownloadPath(path));
 
                 }).subscribeOn(Schedulers.io())
                 .subscribe());
@@ -685,9 +696,7 @@ public class TorrentEngine {
                     if (!isRunning())
                         return;
 
-                    TorrentDownload task = session.getTask(id);
-                    if (task != null)
-                        task.setSequentialDownload(sequential);
+                    session.activateTorrent(id, (task) -> task.setSequentialDownload(sequential));
 
                 }).subscribeOn(Schedulers.io())
                 .subscribe());
@@ -698,10 +707,7 @@ public class TorrentEngine {
             if (!isRunning()) {
                 return;
             }
-            var task = session.getTask(id);
-            if (task != null) {
-                task.setFirstLastPiecePriority(enabled);
-            }
+            session.activateTorrent(id, (task) -> task.setFirstLastPiecePriority(enabled));
         }).subscribeOn(Schedulers.io()).subscribe());
     }
 
@@ -723,9 +729,7 @@ public class TorrentEngine {
                     if (!isRunning())
                         return;
 
-                    TorrentDownload task = session.getTask(id);
-                    if (task != null)
-                        task.prioritizeFiles(priorities);
+                    session.activateTorrent(id, (task) -> task.prioritizeFiles(priorities));
 
                 }).subscribeOn(Schedulers.io())
                 .subscribe());
@@ -735,7 +739,7 @@ public class TorrentEngine {
         if (!isRunning())
             return null;
 
-        TorrentDownload task = session.getTask(id);
+        TorrentDownload task = getTaskOrActivate(id);
         if (task == null)
             return null;
 
@@ -746,31 +750,136 @@ public class TorrentEngine {
         return new TorrentInputStream(session, stream);
     }
 
+    /*
+     * Returns the file stream positioned at startFrom if all pieces
+     * of the byte range [startFrom, endAt] are downloaded, otherwise null.
+     * In this case the range must be read through TorrentInputStream
+     */
+
+    public TorrentFileInputStream getCompletedRangeInputStream(@NonNull TorrentStream stream,
+                                                               long startFrom, long endAt) {
+        if (!isRunning() || startFrom < 0 || endAt < startFrom)
+            return null;
+
+        TorrentDownload task = session.getTask(stream.torrentId);
+        if (task == null)
+            return null;
+
+        /* Offset of the file beginning inside the first piece */
+        long fileStart = stream.fileOffset - (long) stream.firstFilePiece * stream.pieceLength;
+        int firstPiece = stream.bytesToPieceIndex(fileStart + startFrom);
+        int lastPiece = stream.bytesToPieceIndex(fileStart + endAt);
+        if (!task.havePieces(firstPiece, lastPiece))
+            return null;
+
+        Uri path = task.getFileUri(stream.selectedFileIndex);
+        if (path == null)
+            return null;
+
+        FileDescriptorWrapper w = null;
+        try {
+            w = fs.getFD(path);
+            FileDescriptor fd = w.open("r");
+            if (fd == null) {
+                w.close();
+                return null;
+            }
+            TorrentFileInputStream is = new TorrentFileInputStream(w, fd);
+            is.getChannel().position(startFrom);
+
+            return is;
+
+        } catch (IOException | UnknownUriException e) {
+            Log.w(TAG, "Unable to open file " + path + ": " + Log.getStackTraceString(e));
+            if (w != null) {
+                try {
+                    w.close();
+                } catch (IOException ignored) {
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /*
+     * Loads the dormant torrent into the session and waits until it's added,
+     * at most ACTIVATE_TIMEOUT. Use for data that the user explicitly requested.
+     * Do not run in the UI thread
+     */
+
+    private TorrentDownload getTaskOrActivate(String id) {
+        TorrentDownload task = session.getTask(id);
+        if (task != null || !session.isDormant(id))
+            return task;
+
+        final AtomicReference<TorrentDownload> activated = new AtomicReference<>();
+        final CountDownLatch signal = new CountDownLatch(1);
+        session.activateTorrent(id, (t) -> {
+            activated.set(t);
+            signal.countDown();
+        });
+        try {
+            signal.await(ACTIVATE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return activated.get();
+    }
+
     /*
      * Do not run in the UI thread
      */
 
     public TorrentInfo makeInfoSync(@NonNull String id) {
-        Torrent torrent = repo.getTorrentById(id);
+        return makeInfoSync(id, TorrentInfoField.all());
+    }
+
+    /*
+     * Do not run in the UI thread
+     */
+
+    public TorrentInfo makeInfoSync(@NonNull String id, @NonNull Set<TorrentInfoField> fields) {
+        /* Read through the in-memory index even if the tags aren't needed */
+        TorrentWithTags torrent = repo.getTorrentWithTagsById(id);
         if (torrent == null) {
             return null;
         }
-        List<TagInfo> tags = tagRepo.getByTorrentId(id);
 
-        return makeInfo(torrent, tags);
+        return makeInfo(torrent.torrent, getTags(torrent, fields), fields);
+    }
+
+    private static List<TagInfo> getTags(TorrentWithTags torrent, Set<TorrentInfoField> fields) {
+        return (fields.contains(TorrentInfoField.TAGS) ? torrent.tags : new ArrayList<>());
     }
 
-    private TorrentInfo makeInfo(Torrent torrent, List<TagInfo> tags) {
+    private TorrentInfo makeInfo(Torrent torrent, List<TagInfo> tags, Set<TorrentInfoField> fields) {
         TorrentDownload task = session.getTask(torrent.id);
         if (task == null || !task.isValid() || task.isStopped()) {
-            return new TorrentInfo(
+            TorrentInfo info = new TorrentInfo(
                     torrent.id,
                     torrent.name,
                     torrent.dateAdded,
                     torrent.error,
                     tags
             );
+            if (torrent.hasSavedStats()) {
+                info.progress = torrent.progress;
+                info.receivedBytes = torrent.receivedBytes;
+                info.uploadedBytes = torrent.uploadedBytes;
+                info.totalBytes = torrent.totalBytes;
+                if (fields.contains(TorrentInfoField.SEQUENTIAL_DOWNLOAD))
+                    info.sequentialDownload = torrent.sequentialDownload;
+                if (fields.contains(TorrentInfoField.FIRST_LAST_PIECE_PRIORITY))
+                    info.firstLastPiecePriority = torrent.firstLastPiecePriority;
+            }
+            if (task == null && session.isDormant(torrent.id))
+                info.stateCode = TorrentStateCode.PAUSED;
+
+            return info;
         } else {
+            boolean peers = fields.contains(TorrentInfoField.PEERS);
             return new TorrentInfo(
                     torrent.id,
                     torrent.name,
@@ -783,13 +892,16 @@ public class TorrentEngine {
                     task.getUploadSpeed(),
                     task.getETA(),
                     torrent.dateAdded,
-                    task.getTotalPeers(),
-                    task.getConnectedPeers(),
+                    peers ? task.getTotalPeers() : 0,
+                    peers ? task.getConnectedPeers() : 0,
                     torrent.error,
-                    task.isSequentialDownload(),
-                    task.getFilePriorities(),
+                    fields.contains(TorrentInfoField.SEQUENTIAL_DOWNLOAD) && task.isSequentialDownload(),
+                    fields.contains(TorrentInfoField.FILE_PRIORITIES)
+                            ? task.getFilePriorities()
+                            : new Priority[0],
                     tags,
-                    task.isFirstLastPiecePriority()
+                    fields.contains(TorrentInfoField.FIRST_LAST_PIECE_PRIORITY)
+                            && task.isFirstLastPiecePriority()
             );
         }
     }
@@ -799,14 +911,22 @@ public class TorrentEngine {
      */
 
     public List<TorrentInfo> makeInfoListSync() {
+        return makeInfoListSync(TorrentInfoField.all());
+    }
+
+    /*
+     * Do not run in the UI thread
+     */
+
+    public List<TorrentInfo> makeInfoListSync(@NonNull Set<TorrentInfoField> fields) {
         ArrayList<TorrentInfo> stateList = new ArrayList<>();
 
-        for (Torrent torrent : repo.getAllTorrents()) {
+        /* Read through the in-memory index even if the tags aren't needed */
+        for (TorrentWithTags torrent : repo.getAllTorrentsWithTags()) {
             if (torrent == null) {
                 continue;
             }
-            List<TagInfo> tags = tagRepo.getByTorrentId(torrent.id);
-            stateList.add(makeInfo(torrent, tags));
+            stateList.add(makeInfo(torrent.torrent, getTags(torrent, fields), fields));
         }
 
         return stateList;
@@ -828,7 +948,7 @@ public class TorrentEngine {
         if (torrent == null)
             return null;
 
-        int[] piecesAvail = task.getPiecesAvailability();
+        PiecesAvailability piecesAvail = task.getPiecesAvailability();
 
         return new AdvancedTorrentInfo(
                 torrent.id,
@@ -839,8 +959,8 @@ public class TorrentEngine {
                 task.getShareRatio(),
                 task.getActiveTime(),
                 task.getSeedingTime(),
-                task.getAvailability(piecesAvail),
-                task.getFilesAvailability(piecesAvail),
+                piecesAvail.availability(),
+                piecesAvail.filesAvailability(),
                 task.getConnectedLeechers(),
                 task.getTotalLeechers());
     }
@@ -893,22 +1013,14 @@ public class TorrentEngine {
         if (!isRunning())
             return;
 
-        TorrentDownload task = session.getTask(id);
-        if (task == null)
-            return;
-
-        task.setDownloadSpeedLimit(limit);
+        session.activateTorrent(id, (task) -> task.setDownloadSpeedLimit(limit));
     }
 
     public void setUploadSpeedLimit(@NonNull String id, int limit) {
         if (!isRunning())
             return;
 
-        TorrentDownload task = session.getTask(id);
-        if (task == null)
-            return;
-
-        task.setUploadSpeedLimit(limit);
+        session.activateTorrent(id, (task) -> task.setUploadSpeedLimit(limit));
     }
 
     public byte[] getBencode(@NonNull String id) {
@@ -917,7 +1029,7 @@ public class TorrentEngine {
 
         TorrentDownload task = session.getTask(id);
         if (task == null)
-            return null;
+            return session.getDormantBencode(id);
 
         return task.getBencode();
     }
@@ -945,6 +1057,18 @@ public class TorrentEngine {
         return session.getLogger();
     }
 
+    public List<AlertDispatchStats> getAlertDispatchStats() {
+        return session.getAlertDispatchStats();
+    }
+
+    public FastResumeWriterStats getFastResumeWriterStats() {
+        return session.getFastResumeWriterStats();
+    }
+
+    public AlertThreadStats getAlertThreadStats() {
+        return session.getAlertThreadStats();
+    }
+
     private void saveTorrentFileIn(@NonNull Torrent torrent,
                                    @NonNull Uri saveDir) {
         String torrentFileName = torrent.name + ".torrent";
@@ -1064,6 +1188,16 @@ public class TorrentEngine {
         }
     }
 
+    /*
+     * Returns null if the streaming server isn't running
+     */
+
+    public StreamServerStats getStreamServerStats() {
+        TorrentStreamServer server = torrentStreamServer;
+
+        return (server == null ? null : server.getStats());
+    }
+
     private void stopStreamingServer() {
         if (torrentStreamServer != null)
             torrentStreamServer.stop();
@@ -1384,6 +1518,11 @@ public class TorrentEngine {
                 notifier.makeNatErrorNotify(errorMsg);
         }
 
+        @Override
+        public void onSessionRestored(@NonNull SessionRestoreStats stats) {
+            Log.i(TAG, "Session restored: " + stats);
+        }
+
         @Override
         public void onRestoreSessionError(@NonNull String id) {
             disposables.add(repo.getTorrentByIdSingle(id)
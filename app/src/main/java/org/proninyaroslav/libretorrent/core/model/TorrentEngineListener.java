@@ -22,6 +22,7 @@ package org.proninyaroslav.libretorrent.core.model;
 import androidx.annotation.NonNull;
 
 import org.proninyaroslav.libretorrent.core.model.data.ReadPieceInfo;
+import org.proninyaroslav.libretorrent.core.model.data.SessionRestoreStats;
 import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
 
@@ -59,6 +60,10 @@ public abstract class TorrentEngineListener
 
     public void onRestoreSessionError(@NonNull String id) {}
 
+    public void onRestoreSessionProgress(int restored, int total) {}
+
+    public void onSessionRestored(@NonNull SessionRestoreStats stats) {}
+
     public void onTorrentError(@NonNull String id, Exception e) {}
 
     public void onSessionError(@NonNull String errorMsg) {}
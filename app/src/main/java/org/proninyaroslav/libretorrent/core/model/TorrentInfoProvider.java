@@ -20,33 +20,37 @@
 package org.proninyaroslav.libretorrent.core.model;
 
 import android.content.Context;
-import android.util.Log;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
 import org.proninyaroslav.libretorrent.core.RepositoryHelper;
 import org.proninyaroslav.libretorrent.core.model.data.AdvancedTorrentInfo;
 import org.proninyaroslav.libretorrent.core.model.data.PeerInfo;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
+import org.proninyaroslav.libretorrent.core.model.data.PiecesState;
 import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfoField;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentListState;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
 import org.proninyaroslav.libretorrent.core.model.data.TrackerInfo;
 import org.proninyaroslav.libretorrent.core.storage.TagRepository;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.reactivex.rxjava3.core.BackpressureStrategy;
 import io.reactivex.rxjava3.core.Flowable;
-import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.BiConsumer;
 import io.reactivex.rxjava3.functions.Consumer;
 
 /*
@@ -61,6 +65,8 @@ public class TorrentInfoProvider {
     private static volatile TorrentInfoProvider INSTANCE;
     private final TorrentEngine engine;
     private final TagRepository tagRepo;
+    private final SessionTickHub tickHub;
+    private final InfoPollScheduler pollScheduler;
 
     public static TorrentInfoProvider getInstance(
             @NonNull TorrentEngine engine,
@@ -91,18 +97,43 @@ public class TorrentInfoProvider {
     private TorrentInfoProvider(TorrentEngine engine, TagRepository tagRepo) {
         this.engine = engine;
         this.tagRepo = tagRepo;
+        this.tickHub = new SessionTickHub(engine);
+        this.pollScheduler = new InfoPollScheduler();
     }
 
     public Flowable<TorrentInfo> observeInfo(@NonNull String id) {
-        return makeInfoFlowable(id);
+        return observeInfo(id, TorrentInfoField.all());
+    }
+
+    public Flowable<TorrentInfo> observeInfo(
+            @NonNull String id,
+            @NonNull Set<TorrentInfoField> fields
+    ) {
+        return makeInfoFlowable(id, fields);
     }
 
     public Flowable<TorrentListState> observeInfoList() {
-        return makeInfoListFlowable();
+        return observeInfoList(true, TorrentInfoField.all());
+    }
+
+    /*
+     * Background subscribers (e.g. notification) don't keep
+     * the update rate high, see SessionTickHub
+     */
+
+    public Flowable<TorrentListState> observeInfoList(
+            boolean foreground,
+            @NonNull Set<TorrentInfoField> fields
+    ) {
+        return makeInfoListFlowable(foreground, fields);
     }
 
     public Single<List<TorrentInfo>> getInfoListSingle() {
-        return makeInfoListSingle();
+        return getInfoListSingle(TorrentInfoField.all());
+    }
+
+    public Single<List<TorrentInfo>> getInfoListSingle(@NonNull Set<TorrentInfoField> fields) {
+        return makeInfoListSingle(fields);
     }
 
     public Flowable<AdvancedTorrentInfo> observeAdvancedInfo(@NonNull String id) {
@@ -117,37 +148,65 @@ public class TorrentInfoProvider {
         return makePeersInfoFlowable(id);
     }
 
-    public Flowable<boolean[]> observePiecesInfo(@NonNull String id) {
+    public Flowable<PieceMap> observePiecesInfo(@NonNull String id) {
         return makePiecesFlowable(id);
     }
 
+    /*
+     * Emits the full map once and then only the changed ranges
+     */
+
+    public Flowable<PiecesState> observePiecesChanges(@NonNull String id) {
+        return makePiecesStateFlowable(id);
+    }
+
     public Flowable<String> observeTorrentsDeleted() {
         return makeTorrentsDeletedFlowable();
     }
 
     public Flowable<SessionStats> observeSessionStats() {
-        return makeSessionStatsFlowable();
+        return observeSessionStats(true);
+    }
+
+    public Flowable<SessionStats> observeSessionStats(boolean foreground) {
+        return makeSessionStatsFlowable(foreground);
     }
 
     public Single<SessionStats> getSessionStatsSingle() {
         return makeSessionStatsSingle();
     }
 
-    private Flowable<TorrentInfo> makeInfoFlowable(String id) {
+    public InfoPollStats getPollStats() {
+        return pollScheduler.getStats();
+    }
+
+    private Flowable<TorrentInfo> makeInfoFlowable(String id, Set<TorrentInfoField> fields) {
         return Flowable.create((emitter) -> {
             final AtomicReference<TorrentInfo> info = new AtomicReference<>();
+            final AtomicLong infoTime = new AtomicLong();
+
+            BiConsumer<TorrentInfo, Long> handleInfo = (newInfo, time) -> {
+                synchronized (info) {
+                    /* Skip snapshots older than the last one, e.g. a replayed tick */
+                    if (time < infoTime.get())
+                        return;
+                    infoTime.set(time);
+
+                    TorrentInfo oldInfo = info.get();
+                    if (newInfo != null && !newInfo.equals(oldInfo)) {
+                        info.set(newInfo);
+                        if (!emitter.isCancelled())
+                            emitter.onNext(newInfo);
+                    }
+                }
+            };
 
             Consumer<String> handleEvent = (torrentId) -> {
                 if (!id.equals(torrentId))
                     return;
 
-                TorrentInfo newInfo = engine.makeInfoSync(id);
-                TorrentInfo oldInfo = info.get();
-                if (newInfo != null && !newInfo.equals(oldInfo)) {
-                    info.set(newInfo);
-                    if (!emitter.isCancelled())
-                        emitter.onNext(newInfo);
-                }
+                long time = SystemClock.elapsedRealtime();
+                handleInfo.accept(engine.makeInfoSync(id, fields), time);
             };
 
             TorrentEngineListener listener = new TorrentEngineListener() {
@@ -196,23 +255,16 @@ public class TorrentInfoProvider {
                             emitter.onError(ex);
                     }
                 }
-
-                @Override
-                public void onSessionStats(@NonNull SessionStats stats) {
-                    try {
-                        handleEvent.accept(id);
-
-                    } catch (Throwable ex) {
-                        if (!emitter.isCancelled())
-                            emitter.onError(ex);
-                    }
-                }
             };
 
             if (!emitter.isCancelled()) {
-                Thread t = new Thread(() -> {
-                    TorrentInfo s = engine.makeInfoSync(id);
-                    info.set(s);
+                pollScheduler.execute(() -> {
+                    TorrentInfo s;
+                    synchronized (info) {
+                        infoTime.set(SystemClock.elapsedRealtime());
+                        s = engine.makeInfoSync(id, fields);
+                        info.set(s);
+                    }
                     if (!emitter.isCancelled()) {
                         /* Emit once to avoid missing any data and also easy chaining */
                         if (s != null)
@@ -222,6 +274,16 @@ public class TorrentInfoProvider {
                         disposables.add(Disposable.fromAction(() ->
                                 engine.removeListener(listener))
                         );
+                        disposables.add(tickHub.observeInfo(id, fields)
+                                .filter((tick) -> tick.hasInfo(id, fields))
+                                .subscribe((tick) -> handleInfo.accept(
+                                                projectInfo(tick.getInfo(id), tick.getFields(id), fields),
+                                                tick.time()),
+                                        (Throwable e) -> {
+                                            if (!emitter.isCancelled())
+                                                emitter.onError(e);
+                                        })
+                        );
                         disposables.add(tagRepo.observeByTorrentId(id)
                                 .subscribe((__) -> {
                                     try {
@@ -235,232 +297,162 @@ public class TorrentInfoProvider {
                         emitter.setDisposable(disposables);
                     }
                 });
-                t.start();
             }
 
         }, BackpressureStrategy.LATEST);
     }
 
-    private Flowable<TorrentListState> makeInfoListFlowable() {
+    /*
+     * Emits the full list once and then only the deltas (see TorrentListState.Changed).
+     * State, pause, removal and error events don't rebuild the list by themselves,
+     * they are coalesced into the next shared tick (see SessionTickHub).
+     * Deltas must not be dropped, so the events are buffered instead of keeping the latest one
+     */
+
+    private Flowable<TorrentListState> makeInfoListFlowable(
+            boolean foreground,
+            Set<TorrentInfoField> fields
+    ) {
         return Flowable.create((emitter) -> {
-            final ConcurrentHashMap.KeySetView<TorrentInfo, Boolean> infoList
-                    = ConcurrentHashMap.newKeySet();
-
-            Runnable handleInfo = () -> {
-                var newInfoList = engine.makeInfoListSync();
-                if (infoList.size() != newInfoList.size() || !infoList.containsAll(newInfoList)) {
-                    infoList.clear();
-                    infoList.addAll(newInfoList);
-                    if (!emitter.isCancelled()) {
-                        emitter.onNext(new TorrentListState.Loaded(newInfoList));
+            final TorrentListDiffer differ = new TorrentListDiffer();
+            final AtomicLong infoTime = new AtomicLong();
+
+            BiConsumer<List<TorrentInfo>, Long> handleInfo = (infoList, time) -> {
+                /* Keep the order of the deltas when called from different threads */
+                synchronized (differ) {
+                    /* Skip snapshots older than the last one, e.g. a replayed tick */
+                    if (time < infoTime.get())
+                        return;
+                    infoTime.set(time);
+
+                    var delta = differ.diff(infoList);
+                    if (delta != null && !emitter.isCancelled()) {
+                        emitter.onNext(delta);
                     }
                 }
             };
 
-            TorrentEngineListener listener = new TorrentEngineListener() {
-                @Override
-                public void onTorrentStateChanged(@NonNull String torrentId,
-                                                  @NonNull TorrentStateCode prevState,
-                                                  @NonNull TorrentStateCode curState) {
-                    handleInfo.run();
-                }
-
-                @Override
-                public void onTorrentPaused(@NonNull String torrentId) {
-                    handleInfo.run();
-                }
-
-                @Override
-                public void onTorrentRemoved(@NonNull String torrentId) {
-                    handleInfo.run();
-                }
-
-                @Override
-                public void onRestoreSessionError(@NonNull String torrentId) {
-                    handleInfo.run();
-                }
-
-                @Override
-                public void onTorrentError(@NonNull String torrentId, Exception e) {
-                    handleInfo.run();
-                }
-
-                @Override
-                public void onSessionStats(@NonNull SessionStats stats) {
-                    handleInfo.run();
-                }
-            };
-
             if (!emitter.isCancelled()) {
-                Thread t = new Thread(() -> {
+                pollScheduler.execute(() -> {
                     emitter.onNext(new TorrentListState.Initial());
-                    infoList.clear();
-                    infoList.addAll(engine.makeInfoListSync());
+                    List<TorrentInfo> infoList;
+                    synchronized (differ) {
+                        infoTime.set(SystemClock.elapsedRealtime());
+                        infoList = engine.makeInfoListSync(fields);
+                        differ.reset(infoList);
+                    }
                     if (!emitter.isCancelled()) {
                         /* Emit once to avoid missing any data and also easy chaining */
-                        emitter.onNext(new TorrentListState.Loaded(infoList.stream().toList()));
-                        engine.addListener(listener);
+                        emitter.onNext(new TorrentListState.Loaded(infoList));
                         CompositeDisposable disposables = new CompositeDisposable();
-                        disposables.add(Disposable.fromAction(() ->
-                                engine.removeListener(listener))
+                        disposables.add(tickHub.observe(foreground, fields)
+                                .filter((tick) -> tick.hasInfo(fields))
+                                .subscribe((tick) -> handleInfo.accept(
+                                                projectInfoList(tick.infoList(), tick.fields(), fields),
+                                                tick.time()),
+                                        (Throwable e) -> {
+                                            if (!emitter.isCancelled())
+                                                emitter.onError(e);
+                                        })
                         );
                         disposables.add(tagRepo.observeAll()
-                                .subscribe((__) -> handleInfo.run())
+                                .subscribe((__) -> {
+                                    long time = SystemClock.elapsedRealtime();
+                                    handleInfo.accept(engine.makeInfoListSync(fields), time);
+                                })
                         );
                         emitter.setDisposable(disposables);
                     }
                 });
-                t.start();
             }
 
-        }, BackpressureStrategy.LATEST);
+        }, BackpressureStrategy.BUFFER);
     }
 
-    private Single<List<TorrentInfo>> makeInfoListSingle() {
+    /*
+     * A tick can contain more fields than requested, if other subscribers need them.
+     * Ticks that don't contain all of the requested fields are skipped by the callers
+     */
+
+    private static TorrentInfo projectInfo(
+            TorrentInfo info,
+            Set<TorrentInfoField> tickFields,
+            Set<TorrentInfoField> fields
+    ) {
+        return (info == null || fields.containsAll(tickFields) ? info : info.project(fields));
+    }
+
+    private static List<TorrentInfo> projectInfoList(
+            List<TorrentInfo> infoList,
+            Set<TorrentInfoField> tickFields,
+            Set<TorrentInfoField> fields
+    ) {
+        if (fields.containsAll(tickFields))
+            return infoList;
+
+        var projected = new ArrayList<TorrentInfo>(infoList.size());
+        for (var info : infoList)
+            projected.add(info.project(fields));
+
+        return projected;
+    }
+
+    private Single<List<TorrentInfo>> makeInfoListSingle(Set<TorrentInfoField> fields) {
         return Single.create((emitter) -> {
             if (!emitter.isDisposed()) {
-                Thread t = new Thread(() -> {
-                    List<TorrentInfo> infoList = engine.makeInfoListSync();
+                pollScheduler.execute(() -> {
+                    List<TorrentInfo> infoList = engine.makeInfoListSync(fields);
                     if (!emitter.isDisposed())
                         emitter.onSuccess(infoList);
                 });
-                t.start();
             }
         });
     }
 
     private Flowable<AdvancedTorrentInfo> makeAdvancedInfoFlowable(String id) {
-        return Flowable.create((emitter) -> {
-            final AtomicReference<AdvancedTorrentInfo> info = new AtomicReference<>();
-
-            Disposable d = Observable.interval(GET_INFO_SYNC_TIME, TimeUnit.MILLISECONDS)
-                    .subscribe((__) -> {
-                                AdvancedTorrentInfo newInfo = engine.makeAdvancedInfoSync(id);
-                                AdvancedTorrentInfo oldInfo = info.get();
-                                if (newInfo != null && !newInfo.equals(oldInfo)) {
-                                    info.set(newInfo);
-                                    if (!emitter.isCancelled())
-                                        emitter.onNext(newInfo);
-                                }
-                            },
-                            (Throwable t) -> Log.e(TAG, "Getting advanced info for torrent " + id + " error: " +
-                                    Log.getStackTraceString(t)));
-
-            if (!emitter.isCancelled()) {
-                Thread t = new Thread(() -> {
-                    AdvancedTorrentInfo s = engine.makeAdvancedInfoSync(id);
-                    info.set(s);
-                    if (!emitter.isCancelled()) {
-                        /* Emit once to avoid missing any data and also easy chaining */
-                        if (s != null)
-                            emitter.onNext(s);
-                        emitter.setDisposable(d);
-                    }
-                });
-                t.start();
-            }
-
-        }, BackpressureStrategy.LATEST);
+        return pollScheduler.poll("advanced:" + id, GET_INFO_SYNC_TIME,
+                () -> engine.makeAdvancedInfoSync(id),
+                Objects::equals);
     }
 
     private Flowable<List<TrackerInfo>> makeTrackersInfoFlowable(String id) {
-        return Flowable.create((emitter) -> {
-            var infoList = new HashSet<TrackerInfo>();
-
-            Disposable d = Observable.interval(GET_INFO_SYNC_TIME, TimeUnit.MILLISECONDS)
-                    .subscribe((__) -> {
-                                var newInfoList = engine.makeTrackerInfoList(id);
-                                if (infoList.size() != newInfoList.size() || !infoList.containsAll(newInfoList)) {
-                                    infoList.clear();
-                                    infoList.addAll(newInfoList);
-                                    if (!emitter.isCancelled()) {
-                                        emitter.onNext(newInfoList);
-                                    }
-                                }
-                            },
-                            (Throwable t) -> Log.e(TAG, "Getting trackers info for torrent " + id + " error: " +
-                                    Log.getStackTraceString(t)));
-
-            if (!emitter.isCancelled()) {
-                Thread t = new Thread(() -> {
-                    infoList.clear();
-                    infoList.addAll(engine.makeTrackerInfoList(id));
-                    if (!emitter.isCancelled()) {
-                        /* Emit once to avoid missing any data and also easy chaining */
-                        emitter.onNext(infoList.stream().toList());
-                        emitter.setDisposable(d);
-                    }
-                });
-                t.start();
-            }
-
-        }, BackpressureStrategy.LATEST);
+        return pollScheduler.poll("trackers:" + id, GET_INFO_SYNC_TIME,
+                () -> engine.makeTrackerInfoList(id),
+                TorrentInfoProvider::containsSameItems);
     }
 
     private Flowable<List<PeerInfo>> makePeersInfoFlowable(String id) {
-        return Flowable.create((emitter) -> {
-            var infoList = new HashSet<PeerInfo>();
-
-            var d = Observable.interval(GET_INFO_SYNC_TIME, TimeUnit.MILLISECONDS)
-                    .subscribe((__) -> {
-                                var newInfoList = engine.makePeerInfoList(id);
-                                if (infoList.size() != newInfoList.size() || !infoList.containsAll(newInfoList)) {
-                                    infoList.clear();
-                                    infoList.addAll(newInfoList);
-                                    if (!emitter.isCancelled()) {
-                                        emitter.onNext(newInfoList);
-                                    }
-                                }
-                            },
-                            (Throwable t) -> Log.e(TAG, "Getting peers info for torrent " + id + " error: " +
-                                    Log.getStackTraceString(t)));
-
-            if (!emitter.isCancelled()) {
-                var t = new Thread(() -> {
-                    infoList.clear();
-                    infoList.addAll(engine.makePeerInfoList(id));
-                    if (!emitter.isCancelled()) {
-                        /* Emit once to avoid missing any data and also easy chaining */
-                        emitter.onNext(infoList.stream().toList());
-                        emitter.setDisposable(d);
-                    }
-                });
-                t.start();
-            }
+        return pollScheduler.poll("peers:" + id, GET_INFO_SYNC_TIME,
+                () -> engine.makePeerInfoList(id),
+                TorrentInfoProvider::containsSameItems);
+    }
 
-        }, BackpressureStrategy.LATEST);
+    private Flowable<PieceMap> makePiecesFlowable(String id) {
+        return pollScheduler.poll("pieces:" + id, GET_INFO_SYNC_TIME,
+                () -> engine.getPieces(id),
+                PieceMap::equals);
     }
 
-    private Flowable<boolean[]> makePiecesFlowable(String id) {
-        return Flowable.create((emitter) -> {
-            final AtomicReference<boolean[]> infoList = new AtomicReference<>();
-
-            Disposable d = Observable.interval(GET_INFO_SYNC_TIME, TimeUnit.MILLISECONDS)
-                    .subscribe((__) -> {
-                                boolean[] newInfoList = engine.getPieces(id);
-                                boolean[] oldInfoList = infoList.get();
-                                if (!Arrays.equals(oldInfoList, newInfoList)) {
-                                    infoList.set(newInfoList);
-                                    if (!emitter.isCancelled())
-                                        emitter.onNext(newInfoList);
-                                }
-                            },
-                            (Throwable t) -> Log.e(TAG, "Getting pieces for torrent " + id + " error: " +
-                                    Log.getStackTraceString(t)));
+    private Flowable<PiecesState> makePiecesStateFlowable(String id) {
+        return Flowable.defer(() -> {
+            final AtomicReference<PieceMap> prevPieces = new AtomicReference<>();
+
+            return makePiecesFlowable(id).map((pieces) -> {
+                PieceMap prev = prevPieces.getAndSet(pieces);
+                if (prev == null || prev.size() != pieces.size())
+                    return new PiecesState.Loaded(pieces);
+                else
+                    return new PiecesState.Changed(pieces.diff(prev));
+            });
+        });
+    }
 
-            if (!emitter.isCancelled()) {
-                Thread t = new Thread(() -> {
-                    infoList.set(engine.getPieces(id));
-                    if (!emitter.isCancelled()) {
-                        /* Emit once to avoid missing any data and also easy chaining */
-                        emitter.onNext(infoList.get());
-                        emitter.setDisposable(d);
-                    }
-                });
-                t.start();
-            }
+    /*
+     * Order of trackers and peers doesn't matter
+     */
 
-        }, BackpressureStrategy.LATEST);
+    private static <T> boolean containsSameItems(List<T> a, List<T> b) {
+        return a.size() == b.size() && new HashSet<>(a).containsAll(b);
     }
 
     private Flowable<String> makeTorrentsDeletedFlowable() {
@@ -482,29 +474,10 @@ public class TorrentInfoProvider {
         }, BackpressureStrategy.DROP);
     }
 
-    private Flowable<SessionStats> makeSessionStatsFlowable() {
-        return Flowable.create((emitter) -> {
-            final AtomicReference<SessionStats> stats = new AtomicReference<>();
-
-            TorrentEngineListener listener = new TorrentEngineListener() {
-                @Override
-                public void onSessionStats(@NonNull SessionStats newStats) {
-                    SessionStats oldStats = stats.get();
-                    if (!newStats.equals(oldStats)) {
-                        stats.set(newStats);
-                        if (!emitter.isCancelled())
-                            emitter.onNext(newStats);
-                    }
-                }
-            };
-
-            if (!emitter.isCancelled()) {
-                engine.addListener(listener);
-                emitter.setDisposable(Disposable.fromAction(() ->
-                        engine.removeListener(listener)));
-            }
-
-        }, BackpressureStrategy.LATEST);
+    private Flowable<SessionStats> makeSessionStatsFlowable(boolean foreground) {
+        return tickHub.observeStats(foreground)
+                .map(SessionTickHub.Tick::stats)
+                .distinctUntilChanged();
     }
 
     private Single<SessionStats> makeSessionStatsSingle() {
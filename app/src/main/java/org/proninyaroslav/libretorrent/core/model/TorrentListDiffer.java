@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentListState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/*
+ * Computes keyed deltas between consecutive torrent lists
+ */
+
+class TorrentListDiffer {
+    private final HashMap<String, TorrentInfo> lastInfo = new HashMap<>();
+
+    synchronized void reset(@NonNull List<TorrentInfo> infoList) {
+        lastInfo.clear();
+        for (var info : infoList) {
+            lastInfo.put(info.torrentId, info);
+        }
+    }
+
+    /*
+     * Returns null if nothing has changed
+     */
+
+    @Nullable
+    synchronized TorrentListState.Changed diff(@NonNull List<TorrentInfo> newInfoList) {
+        var added = new ArrayList<TorrentInfo>();
+        var changed = new ArrayList<TorrentInfo>();
+        var removed = new ArrayList<String>();
+
+        var newIds = new HashSet<String>(newInfoList.size() * 2);
+        for (var info : newInfoList) {
+            newIds.add(info.torrentId);
+            var oldInfo = lastInfo.put(info.torrentId, info);
+            if (oldInfo == null) {
+                added.add(info);
+            } else if (!oldInfo.equals(info)) {
+                changed.add(info);
+            }
+        }
+        var it = lastInfo.keySet().iterator();
+        while (it.hasNext()) {
+            var id = it.next();
+            if (!newIds.contains(id)) {
+                removed.add(id);
+                it.remove();
+            }
+        }
+
+        var delta = new TorrentListState.Changed(added, changed, removed);
+
+        return (delta.isEmpty() ? null : delta);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Immutable map of the downloaded pieces, packed into a long[] bitset
+ * (64 pieces per word) instead of a boolean per piece.
+ */
+
+public final class PieceMap {
+    private static final PieceMap EMPTY = new PieceMap(0, new long[0]);
+
+    private final int size;
+    private final long[] words;
+
+    /*
+     * Range of consecutive pieces that have the same new state
+     */
+
+    public record Range(int first, int last, boolean have) {
+    }
+
+    /*
+     * The array isn't copied, it must not be modified after that
+     */
+
+    public PieceMap(int size, @NonNull long[] words) {
+        if (size < 0 || words.length != numWords(size))
+            throw new IllegalArgumentException("Invalid number of words " + words.length +
+                    " for " + size + " pieces");
+
+        this.size = size;
+        this.words = words;
+    }
+
+    public static int numWords(int size) {
+        return (size + Long.SIZE - 1) >>> 6;
+    }
+
+    @NonNull
+    public static PieceMap empty() {
+        return EMPTY;
+    }
+
+    @NonNull
+    public static PieceMap empty(int size) {
+        return new PieceMap(size, new long[numWords(size)]);
+    }
+
+    @NonNull
+    public static PieceMap full(int size) {
+        long[] words = new long[numWords(size)];
+        Arrays.fill(words, -1L);
+        clearTail(size, words);
+
+        return new PieceMap(size, words);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int piece) {
+        if (piece < 0 || piece >= size)
+            return false;
+
+        return (words[piece >>> 6] & (1L << piece)) != 0;
+    }
+
+    public int count() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+
+        return count;
+    }
+
+    /*
+     * Ranges of pieces that differ from the previous map of the same size.
+     * Unchanged words are skipped, so the cost depends on the number of changes
+     */
+
+    @NonNull
+    public List<Range> diff(@NonNull PieceMap prev) {
+        if (prev.size != size)
+            throw new IllegalArgumentException("Piece maps have different size: " +
+                    prev.size + " and " + size);
+
+        var ranges = new ArrayList<Range>();
+        int first = -1;
+        int last = -1;
+        boolean have = false;
+        for (int w = 0; w < words.length; w++) {
+            long changed = words[w] ^ prev.words[w];
+            while (changed != 0) {
+                int piece = (w << 6) + Long.numberOfTrailingZeros(changed);
+                boolean newHave = (words[w] & (1L << piece)) != 0;
+                if (first >= 0 && last == piece - 1 && have == newHave) {
+                    last = piece;
+                } else {
+                    if (first >= 0)
+                        ranges.add(new Range(first, last, have));
+                    first = last = piece;
+                    have = newHave;
+                }
+                changed &= changed - 1;
+            }
+        }
+        if (first >= 0)
+            ranges.add(new Range(first, last, have));
+
+        return ranges;
+    }
+
+    @NonNull
+    public PieceMap apply(@NonNull List<Range> ranges) {
+        if (ranges.isEmpty())
+            return this;
+
+        long[] newWords = words.clone();
+        for (var range : ranges) {
+            int last = Math.min(range.last(), size - 1);
+            for (int piece = Math.max(range.first(), 0); piece <= last; piece++) {
+                if (range.have())
+                    newWords[piece >>> 6] |= (1L << piece);
+                else
+                    newWords[piece >>> 6] &= ~(1L << piece);
+            }
+        }
+
+        return new PieceMap(size, newWords);
+    }
+
+    /* Bits past the last piece must be zero to keep equals() and count() correct */
+    private static void clearTail(int size, long[] words) {
+        int tail = size & (Long.SIZE - 1);
+        if (tail != 0)
+            words[words.length - 1] &= (1L << tail) - 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof PieceMap other))
+            return false;
+
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PieceMap{" +
+                "size=" + size +
+                ", count=" + count() +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data;
+
+/*
+ * Result of restoring the torrents of the previous session.
+ * Stage times are in milliseconds: loadTime is spent reading the resume
+ * data from the database, decodeTime is the sum of the decoding time
+ * of all workers and addTime is the sum of the time from submitting
+ * a torrent to libtorrent until it's added.
+ */
+
+public record SessionRestoreStats(
+        int total,
+        int restored,
+        int failed,
+        long loadTime,
+        long decodeTime,
+        long addTime,
+        long totalTime
+) {}
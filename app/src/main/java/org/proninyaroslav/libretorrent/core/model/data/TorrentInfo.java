@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /*
  * The class provides a package model with dynamically changing information
@@ -123,6 +124,34 @@ public class TorrentInfo extends AbstractInfoParcel<TorrentInfo> {
         this.firstLastPiecePriority = firstLastPiecePriority;
     }
 
+    /*
+     * Copy that contains only the requested optional fields
+     */
+
+    @NonNull
+    public TorrentInfo project(@NonNull Set<TorrentInfoField> fields) {
+        return new TorrentInfo(
+                torrentId,
+                name,
+                stateCode,
+                progress,
+                receivedBytes,
+                uploadedBytes,
+                totalBytes,
+                downloadSpeed,
+                uploadSpeed,
+                ETA,
+                dateAdded,
+                fields.contains(TorrentInfoField.PEERS) ? totalPeers : 0,
+                fields.contains(TorrentInfoField.PEERS) ? peers : 0,
+                error,
+                fields.contains(TorrentInfoField.SEQUENTIAL_DOWNLOAD) && sequentialDownload,
+                fields.contains(TorrentInfoField.FILE_PRIORITIES) ? filePriorities : new Priority[0],
+                fields.contains(TorrentInfoField.TAGS) ? tags : new ArrayList<>(),
+                fields.contains(TorrentInfoField.FIRST_LAST_PIECE_PRIORITY) && firstLastPiecePriority
+        );
+    }
+
     public TorrentInfo(Parcel source) {
         super(source);
 
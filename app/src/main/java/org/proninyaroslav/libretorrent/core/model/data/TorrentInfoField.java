@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/*
+ * Optional fields of TorrentInfo. The name, state, progress, sizes, speeds,
+ * ETA, date added and error are always filled in, the rest only if requested,
+ * so that the consumers don't pay for the fields they don't render.
+ * Fields that are not requested have their default values.
+ */
+
+public enum TorrentInfoField {
+    PEERS,
+    SEQUENTIAL_DOWNLOAD,
+    FIRST_LAST_PIECE_PRIORITY,
+    /* Requires a native query for each torrent */
+    FILE_PRIORITIES,
+    /* Requires a join with the tags table */
+    TAGS;
+
+    @NonNull
+    public static Set<TorrentInfoField> all() {
+        return EnumSet.allOf(TorrentInfoField.class);
+    }
+
+    @NonNull
+    public static Set<TorrentInfoField> none() {
+        return EnumSet.noneOf(TorrentInfoField.class);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.collections.SortedKeyedList;
+import org.proninyaroslav.libretorrent.core.filter.TorrentFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+import io.reactivex.rxjava3.exceptions.Exceptions;
+
+/*
+ * Applies TorrentListState deltas to a filtered and sorted list of torrents.
+ * Only the torrents from the delta are filtered and placed into the list,
+ * the whole list is filtered and sorted again only when the filter or sorting changes.
+ */
+
+public class TorrentListPatcher<T extends TorrentInfo> {
+    private final Function<TorrentInfo, T> mapper;
+    /* All torrents, including filtered out */
+    private final LinkedHashMap<String, TorrentInfo> infoMap = new LinkedHashMap<>();
+    private final SortedKeyedList<String, T> items;
+    private TorrentFilter filter;
+
+    public TorrentListPatcher(
+            @NonNull Function<TorrentInfo, T> mapper,
+            @NonNull TorrentFilter filter,
+            @NonNull Comparator<? super T> sorting
+    ) {
+        this.mapper = mapper;
+        this.filter = filter;
+        this.items = new SortedKeyedList<>((item) -> item.torrentId, sorting);
+    }
+
+    @NonNull
+    public synchronized List<T> apply(@NonNull TorrentListState state) {
+        if (state instanceof TorrentListState.Initial) {
+            infoMap.clear();
+            items.clear();
+        } else if (state instanceof TorrentListState.Loaded loaded) {
+            infoMap.clear();
+            for (var info : loaded.list()) {
+                infoMap.put(info.torrentId, info);
+            }
+            rebuild();
+        } else if (state instanceof TorrentListState.Changed changed) {
+            for (var id : changed.removed()) {
+                infoMap.remove(id);
+                items.remove(id);
+            }
+            for (var info : changed.added()) {
+                put(info);
+            }
+            for (var info : changed.changed()) {
+                put(info);
+            }
+        } else {
+            throw new IllegalStateException("Unknown state: " + state);
+        }
+
+        return items.toList();
+    }
+
+    /*
+     * Re-filter and re-sort the last known torrents
+     */
+
+    @NonNull
+    public synchronized List<T> setFilterAndSorting(
+            @NonNull TorrentFilter filter,
+            @NonNull Comparator<? super T> sorting
+    ) {
+        this.filter = filter;
+        items.clear();
+        items.setComparator(sorting);
+        rebuild();
+
+        return items.toList();
+    }
+
+    private void put(TorrentInfo info) {
+        infoMap.put(info.torrentId, info);
+        if (test(info)) {
+            items.put(mapper.apply(info));
+        } else {
+            items.remove(info.torrentId);
+        }
+    }
+
+    private boolean test(TorrentInfo info) {
+        try {
+            return filter.test(info);
+        } catch (Throwable e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private void rebuild() {
+        var filtered = new ArrayList<T>(infoMap.size());
+        for (var info : infoMap.values()) {
+            if (test(info)) {
+                filtered.add(mapper.apply(info));
+            }
+        }
+        items.setAll(filtered);
+    }
+}
@@ -23,10 +23,28 @@ import androidx.annotation.NonNull;
 
 import java.util.List;
 
-public sealed interface TorrentListState permits TorrentListState.Initial, TorrentListState.Loaded {
+public sealed interface TorrentListState permits
+        TorrentListState.Initial,
+        TorrentListState.Loaded,
+        TorrentListState.Changed {
     record Initial() implements TorrentListState {
     }
 
     record Loaded(@NonNull List<TorrentInfo> list) implements TorrentListState {
     }
+
+    /*
+     * Delta relative to the previous Loaded/Changed state, keyed by torrent id.
+     * Contains the new info of the added and changed torrents
+     */
+
+    record Changed(
+            @NonNull List<TorrentInfo> added,
+            @NonNull List<TorrentInfo> changed,
+            @NonNull List<String> removed
+    ) implements TorrentListState {
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+    }
 }
@@ -22,13 +22,16 @@ package org.proninyaroslav.libretorrent.core.model.data.entity;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Entity for storing error logs to help with diagnostics and retry logic.
  * Helps track network errors, parsing errors, and other issues.
  */
-@Entity
+@Entity(indices = {
+        @Index(value = "timestamp"),
+        @Index(value = "source")})
 public class ErrorLog {
     @PrimaryKey(autoGenerate = true)
     public long id;
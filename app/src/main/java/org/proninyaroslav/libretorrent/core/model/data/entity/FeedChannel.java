@@ -48,6 +48,10 @@ public class FeedChannel implements Parcelable {
     public String filter;
     public boolean isRegexFilter = false;
     public String fetchError;
+    /* Validators of the last fetched content, see FeedFetcher.Validators */
+    public String etag;
+    public String lastModified;
+    public String contentHash;
 
     public FeedChannel(@NonNull String url, String name,
                        long lastUpdate, boolean autoDownload,
@@ -77,6 +81,9 @@ public class FeedChannel implements Parcelable {
         filter = source.readString();
         isRegexFilter = source.readByte() != 0;
         fetchError = source.readString();
+        etag = source.readString();
+        lastModified = source.readString();
+        contentHash = source.readString();
     }
 
     @Override
@@ -94,6 +101,9 @@ public class FeedChannel implements Parcelable {
         dest.writeString(filter);
         dest.writeByte((byte) (isRegexFilter ? 1 : 0));
         dest.writeString(fetchError);
+        dest.writeString(etag);
+        dest.writeString(lastModified);
+        dest.writeString(contentHash);
     }
 
     public static final Creator<FeedChannel> CREATOR =
@@ -131,6 +141,9 @@ public class FeedChannel implements Parcelable {
                 ", filter='" + filter + '\'' +
                 ", isRegexFilter=" + isRegexFilter +
                 ", fetchError='" + fetchError + '\'' +
+                ", etag='" + etag + '\'' +
+                ", lastModified='" + lastModified + '\'' +
+                ", contentHash='" + contentHash + '\'' +
                 '}';
     }
 }
@@ -39,7 +39,10 @@ import java.util.Objects;
  * Representation of the feed article.
  */
 
-@Entity(indices = {@Index(value = "feedId")},
+@Entity(indices = {
+        @Index(value = "feedId"),
+        @Index(value = "title"),
+        @Index(value = "fetchDate")},
         foreignKeys = @ForeignKey(
                 entity = FeedChannel.class,
                 parentColumns = "id",
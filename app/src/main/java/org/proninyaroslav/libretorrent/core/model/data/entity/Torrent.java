@@ -24,6 +24,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
@@ -67,6 +68,19 @@ public class Torrent implements Parcelable {
     public boolean downloadingMetadata = false;
     public int visibility = VISIBILITY_VISIBLE_NOTIFY_FINISHED;
     public boolean firstLastPiecePriority;
+    /*
+     * Last known transfer stats, saved together with the resume data.
+     * Used to show the torrent that isn't loaded into the session.
+     * Total size -1 means that the stats have never been saved
+     */
+    @ColumnInfo(defaultValue = "-1")
+    public long totalBytes = -1;
+    @ColumnInfo(defaultValue = "0")
+    public long receivedBytes;
+    @ColumnInfo(defaultValue = "0")
+    public long uploadedBytes;
+    @ColumnInfo(defaultValue = "0")
+    public int progress;
 
     @Ignore
     public Torrent(@NonNull String id,
@@ -113,6 +127,14 @@ public class Torrent implements Parcelable {
         visibility = source.readInt();
         sequentialDownload = source.readByte() != 0;
         firstLastPiecePriority = source.readByte() != 0;
+        totalBytes = source.readLong();
+        receivedBytes = source.readLong();
+        uploadedBytes = source.readLong();
+        progress = source.readInt();
+    }
+
+    public boolean hasSavedStats() {
+        return totalBytes >= 0;
     }
 
     public boolean isDownloadingMetadata() {
@@ -146,6 +168,10 @@ public class Torrent implements Parcelable {
         dest.writeInt(visibility);
         dest.writeByte((byte) (sequentialDownload ? 1 : 0));
         dest.writeByte((byte) (firstLastPiecePriority ? 1 : 0));
+        dest.writeLong(totalBytes);
+        dest.writeLong(receivedBytes);
+        dest.writeLong(uploadedBytes);
+        dest.writeInt(progress);
     }
 
     public static final Creator<Torrent> CREATOR = new Creator<>() {
@@ -185,6 +211,10 @@ public class Torrent implements Parcelable {
                 ", downloadingMetadata=" + downloadingMetadata +
                 ", visibility=" + visibility +
                 ", firstLastPiecePriority=" + firstLastPiecePriority +
+                ", totalBytes=" + totalBytes +
+                ", receivedBytes=" + receivedBytes +
+                ", uploadedBytes=" + uploadedBytes +
+                ", progress=" + progress +
                 '}';
     }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Embedded;
+import androidx.room.Junction;
+import androidx.room.Relation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Torrent with all its tags, loaded by a single Room query.
+ */
+
+public class TorrentWithTags {
+    @Embedded
+    @NonNull
+    public Torrent torrent;
+
+    @Relation(
+            parentColumn = "id",
+            entityColumn = "id",
+            associateBy = @Junction(
+                    value = TorrentTagInfo.class,
+                    parentColumn = "torrentId",
+                    entityColumn = "tagId"
+            )
+    )
+    @NonNull
+    public List<TagInfo> tags = new ArrayList<>();
+
+    public TorrentWithTags(@NonNull Torrent torrent) {
+        this.torrent = torrent;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/*
+ * Load of the alert thread and the queues it hands off work to.
+ * Dropped alerts is the number of AlertsDroppedAlert received,
+ * i.e. how many times libtorrent's alert queue has overflowed.
+ */
+
+public record AlertThreadStats(
+        long droppedAlerts,
+        @NonNull List<WorkQueueStats> queues,
+        @NonNull List<ListenerCallbackStats> listeners
+) {
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded FIFO queue with a single worker thread. Used to take work
+ * off the alert thread, so that libtorrent doesn't drop alerts while
+ * the listeners are busy. What happens when the queue is full
+ * is defined by the overflow policy.
+ */
+
+class BoundedWorkQueue {
+    private static final String TAG = BoundedWorkQueue.class.getSimpleName();
+
+    enum OverflowPolicy {
+        /*
+         * Wait for a free slot, so that the tasks always run in the order
+         * they were submitted. A task submitted by the worker itself
+         * (re-entrant call) can't wait for its own queue and runs in place
+         */
+        BLOCK,
+        /* Discard the task, for the work that can be lost (e.g. logging) */
+        DROP,
+    }
+
+    private final String name;
+    private final OverflowPolicy policy;
+    private final LinkedBlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor exec;
+    private volatile Thread worker;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    BoundedWorkQueue(@NonNull String name, int capacity, @NonNull OverflowPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.exec = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, (r) -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            worker = t;
+            return t;
+        });
+        /* Tasks are put directly into the queue, so the worker must be started in advance */
+        exec.prestartCoreThread();
+    }
+
+    void submit(@NonNull Runnable task) {
+        submitted.incrementAndGet();
+        Runnable wrapped = () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Error in " + name + " queue: " + Log.getStackTraceString(e));
+            }
+        };
+
+        if (queue.offer(wrapped)) {
+            updateMaxDepth(queue.size());
+            return;
+        }
+
+        if (policy == OverflowPolicy.DROP) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (Thread.currentThread() == worker) {
+            wrapped.run();
+            return;
+        }
+
+        blocked.incrementAndGet();
+        try {
+            queue.put(wrapped);
+            updateMaxDepth(queue.size());
+        } catch (InterruptedException e) {
+            /* Only on shutdown, the task is lost */
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    int depth() {
+        return queue.size();
+    }
+
+    @NonNull
+    WorkQueueStats getStats() {
+        return new WorkQueueStats(
+                name,
+                queue.size(),
+                maxDepth.get(),
+                submitted.get(),
+                dropped.get(),
+                blocked.get()
+        );
+    }
+
+    private void updateMaxDepth(int depth) {
+        int max;
+        do {
+            max = maxDepth.get();
+        } while (depth > max && !maxDepth.compareAndSet(max, depth));
+    }
+}
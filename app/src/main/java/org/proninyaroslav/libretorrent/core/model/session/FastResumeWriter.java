@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
+import org.proninyaroslav.libretorrent.core.storage.TorrentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Write-behind buffer for the fast resume data. Keeps only the latest
+ * resume data of each torrent and writes them to the database
+ * in a single transaction on its own thread, at most FLUSH_INTERVAL
+ * after the first unsaved change.
+ */
+
+class FastResumeWriter {
+    private static final String TAG = FastResumeWriter.class.getSimpleName();
+
+    private static final long FLUSH_INTERVAL = 5000; /* ms */
+    private static final long FORCE_FLUSH_TIMEOUT = 10000; /* ms */
+
+    private final TorrentRepository repo;
+    private final ConcurrentHashMap<String, FastResume> dirty = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor((r) -> {
+        Thread t = new Thread(r, "FastResumeWriter");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicLong putCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    FastResumeWriter(@NonNull TorrentRepository repo) {
+        this.repo = repo;
+    }
+
+    void put(@NonNull FastResume fastResume) {
+        dirty.put(fastResume.torrentId, fastResume);
+        putCount.incrementAndGet();
+
+        if (flushScheduled.compareAndSet(false, true))
+            exec.schedule(this::doFlush, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Returns the resume data that hasn't been written yet, if any
+     */
+
+    @Nullable
+    FastResume get(@NonNull String torrentId) {
+        return dirty.get(torrentId);
+    }
+
+    /*
+     * Must be called before the torrent is deleted from the database,
+     * otherwise its resume data may be written after deletion
+     */
+
+    void remove(@NonNull String torrentId) {
+        dirty.remove(torrentId);
+    }
+
+    /*
+     * Writes all unsaved resume data and waits for completion
+     */
+
+    void flush() {
+        if (dirty.isEmpty())
+            return;
+
+        try {
+            exec.submit(this::doFlush).get(FORCE_FLUSH_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e(TAG, "Unable to flush resume data: " + Log.getStackTraceString(e));
+        }
+    }
+
+    @NonNull
+    FastResumeWriterStats getStats() {
+        return new FastResumeWriterStats(
+                dirty.size(),
+                putCount.get(),
+                flushedCount.get(),
+                flushCount.get(),
+                failedCount.get()
+        );
+    }
+
+    private void doFlush() {
+        flushScheduled.set(false);
+        if (dirty.isEmpty())
+            return;
+
+        List<FastResume> batch = new ArrayList<>(dirty.size());
+        for (FastResume fastResume : dirty.values()) {
+            /* Skip if replaced by newer data, it will be written next time */
+            if (dirty.remove(fastResume.torrentId, fastResume))
+                batch.add(fastResume);
+        }
+        if (batch.isEmpty())
+            return;
+
+        try {
+            repo.addFastResumeList(batch);
+            flushedCount.addAndGet(batch.size());
+
+        } catch (Exception e) {
+            /*
+             * The whole transaction is rolled back, e.g. if one of the
+             * torrents has been deleted. Write the records one by one
+             */
+            Log.w(TAG, "Unable to write resume data batch: " + Log.getStackTraceString(e));
+            for (FastResume fastResume : batch) {
+                try {
+                    repo.addFastResume(fastResume);
+                    flushedCount.incrementAndGet();
+                } catch (Exception err) {
+                    failedCount.incrementAndGet();
+                    Log.e(TAG, "Unable to write resume data of " + fastResume.torrentId + ": " +
+                            Log.getStackTraceString(err));
+                }
+            }
+        }
+        flushCount.incrementAndGet();
+    }
+}
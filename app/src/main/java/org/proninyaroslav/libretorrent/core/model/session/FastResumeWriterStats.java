@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+/*
+ * Counters of the fast resume write-behind buffer.
+ * Coalesced are the resume data replaced by newer data before being written.
+ */
+
+public record FastResumeWriterStats(
+        int dirty,
+        long received,
+        long flushed,
+        long flushes,
+        long failed
+) {
+    public long coalesced() {
+        return Math.max(0, received - flushed - failed - dirty);
+    }
+}
@@ -19,11 +19,17 @@
 
 package org.proninyaroslav.libretorrent.core.model.session;
 
-import androidx.annotation.NonNull;
-
 import org.proninyaroslav.libretorrent.core.exception.IPFilterException;
 
+/*
+ * Receiver of the blocked IP ranges. Addresses are unsigned numbers
+ * in host order: IPv4 as int, IPv6 as high and low 64-bit halves.
+ */
+
 interface IPFilter
 {
-    void addRange(@NonNull String first, @NonNull String last) throws IPFilterException;
+    void addV4Range(int first, int last) throws IPFilterException;
+
+    void addV6Range(long firstHigh, long firstLow,
+                    long lastHigh, long lastLow) throws IPFilterException;
 }
@@ -36,7 +36,20 @@ class IPFilterImpl implements IPFilter
     }
 
     @Override
-    public void addRange(@NonNull String first, @NonNull String last) throws IPFilterException
+    public void addV4Range(int first, int last) throws IPFilterException
+    {
+        addRange(IPFilterRanges.formatV4(first), IPFilterRanges.formatV4(last));
+    }
+
+    @Override
+    public void addV6Range(long firstHigh, long firstLow,
+                           long lastHigh, long lastLow) throws IPFilterException
+    {
+        addRange(IPFilterRanges.formatV6(firstHigh, firstLow),
+                IPFilterRanges.formatV6(lastHigh, lastLow));
+    }
+
+    private void addRange(@NonNull String first, @NonNull String last) throws IPFilterException
     {
         error_code ec = new error_code();
         address firstAddr = address.from_string(first, ec);
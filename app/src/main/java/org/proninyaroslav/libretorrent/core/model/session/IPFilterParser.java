@@ -23,19 +23,30 @@ import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.LineIterator;
+import org.proninyaroslav.libretorrent.core.exception.IPFilterException;
 import org.proninyaroslav.libretorrent.core.exception.UnknownUriException;
 import org.proninyaroslav.libretorrent.core.system.FileDescriptorWrapper;
 import org.proninyaroslav.libretorrent.core.system.FileSystemFacade;
+import org.proninyaroslav.libretorrent.core.utils.Utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /*
  * Parser of blacklist IP addresses in DAT and P2P formats.
+ * Works directly on the bytes of the file without creating strings
+ * per line, the addresses are passed to the filter as numbers.
+ * The compiled result of parseFile() is cached on disk
+ * until the source file is modified.
  */
 
 class IPFilterParser
@@ -43,8 +54,25 @@ class IPFilterParser
     private static final String TAG = IPFilterParser.class.getSimpleName();
 
     private static final int MAX_LOGGED_ERRORS = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final String CACHE_FILE_NAME = "ip_filter.bin";
+
+    private static final int FORMAT_DAT = 0;
+    private static final int FORMAT_P2P = 1;
+
+    private static final int ADDR_INVALID = 0;
+    private static final int ADDR_V4 = 1;
+    private static final int ADDR_V6 = 2;
 
     private final boolean logEnabled;
+    /* High and low halves of the parsed addresses, reused between lines */
+    private final long[] firstAddr = new long[2];
+    private final long[] lastAddr = new long[2];
+    private final int[] groups = new int[8];
+    private int ruleCount;
+    private int parseErrorCount;
+    private long lineNum;
 
     public IPFilterParser()
     {
@@ -56,37 +84,57 @@ class IPFilterParser
         this.logEnabled = logEnabled;
     }
 
-    public int parseFile(@NonNull Uri path, @NonNull FileSystemFacade fs, @NonNull IPFilter filter)
+    @NonNull
+    public IPFilterRanges parseFile(@NonNull Uri path, @NonNull FileSystemFacade fs)
     {
-        int ruleCount = 0;
+        long lastModified;
         try {
             if (!fs.fileExists(path))
-                return ruleCount;
+                return IPFilterRanges.empty();
+            lastModified = fs.lastModified(path);
         } catch (UnknownUriException e) {
             Log.e(TAG, Log.getStackTraceString(e));
-            return ruleCount;
+            return IPFilterRanges.empty();
+        }
+
+        String key = Utils.makeSha1Hash(path.toString());
+        File cacheFile = getCacheFile(fs);
+        /* Unknown modification time, the cache can't be validated */
+        boolean useCache = key != null && cacheFile != null && lastModified > 0;
+        if (useCache) {
+            IPFilterRanges ranges = loadCache(cacheFile, key, lastModified);
+            if (ranges != null) {
+                Log.d(TAG, "Loaded compiled IP filter, rules = " + ranges.ruleCount());
+                return ranges;
+            }
         }
 
         Log.d(TAG, "Start parsing IP filter file");
 
+        IPFilterRanges.Builder builder = new IPFilterRanges.Builder();
+        int count = 0;
         try (FileDescriptorWrapper w = fs.getFD(path);
              FileInputStream is = new FileInputStream(w.open("r"))) {
 
             String pathStr = path.toString().toLowerCase();
             if (pathStr.endsWith(".dat"))
-                ruleCount = parseDAT(is, filter);
+                count = parseDAT(is, builder);
             else if (pathStr.endsWith(".p2p"))
-                ruleCount = parseP2P(is, filter);
+                count = parseP2P(is, builder);
 
         } catch (IOException | UnknownUriException e) {
             Log.e(TAG, Log.getStackTraceString(e));
-            return ruleCount;
+            return IPFilterRanges.empty();
 
         } finally {
-            Log.d(TAG, "Completed parsing IP filter file, is success = " + ruleCount);
+            Log.d(TAG, "Completed parsing IP filter file, is success = " + count);
         }
 
-        return ruleCount;
+        IPFilterRanges ranges = builder.build();
+        if (useCache && ranges.ruleCount() > 0)
+            saveCache(cacheFile, ranges, key, lastModified);
+
+        return ranges;
     }
 
     /*
@@ -95,173 +143,415 @@ class IPFilterParser
 
     public int parseDAT(@NonNull InputStream is, @NonNull IPFilter filter)
     {
-        int ruleCount = 0;
-        long lineNum = 0;
-        int parseErrorCount = 0;
-        LineIterator it;
+        return parse(is, filter, FORMAT_DAT);
+    }
 
+    /*
+     * Parser for PeerGuardian ip filter in p2p format
+     */
+
+    public int parseP2P(@NonNull InputStream is, @NonNull IPFilter filter)
+    {
+        return parse(is, filter, FORMAT_P2P);
+    }
+
+    private int parse(InputStream is, IPFilter filter, int format)
+    {
+        ruleCount = 0;
+        parseErrorCount = 0;
+        lineNum = 0;
+
+        byte[] buf = new byte[BUFFER_SIZE];
+        byte[] line = new byte[MAX_LINE_LENGTH];
+        int lineLen = 0;
+        boolean lineTooLong = false;
         try {
-            it = IOUtils.lineIterator(is, "UTF-8");
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    byte c = buf[i];
+                    if (c == '\n') {
+                        parseLine(line, lineLen, lineTooLong, filter, format);
+                        lineLen = 0;
+                        lineTooLong = false;
+                    } else if (lineLen < line.length) {
+                        line[lineLen++] = c;
+                    } else {
+                        lineTooLong = true;
+                    }
+                }
+            }
+            if (lineLen > 0 || lineTooLong)
+                parseLine(line, lineLen, lineTooLong, filter, format);
 
         } catch (IOException e) {
             Log.e(TAG, Log.getStackTraceString(e));
-
-            return ruleCount;
         }
 
-        while (it.hasNext()) {
-            lineNum++;
+        return ruleCount;
+    }
+
+    private void parseLine(byte[] line, int len, boolean tooLong, IPFilter filter, int format)
+    {
+        lineNum++;
+
+        int start = 0;
+        /* UTF-8 BOM */
+        if (lineNum == 1 && len >= 3 && (line[0] & 0xFF) == 0xEF &&
+                (line[1] & 0xFF) == 0xBB && (line[2] & 0xFF) == 0xBF)
+            start = 3;
+        start = skipSpaces(line, start, len);
+        int end = trimEnd(line, start, len);
+        if (start == end)
+            return;
 
-            String line = it.nextLine();
-            line = (line == null ? null : line.trim());
-            if (line == null || line.isEmpty())
-                continue;
+        /* Ignoring commented lines */
+        if (line[start] == '#' || (line[start] == '/' && start + 1 < end && line[start + 1] == '/'))
+            return;
 
-            /* Ignoring commented lines */
-            if (line.startsWith("#") || line.startsWith("//"))
-                continue;
+        String prefix = (format == FORMAT_DAT ? "DAT" : "P2P");
+        if (tooLong) {
+            errLog(prefix, "line " + lineNum + " is too long");
+            return;
+        }
 
+        int rangeStart, rangeEnd;
+        if (format == FORMAT_DAT) {
             /* Line should be split by commas */
-            String[] parts = line.split(",");
-            /* Check if there is at least one item (ip range) */
-            if (parts.length == 0)
-                continue;
+            int comma = indexOf(line, start, end, ',');
+            rangeStart = start;
+            rangeEnd = (comma < 0 ? end : comma);
 
             /* Check if there is an access value (apparently not mandatory) */
-            if (parts.length > 1) {
-                int accessNum = Integer.parseInt(parts[1].trim());
+            if (comma >= 0) {
+                int accessEnd = indexOf(line, comma + 1, end, ',');
+                int accessNum = parseDecimal(line, comma + 1, (accessEnd < 0 ? end : accessEnd));
+                if (accessNum < 0) {
+                    errLog(prefix, "line " + lineNum + " is malformed. Access value is invalid: " +
+                            toString(line, start, end));
+                    return;
+                }
                 /* Ignoring this rule because access value is too high */
                 if (accessNum > 127)
-                    continue;
+                    return;
             }
 
-            /* IP Range should be split by a dash */
-            String[] ips = parts[0].split("-");
-            if (ips.length != 2) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "DAT", "line " + lineNum + " is malformed. Line was " + line);
-                continue;
+        } else {
+            /* The range follows the last ':', the description may contain it too */
+            int colon = lastIndexOf(line, start, end, ':');
+            if (colon < 0) {
+                errLog(prefix, "line " + lineNum + " is malformed");
+                return;
             }
+            rangeStart = colon + 1;
+            rangeEnd = end;
+        }
 
-            String startAddr = parseIpAddress(ips[0]);
-            if (startAddr == null) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "DAT", "line " + lineNum +
-                        " is malformed. Start IP of the range is invalid: " + ips[0]);
-                continue;
+        /* IP Range should be split by a dash */
+        int dash = indexOf(line, rangeStart, rangeEnd, '-');
+        if (dash < 0) {
+            errLog(prefix, "line " + lineNum + " is malformed. Line was " +
+                    toString(line, start, end));
+            return;
+        }
+
+        int firstType = parseAddress(line, rangeStart, dash, firstAddr);
+        if (firstType == ADDR_INVALID) {
+            errLog(prefix, "line " + lineNum + " is malformed. Start IP of the range is invalid: " +
+                    toString(line, rangeStart, dash));
+            return;
+        }
+
+        int lastType = parseAddress(line, dash + 1, rangeEnd, lastAddr);
+        if (lastType == ADDR_INVALID) {
+            errLog(prefix, "line " + lineNum + " is malformed. End IP of the range is invalid: " +
+                    toString(line, dash + 1, rangeEnd));
+            return;
+        }
+
+        try {
+            if (firstType != lastType)
+                throw new IPFilterException("IP range is malformed. One IP is IPv6 and the other is IPv4!");
+            if (IPFilterRanges.compareV6(firstAddr[0], firstAddr[1], lastAddr[0], lastAddr[1]) > 0)
+                throw new IPFilterException("First IP in range is greater than the last");
+
+            if (firstType == ADDR_V4)
+                filter.addV4Range((int) firstAddr[1], (int) lastAddr[1]);
+            else
+                filter.addV6Range(firstAddr[0], firstAddr[1], lastAddr[0], lastAddr[1]);
+            ruleCount++;
+
+        } catch (Exception e) {
+            errLog(prefix, "line " + lineNum + " is malformed. Line was " +
+                    toString(line, start, end) + ": " + e.getMessage());
+        }
+    }
+
+    private int parseAddress(byte[] b, int start, int end, long[] out)
+    {
+        start = skipSpaces(b, start, end);
+        end = trimEnd(b, start, end);
+        if (start == end)
+            return ADDR_INVALID;
+
+        if (indexOf(b, start, end, ':') >= 0)
+            return (parseV6(b, start, end, out) ? ADDR_V6 : ADDR_INVALID);
+
+        long addr = parseV4(b, start, end);
+        if (addr < 0)
+            return ADDR_INVALID;
+        out[0] = 0;
+        out[1] = addr;
+
+        return ADDR_V4;
+    }
+
+    /*
+     * Returns the unsigned address or -1 if it's invalid.
+     * Octets with leading zeros are treated as decimal
+     */
+
+    private static long parseV4(byte[] b, int start, int end)
+    {
+        long addr = 0;
+        int i = start;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= end || b[i] != '.')
+                    return -1;
+                i++;
             }
 
-            String endAddr = parseIpAddress(ips[1]);
-            if (endAddr == null) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "DAT", "line " + lineNum +
-                        " is malformed. End IP of the range is invalid: " + ips[1]);
-                continue;
+            int digits = 0;
+            int value = 0;
+            while (i < end && digits < 3 && isDigit(b[i])) {
+                value = value * 10 + (b[i] - '0');
+                i++;
+                digits++;
             }
+            if (digits == 0 || value > 255)
+                return -1;
+            addr = addr << 8 | value;
+        }
+
+        return (i == end ? addr : -1);
+    }
+
+    private boolean parseV6(byte[] b, int start, int end, long[] out)
+    {
+        int n = 0;
+        /* Position of the '::' in groups */
+        int gap = -1;
+        int i = start;
+
+        if (b[i] == ':') {
+            if (i + 1 >= end || b[i + 1] != ':')
+                return false;
+            gap = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (n == groups.length)
+                return false;
 
-            try {
-                filter.addRange(startAddr, endAddr);
-                ruleCount++;
+            int j = i;
+            int value = 0;
+            while (j < end && j - i < 4 && hexValue(b[j]) >= 0) {
+                value = value << 4 | hexValue(b[j]);
+                j++;
+            }
+            if (j == i)
+                return false;
+
+            /* Embedded IPv4 address in the last two groups */
+            if (j < end && b[j] == '.') {
+                if (n > groups.length - 2)
+                    return false;
+                long v4 = parseV4(b, i, end);
+                if (v4 < 0)
+                    return false;
+                groups[n++] = (int) (v4 >>> 16);
+                groups[n++] = (int) (v4 & 0xFFFF);
+                i = end;
+                break;
+            }
 
-            } catch (Exception e) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "DAT", "line " + lineNum +
-                        " is malformed. Line was " + line + ": " + e.getMessage());
+            groups[n++] = value;
+            i = j;
+            if (i == end)
+                break;
+            if (b[i] != ':')
+                return false;
+            i++;
+
+            if (i < end && b[i] == ':') {
+                if (gap >= 0)
+                    return false;
+                gap = n;
+                i++;
+            } else if (i == end) {
+                /* Trailing single colon */
+                return false;
             }
         }
 
-        return ruleCount;
+        if (gap < 0 ? n != groups.length : n == groups.length)
+            return false;
+
+        long high = 0;
+        long low = 0;
+        int zeros = groups.length - n;
+        int g = 0;
+        for (int k = 0; k < groups.length; k++) {
+            int value;
+            if (gap >= 0 && k >= gap && k < gap + zeros)
+                value = 0;
+            else
+                value = groups[g++];
+
+            if (k < 4)
+                high = high << 16 | value;
+            else
+                low = low << 16 | value;
+        }
+        out[0] = high;
+        out[1] = low;
+
+        return true;
     }
 
     /*
-     * Parser for PeerGuardian ip filter in p2p format
+     * Returns -1 if the value isn't a decimal number
      */
 
-    public int parseP2P(@NonNull InputStream is, @NonNull IPFilter filter)
+    private static int parseDecimal(byte[] b, int start, int end)
     {
-        int ruleCount = 0;
-        long lineNum = 0;
-        int parseErrorCount = 0;
-        LineIterator it;
-
-        try {
-            it = IOUtils.lineIterator(is, "UTF-8");
+        start = skipSpaces(b, start, end);
+        end = trimEnd(b, start, end);
+        if (start == end)
+            return -1;
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            if (!isDigit(b[i]))
+                return -1;
+            /* Large values only need to stay large */
+            if (value < 100000)
+                value = value * 10 + (b[i] - '0');
+        }
 
-        } catch (IOException e) {
-            Log.e(TAG, Log.getStackTraceString(e));
+        return value;
+    }
 
-            return ruleCount;
-        }
+    private static boolean isDigit(byte c)
+    {
+        return c >= '0' && c <= '9';
+    }
 
-        while (it.hasNext()) {
-            lineNum++;
+    private static int hexValue(byte c)
+    {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        else if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        else if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        else
+            return -1;
+    }
 
-            String line = it.nextLine();
-            line = (line == null ? null : line.trim());
-            if (line == null || line.isEmpty())
-                continue;
+    private static boolean isSpace(byte c)
+    {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == 0x0B;
+    }
 
-            /* Ignoring commented lines */
-            if (line.startsWith("#") || line.startsWith("//"))
-                continue;
+    private static int skipSpaces(byte[] b, int start, int end)
+    {
+        while (start < end && isSpace(b[start]))
+            start++;
 
-            /* Line should be split by ':' */
-            String[] parts = line.split(":");
-            if (parts.length < 2) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "P2P", "line " + lineNum + " is malformed");
-                continue;
-            }
+        return start;
+    }
 
-            /* IP Range should be split by a dash */
-            String[] ips = parts[1].split("-");
-            if (ips.length != 2) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "P2P", "line " + lineNum + " is malformed. Line was" + line);
-                continue;
-            }
+    private static int trimEnd(byte[] b, int start, int end)
+    {
+        while (end > start && isSpace(b[end - 1]))
+            end--;
 
-            String startAddr = parseIpAddress(ips[0]);
-            if (startAddr == null) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "P2P", "line " + lineNum +
-                        " is malformed. Start IP of the range is invalid: " + ips[0]);
-                continue;
-            }
+        return end;
+    }
 
-            String endAddr = parseIpAddress(ips[1]);
-            if (endAddr == null) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "P2P", "line " + lineNum +
-                        " is malformed. End IP of the range is invalid: " + ips[1]);
-                continue;
-            }
+    private static int indexOf(byte[] b, int start, int end, char c)
+    {
+        for (int i = start; i < end; i++) {
+            if (b[i] == c)
+                return i;
+        }
 
-            try {
-                filter.addRange(startAddr, endAddr);
-                ruleCount++;
+        return -1;
+    }
 
-            } catch (Exception e) {
-                parseErrorCount++;
-                errLog(parseErrorCount, "P2P", "line " + lineNum +
-                        " is malformed. Line was " + line + ": " + e.getMessage());
-            }
+    private static int lastIndexOf(byte[] b, int start, int end, char c)
+    {
+        for (int i = end - 1; i >= start; i--) {
+            if (b[i] == c)
+                return i;
         }
 
-        return ruleCount;
+        return -1;
+    }
+
+    private static String toString(byte[] b, int start, int end)
+    {
+        return new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private static File getCacheFile(FileSystemFacade fs)
+    {
+        File dir = fs.getCacheDir();
+
+        return (dir == null ? null : new File(dir, CACHE_FILE_NAME));
     }
 
-    private String parseIpAddress(String ip)
+    @Nullable
+    private static IPFilterRanges loadCache(File cacheFile, String key, long lastModified)
     {
-        if (ip == null || ip.isEmpty()) {
+        if (!cacheFile.exists())
             return null;
-        } else {
-            return ip.trim();
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(cacheFile))) {
+            return IPFilterRanges.read(is, key, lastModified);
+
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read compiled IP filter: " + Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
+    private static void saveCache(File cacheFile, IPFilterRanges ranges,
+                                  String key, long lastModified)
+    {
+        File tmpFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+            ranges.write(os, key, lastModified);
+
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to save compiled IP filter: " + Log.getStackTraceString(e));
+            tmpFile.delete();
+            return;
+        }
+
+        if (!tmpFile.renameTo(cacheFile)) {
+            Log.w(TAG, "Unable to save compiled IP filter");
+            tmpFile.delete();
         }
     }
 
-    private void errLog(int parseErrorCount, String prefix, String msg)
+    private void errLog(String prefix, String msg)
     {
+        parseErrorCount++;
         if (!logEnabled || parseErrorCount > MAX_LOGGED_ERRORS)
             return;
 
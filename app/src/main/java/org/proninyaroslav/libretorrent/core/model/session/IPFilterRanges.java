@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.exception.IPFilterException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/*
+ * Compiled IP filter: sorted ranges without overlaps, packed into primitive arrays.
+ * IPv4 addresses are stored as unsigned ints in longs, IPv6 addresses
+ * as pairs of high and low 64-bit halves. Can be saved to disk,
+ * so that the source blocklist doesn't need to be parsed again.
+ */
+
+class IPFilterRanges {
+    private static final int MAGIC = 0x4C544946;
+    private static final int VERSION = 1;
+    private static final long V4_MASK = 0xFFFFFFFFL;
+
+    /* First and last address of each range, interleaved */
+    private final long[] v4;
+    /* First high, first low, last high and last low halves of each range */
+    private final long[] v6;
+    /* Number of the accepted rules in the source file */
+    private final int ruleCount;
+
+    private IPFilterRanges(long[] v4, long[] v6, int ruleCount) {
+        this.v4 = v4;
+        this.v6 = v6;
+        this.ruleCount = ruleCount;
+    }
+
+    static IPFilterRanges empty() {
+        return new IPFilterRanges(new long[0], new long[0], 0);
+    }
+
+    int ruleCount() {
+        return ruleCount;
+    }
+
+    int v4Size() {
+        return v4.length / 2;
+    }
+
+    int v6Size() {
+        return v6.length / 4;
+    }
+
+    void applyTo(@NonNull IPFilter filter) throws IPFilterException {
+        for (int i = 0; i < v4.length; i += 2)
+            filter.addV4Range((int) v4[i], (int) v4[i + 1]);
+        for (int i = 0; i < v6.length; i += 4)
+            filter.addV6Range(v6[i], v6[i + 1], v6[i + 2], v6[i + 3]);
+    }
+
+    /*
+     * The key identifies the source file (e.g. path hash), the version
+     * is its modification time. Both must match when reading
+     */
+
+    void write(@NonNull OutputStream os, @NonNull String key, long version) throws IOException {
+        var out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        out.writeLong(version);
+        out.writeInt(ruleCount);
+        out.writeInt(v4.length);
+        for (long addr : v4)
+            out.writeInt((int) addr);
+        out.writeInt(v6.length);
+        for (long addr : v6)
+            out.writeLong(addr);
+        out.flush();
+    }
+
+    /*
+     * Returns null if the data doesn't belong to the given source
+     * or was written by another format version
+     */
+
+    @Nullable
+    static IPFilterRanges read(@NonNull InputStream is, @NonNull String key, long version)
+            throws IOException {
+        var in = new DataInputStream(is);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            return null;
+        if (!key.equals(in.readUTF()) || in.readLong() != version)
+            return null;
+
+        int ruleCount = in.readInt();
+        int v4Length = in.readInt();
+        if (v4Length < 0 || v4Length % 2 != 0)
+            throw new IOException("Invalid IPv4 ranges length: " + v4Length);
+        var v4 = new long[v4Length];
+        for (int i = 0; i < v4Length; i++)
+            v4[i] = in.readInt() & V4_MASK;
+
+        int v6Length = in.readInt();
+        if (v6Length < 0 || v6Length % 4 != 0)
+            throw new IOException("Invalid IPv6 ranges length: " + v6Length);
+        var v6 = new long[v6Length];
+        for (int i = 0; i < v6Length; i++)
+            v6[i] = in.readLong();
+
+        return new IPFilterRanges(v4, v6, ruleCount);
+    }
+
+    @NonNull
+    static String formatV4(int addr) {
+        return ((addr >>> 24) & 0xFF) + "." + ((addr >>> 16) & 0xFF) + "." +
+                ((addr >>> 8) & 0xFF) + "." + (addr & 0xFF);
+    }
+
+    @NonNull
+    static String formatV6(long high, long low) {
+        var sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            long half = (i < 4 ? high : low);
+            int group = (int) (half >>> (48 - (i % 4) * 16)) & 0xFFFF;
+            if (i > 0)
+                sb.append(':');
+            sb.append(Integer.toHexString(group));
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * Collects the ranges in arbitrary order, sorts and merges them on build
+     */
+
+    static class Builder implements IPFilter {
+        /*
+         * First and last address packed into one long, with the sign bit flipped,
+         * so that the signed sort gives the unsigned order
+         */
+        private long[] v4 = new long[1024];
+        private int v4Size;
+        private long[] v6 = new long[64];
+        private int v6Size;
+        private int ruleCount;
+
+        @Override
+        public void addV4Range(int first, int last) throws IPFilterException {
+            if (Integer.compareUnsigned(first, last) > 0)
+                throw new IPFilterException("First IP in range is greater than the last");
+
+            if (v4Size == v4.length)
+                v4 = Arrays.copyOf(v4, v4.length * 2);
+            v4[v4Size++] = ((long) first << 32 | (last & V4_MASK)) ^ Long.MIN_VALUE;
+            ruleCount++;
+        }
+
+        @Override
+        public void addV6Range(long firstHigh, long firstLow,
+                               long lastHigh, long lastLow) throws IPFilterException {
+            if (compareV6(firstHigh, firstLow, lastHigh, lastLow) > 0)
+                throw new IPFilterException("First IP in range is greater than the last");
+
+            if (v6Size + 4 > v6.length)
+                v6 = Arrays.copyOf(v6, v6.length * 2);
+            v6[v6Size++] = firstHigh;
+            v6[v6Size++] = firstLow;
+            v6[v6Size++] = lastHigh;
+            v6[v6Size++] = lastLow;
+            ruleCount++;
+        }
+
+        @NonNull
+        IPFilterRanges build() {
+            return new IPFilterRanges(buildV4(), buildV6(), ruleCount);
+        }
+
+        private long[] buildV4() {
+            Arrays.sort(v4, 0, v4Size);
+
+            var ranges = new long[v4Size * 2];
+            int n = 0;
+            for (int i = 0; i < v4Size; i++) {
+                long packed = v4[i] ^ Long.MIN_VALUE;
+                long first = packed >>> 32;
+                long last = packed & V4_MASK;
+                /* Overlapping or adjacent */
+                if (n > 0 && first <= ranges[n - 1] + 1) {
+                    ranges[n - 1] = Math.max(ranges[n - 1], last);
+                } else {
+                    ranges[n++] = first;
+                    ranges[n++] = last;
+                }
+            }
+
+            return Arrays.copyOf(ranges, n);
+        }
+
+        private long[] buildV6() {
+            int count = v6Size / 4;
+            /* IPv6 lists are usually short, boxing is acceptable here */
+            var order = new Integer[count];
+            for (int i = 0; i < count; i++)
+                order[i] = i * 4;
+            Arrays.sort(order, (a, b) -> compareV6(v6[a], v6[a + 1], v6[b], v6[b + 1]));
+
+            var ranges = new long[v6Size];
+            int n = 0;
+            for (int i : order) {
+                if (n > 0 && isV6Mergeable(ranges[n - 2], ranges[n - 1], v6[i], v6[i + 1])) {
+                    if (compareV6(v6[i + 2], v6[i + 3], ranges[n - 2], ranges[n - 1]) > 0) {
+                        ranges[n - 2] = v6[i + 2];
+                        ranges[n - 1] = v6[i + 3];
+                    }
+                } else {
+                    System.arraycopy(v6, i, ranges, n, 4);
+                    n += 4;
+                }
+            }
+
+            return Arrays.copyOf(ranges, n);
+        }
+
+        /*
+         * Checks if the range starting at the given address overlaps
+         * or adjoins the range ending at the last address
+         */
+
+        private static boolean isV6Mergeable(long lastHigh, long lastLow,
+                                             long firstHigh, long firstLow) {
+            if (compareV6(firstHigh, firstLow, lastHigh, lastLow) <= 0)
+                return true;
+            if (lastLow == -1L)
+                return lastHigh != -1L && firstHigh == lastHigh + 1 && firstLow == 0;
+
+            return firstHigh == lastHigh && firstLow == lastLow + 1;
+        }
+    }
+
+    static int compareV6(long aHigh, long aLow, long bHigh, long bLow) {
+        int res = Long.compareUnsigned(aHigh, bHigh);
+
+        return (res != 0 ? res : Long.compareUnsigned(aLow, bLow));
+    }
+}
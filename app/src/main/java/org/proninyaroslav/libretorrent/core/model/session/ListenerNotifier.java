@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.model.TorrentEngineListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Calls TorrentEngineListener callbacks, either in the listener queue
+ * thread (post) or in the current thread (call), and measures
+ * the callback time of each listener. Arguments of the posted calls
+ * must not refer to the alert, since it's no longer valid
+ * after the alert thread moves on.
+ */
+
+class ListenerNotifier {
+    private static final String TAG = ListenerNotifier.class.getSimpleName();
+
+    interface Call {
+        void apply(TorrentEngineListener listener);
+    }
+
+    private static final class Counter {
+        long count;
+        long totalTime;
+        long maxTime;
+    }
+
+    private final Queue<TorrentEngineListener> listeners;
+    private final BoundedWorkQueue queue;
+    private final ConcurrentHashMap<String, Counter> callbackTime = new ConcurrentHashMap<>();
+
+    ListenerNotifier(@NonNull Queue<TorrentEngineListener> listeners,
+                     @NonNull BoundedWorkQueue queue) {
+        this.listeners = listeners;
+        this.queue = queue;
+    }
+
+    void post(@NonNull Call call) {
+        queue.submit(() -> call(call));
+    }
+
+    void call(@NonNull Call call) {
+        for (TorrentEngineListener listener : listeners) {
+            if (listener == null)
+                continue;
+
+            long startTime = System.nanoTime();
+            try {
+                call.apply(listener);
+            } catch (Exception e) {
+                Log.e(TAG, "Error in listener " + listener + ": " + Log.getStackTraceString(e));
+            }
+            record(listener, System.nanoTime() - startTime);
+        }
+    }
+
+    @NonNull
+    List<ListenerCallbackStats> getStats() {
+        List<ListenerCallbackStats> stats = new ArrayList<>(callbackTime.size());
+        for (Map.Entry<String, Counter> e : callbackTime.entrySet()) {
+            Counter c = e.getValue();
+            synchronized (c) {
+                stats.add(new ListenerCallbackStats(e.getKey(), c.count, c.totalTime, c.maxTime));
+            }
+        }
+
+        return stats;
+    }
+
+    private void record(TorrentEngineListener listener, long time) {
+        Counter c = callbackTime.computeIfAbsent(listener.getClass().getName(), (k) -> new Counter());
+        synchronized (c) {
+            c.count++;
+            c.totalTime += time;
+            c.maxTime = Math.max(c.maxTime, time);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
+
+import java.util.function.IntPredicate;
+
+/*
+ * Java-side copy of the downloaded pieces bitfield. libtorrent4j doesn't
+ * expose the words of the native bitfield, so reading it costs a JNI call
+ * per piece; instead the copy is loaded once and then kept up to date by
+ * the piece finished deltas. Snapshots are copied in bulk.
+ */
+
+class OwnPiecesTracker {
+    private int size;
+    private long[] words = new long[0];
+    private int count;
+    private boolean valid;
+
+    /*
+     * Must be reloaded after the recheck, metadata change
+     * or if some of the piece finished deltas were missed
+     */
+
+    synchronized boolean needsReload(int numPieces, int numHavePieces) {
+        return !valid || size != numPieces || count < numHavePieces;
+    }
+
+    synchronized void reset(int numPieces, @NonNull IntPredicate have) {
+        size = numPieces;
+        words = new long[PieceMap.numWords(numPieces)];
+        count = 0;
+        for (int i = 0; i < numPieces; i++) {
+            if (have.test(i)) {
+                words[i >>> 6] |= (1L << i);
+                ++count;
+            }
+        }
+        valid = true;
+    }
+
+    synchronized void invalidate() {
+        valid = false;
+    }
+
+    synchronized void pieceFinished(int piece) {
+        if (piece < 0 || piece >= size) {
+            return;
+        }
+        long mask = 1L << piece;
+        if ((words[piece >>> 6] & mask) == 0) {
+            words[piece >>> 6] |= mask;
+            ++count;
+        }
+    }
+
+    @NonNull
+    synchronized PieceMap snapshot() {
+        return new PieceMap(size, words.clone());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
+
+import java.util.Arrays;
+
+/*
+ * Keeps the availability of every piece (number of connected peers that
+ * have it, plus ourselves) in a primitive array. Own pieces come from
+ * OwnPiecesTracker, the peers part comes from libtorrent
+ * piece_availability() in one call instead of reading each peer bitfield.
+ * Only if there is no piece picker (e.g. seeding) the caller falls back
+ * to counting the peer bitfields.
+ * Files availability is derived from a prefix sum of the available pieces,
+ * so it costs O(files) regardless of the number of pieces and peers.
+ */
+
+class PieceAvailabilityTracker {
+    private int[] avail = new int[0];
+    /* availablePrefix[i] is the number of pieces with availability > 0 in [0, i) */
+    private int[] availablePrefix = new int[1];
+    /* Inclusive ranges, -1 if the file has no pieces */
+    private int[] fileFirstPiece = new int[0];
+    private int[] fileLastPiece = new int[0];
+
+    synchronized void setFilePieces(@NonNull int[] firstPiece, @NonNull int[] lastPiece) {
+        fileFirstPiece = firstPiece;
+        fileLastPiece = lastPiece;
+    }
+
+    synchronized boolean hasFilePieces() {
+        return fileFirstPiece.length > 0;
+    }
+
+    /*
+     * peersAvail is the number of connected peers that have each piece,
+     * missing pieces are counted as not available from the peers
+     */
+
+    @NonNull
+    synchronized PiecesAvailability update(
+            @NonNull int[] peersAvail,
+            @NonNull PieceMap own,
+            boolean seeding
+    ) {
+        int numPieces = own.size();
+        if (avail.length != numPieces) {
+            avail = new int[numPieces];
+            availablePrefix = new int[numPieces + 1];
+        }
+
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < numPieces; i++) {
+            int a = (i < peersAvail.length ? peersAvail[i] : 0)
+                    + (seeding || own.get(i) ? 1 : 0);
+            avail[i] = a;
+            availablePrefix[i + 1] = availablePrefix[i] + (a > 0 ? 1 : 0);
+            if (a < min) {
+                min = a;
+            }
+        }
+
+        return new PiecesAvailability(
+                getAvailability(min),
+                getFilesAvailability()
+        );
+    }
+
+    /*
+     * The number of distributed copies: the minimum availability
+     * plus the fraction of pieces that are available above it
+     */
+
+    private double getAvailability(int min) {
+        if (avail.length == 0) {
+            return 0;
+        }
+
+        int total = 0;
+        for (int a : avail) {
+            if (a > min) {
+                ++total;
+            }
+        }
+
+        return (total / (double) avail.length) + min;
+    }
+
+    private double[] getFilesAvailability() {
+        double[] filesAvail = new double[fileFirstPiece.length];
+        if (avail.length == 0) {
+            Arrays.fill(filesAvail, -1);
+            return filesAvail;
+        }
+
+        for (int i = 0; i < filesAvail.length; i++) {
+            int first = fileFirstPiece[i];
+            int last = fileLastPiece[i];
+            if (first < 0 || last < first || last >= avail.length) {
+                filesAvail[i] = -1;
+                continue;
+            }
+            int availablePieces = availablePrefix[last + 1] - availablePrefix[first];
+            filesAvail[i] = (double) availablePieces / (last - first + 1);
+        }
+
+        return filesAvail;
+    }
+}
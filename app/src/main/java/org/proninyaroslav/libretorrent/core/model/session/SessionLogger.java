@@ -19,6 +19,8 @@
 
 package org.proninyaroslav.libretorrent.core.model.session;
 
+import androidx.annotation.NonNull;
+
 import org.libtorrent4j.alerts.Alert;
 import org.libtorrent4j.alerts.DhtLogAlert;
 import org.libtorrent4j.alerts.LogAlert;
@@ -108,6 +110,22 @@ public class SessionLogger extends Logger {
     }
 
     void send(Alert<?> alert) {
+        LogEntry entry = makeEntry(alert);
+        if (entry != null) {
+            send(entry);
+        }
+    }
+
+    void sendEntry(@NonNull LogEntry entry) {
+        send(entry);
+    }
+
+    /*
+     * Must be called in the alert thread, since the alert
+     * is no longer valid after the thread moves on
+     */
+
+    LogEntry makeEntry(Alert<?> alert) {
         long time = System.currentTimeMillis();
         String msg;
         LogEntry entry = null;
@@ -151,9 +169,7 @@ public class SessionLogger extends Logger {
                     time);
         }
 
-        if (entry != null) {
-            send(entry);
-        }
+        return entry;
     }
 
     void applyFilterParams(SessionFilterParams params) {
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Sliding window of prioritized pieces for one stream reader.
+ * The window starts at the piece being read and covers BUFFER_TIME
+ * of playback, estimated from the rate at which the reader advances.
+ * Each piece gets a deadline proportional to its distance from the reader,
+ * so that libtorrent requests them in playback order instead of all at once.
+ * Pieces left behind the window (or the whole window after a seek)
+ * are returned for reset.
+ */
+
+class StreamingScheduler {
+    static final int MIN_WINDOW = 5; /* pieces */
+    static final int MAX_WINDOW = 64; /* pieces */
+    static final long BUFFER_TIME = 30000; /* ms */
+    static final int MIN_PIECE_DEADLINE = 100; /* ms */
+    static final int DEFAULT_PIECE_DEADLINE = 1000; /* ms */
+    static final int MAX_PIECE_DEADLINE = 10000; /* ms */
+    /* Weight of the new sample in the bitrate moving average */
+    private static final double BITRATE_SMOOTHING = 0.3;
+
+    record Deadline(int piece, int deadline) {}
+
+    record Plan(@NonNull List<Deadline> deadlines, @NonNull List<Integer> reset) {
+        static final Plan EMPTY = new Plan(Collections.emptyList(), Collections.emptyList());
+
+        boolean isEmpty() {
+            return deadlines.isEmpty() && reset.isEmpty();
+        }
+    }
+
+    private final int firstPiece;
+    private final int lastPiece;
+    private final int pieceLength;
+    private int windowStart = -1;
+    private int windowEnd = -1;
+    /* Bytes per second, zero if not measured yet */
+    private double bitrate;
+    private int samplePiece = -1;
+    private long sampleTime;
+
+    StreamingScheduler(int firstPiece, int lastPiece, int pieceLength) {
+        this.firstPiece = firstPiece;
+        this.lastPiece = lastPiece;
+        this.pieceLength = pieceLength;
+    }
+
+    /*
+     * Move the window to the reader position. Returns an empty plan if
+     * the reader is still within the same piece, so that the frequent
+     * small reads don't cost any native calls.
+     */
+
+    @NonNull
+    synchronized Plan update(int startPiece, int numPieces, long now) {
+        if (startPiece < firstPiece || startPiece > lastPiece || numPieces <= 0)
+            return Plan.EMPTY;
+
+        boolean seek = windowStart >= 0 &&
+                (startPiece < windowStart || startPiece > windowEnd);
+        if (seek || samplePiece < 0) {
+            samplePiece = startPiece;
+            sampleTime = now;
+        } else if (startPiece > samplePiece) {
+            measure(startPiece, now);
+        }
+
+        int newEnd = Math.min(lastPiece,
+                startPiece + Math.max(numPieces, windowSize()) - 1);
+        if (startPiece == windowStart && newEnd == windowEnd)
+            return Plan.EMPTY;
+
+        var reset = new ArrayList<Integer>();
+        if (windowStart >= 0) {
+            for (int p = windowStart; p <= windowEnd; p++) {
+                if (p < startPiece || p > newEnd)
+                    reset.add(p);
+            }
+        }
+
+        long pieceTime = pieceTime();
+        var deadlines = new ArrayList<Deadline>(newEnd - startPiece + 1);
+        for (int p = startPiece; p <= newEnd; p++) {
+            int offset = p - startPiece;
+            /* The requested pieces are needed right now */
+            long deadline = (offset < numPieces ?
+                    MIN_PIECE_DEADLINE :
+                    Math.max(MIN_PIECE_DEADLINE, (offset - numPieces + 1) * pieceTime));
+            deadlines.add(new Deadline(p, (int) Math.min(Integer.MAX_VALUE, deadline)));
+        }
+
+        windowStart = startPiece;
+        windowEnd = newEnd;
+
+        return new Plan(deadlines, reset);
+    }
+
+    /*
+     * Drop the window, e.g. on seek or when the reader is closed.
+     * Returns the pieces that need to be reset. The bitrate estimate is kept
+     * for the next window of the same reader (see seekInterestedPieces()),
+     * since it's a property of the file rather than the reader position
+     */
+
+    @NonNull
+    synchronized List<Integer> cancel() {
+        if (windowStart < 0)
+            return Collections.emptyList();
+
+        var reset = new ArrayList<Integer>(windowEnd - windowStart + 1);
+        for (int p = windowStart; p <= windowEnd; p++)
+            reset.add(p);
+        windowStart = windowEnd = -1;
+        samplePiece = -1;
+
+        return reset;
+    }
+
+    synchronized boolean contains(int piece) {
+        return windowStart >= 0 && piece >= windowStart && piece <= windowEnd;
+    }
+
+    synchronized long getBitrate() {
+        return (long) bitrate;
+    }
+
+    synchronized int windowSize() {
+        if (bitrate <= 0)
+            return MIN_WINDOW;
+
+        long size = (long) Math.ceil(bitrate * BUFFER_TIME / 1000 / pieceLength);
+
+        return (int) Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, size));
+    }
+
+    /*
+     * Expected time to play one piece
+     */
+
+    private long pieceTime() {
+        if (bitrate <= 0)
+            return DEFAULT_PIECE_DEADLINE;
+
+        long time = (long) (pieceLength * 1000 / bitrate);
+
+        return Math.max(MIN_PIECE_DEADLINE, Math.min(MAX_PIECE_DEADLINE, time));
+    }
+
+    private void measure(int piece, long now) {
+        long elapsed = now - sampleTime;
+        if (elapsed <= 0)
+            return;
+
+        double sample = (double) (piece - samplePiece) * pieceLength * 1000 / elapsed;
+        bitrate = (bitrate <= 0 ?
+                sample :
+                bitrate * (1 - BITRATE_SMOOTHING) + sample * BITRATE_SMOOTHING);
+        samplePiece = piece;
+        sampleTime = now;
+    }
+}
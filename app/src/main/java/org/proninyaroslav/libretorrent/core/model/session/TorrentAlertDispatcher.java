@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.libtorrent4j.AlertListener;
+import org.libtorrent4j.alerts.Alert;
+import org.libtorrent4j.alerts.AlertType;
+import org.libtorrent4j.alerts.TorrentAlert;
+import org.libtorrent4j.alerts.TorrentRemovedAlert;
+import org.libtorrent4j.swig.sha1_hash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Single session listener for the torrent alerts. Routes each alert
+ * to the owning torrent by its info hash instead of letting every
+ * torrent receive and filter all alerts.
+ */
+
+class TorrentAlertDispatcher implements AlertListener {
+    private static final String TAG = TorrentAlertDispatcher.class.getSimpleName();
+
+    static final int[] TORRENT_ALERT_TYPES = new int[]{
+            AlertType.STATE_CHANGED.swig(),
+            AlertType.TORRENT_FINISHED.swig(),
+            AlertType.TORRENT_REMOVED.swig(),
+            AlertType.TORRENT_PAUSED.swig(),
+            AlertType.TORRENT_RESUMED.swig(),
+            AlertType.SAVE_RESUME_DATA.swig(),
+            AlertType.STORAGE_MOVED.swig(),
+            AlertType.STORAGE_MOVED_FAILED.swig(),
+            AlertType.METADATA_RECEIVED.swig(),
+            AlertType.PIECE_FINISHED.swig(),
+            AlertType.READ_PIECE.swig(),
+            AlertType.TORRENT_ERROR.swig(),
+            AlertType.METADATA_FAILED.swig(),
+            AlertType.FILE_ERROR.swig(),
+            AlertType.FASTRESUME_REJECTED.swig(),
+            AlertType.TORRENT_CHECKED.swig(),
+    };
+
+    interface Handler {
+        void onAlert(@NonNull Alert<?> alert);
+    }
+
+    private static final AlertType[] ALERT_TYPES = AlertType.values();
+
+    private final ConcurrentHashMap<String, Handler> handlers = new ConcurrentHashMap<>();
+    /* Indexed by AlertType ordinal */
+    private final AtomicLongArray dispatchCount = new AtomicLongArray(ALERT_TYPES.length);
+    private final AtomicLongArray dispatchTotalTime = new AtomicLongArray(ALERT_TYPES.length);
+    private final AtomicLongArray dispatchMaxTime = new AtomicLongArray(ALERT_TYPES.length);
+
+    @Override
+    public int[] types() {
+        return TORRENT_ALERT_TYPES;
+    }
+
+    @Override
+    public void alert(Alert<?> alert) {
+        if (!(alert instanceof TorrentAlert<?>))
+            return;
+
+        long startTime = System.nanoTime();
+
+        String id = getInfoHash((TorrentAlert<?>) alert);
+        Handler handler = (id == null ? null : handlers.get(id));
+        if (handler != null) {
+            try {
+                handler.onAlert(alert);
+            } catch (Exception e) {
+                Log.e(TAG, "Error handling alert " + alert.type() + " of " + id + ": "
+                        + Log.getStackTraceString(e));
+            }
+        }
+
+        recordLatency(alert.type(), System.nanoTime() - startTime);
+    }
+
+    void register(@NonNull String id, @NonNull Handler handler) {
+        handlers.put(id, handler);
+    }
+
+    void unregister(@NonNull String id, @NonNull Handler handler) {
+        handlers.remove(id, handler);
+    }
+
+    void clear() {
+        handlers.clear();
+    }
+
+    /*
+     * After removal the torrent handle is no longer valid,
+     * so the info hash is taken from the alert itself
+     */
+
+    private String getInfoHash(TorrentAlert<?> alert) {
+        try {
+            sha1_hash hash;
+            if (alert instanceof TorrentRemovedAlert)
+                hash = ((TorrentRemovedAlert) alert).swig().getInfo_hashes().get_best();
+            else
+                hash = alert.swig().getHandle().info_hash();
+
+            return (hash == null ? null : hash.to_hex());
+
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to get info hash of alert " + alert.type() + ": "
+                    + Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
+    private void recordLatency(AlertType type, long time) {
+        int i = type.ordinal();
+        dispatchCount.incrementAndGet(i);
+        dispatchTotalTime.addAndGet(i, time);
+
+        long max;
+        do {
+            max = dispatchMaxTime.get(i);
+        } while (time > max && !dispatchMaxTime.compareAndSet(i, max, time));
+    }
+
+    @NonNull
+    List<AlertDispatchStats> getDispatchStats() {
+        List<AlertDispatchStats> stats = new ArrayList<>();
+        for (AlertType type : ALERT_TYPES) {
+            int i = type.ordinal();
+            long count = dispatchCount.get(i);
+            if (count == 0)
+                continue;
+
+            stats.add(new AlertDispatchStats(type.name(), count,
+                    dispatchTotalTime.get(i), dispatchMaxTime.get(i)));
+        }
+
+        return stats;
+    }
+}
@@ -25,6 +25,7 @@ import androidx.annotation.NonNull;
 
 import org.proninyaroslav.libretorrent.core.exception.DecodeException;
 import org.proninyaroslav.libretorrent.core.model.data.PeerInfo;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
 import org.proninyaroslav.libretorrent.core.model.data.Priority;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
 import org.proninyaroslav.libretorrent.core.model.data.TrackerInfo;
@@ -109,7 +110,7 @@ public interface TorrentDownload
 
     void addTrackers(@NonNull Set<String> trackers);
 
-    boolean[] pieces();
+    PieceMap pieces();
 
     String makeMagnet(boolean includePriorities);
 
@@ -169,20 +170,33 @@ public interface TorrentDownload
 
     int getMaxUploads();
 
-    double getAvailability(int[] piecesAvailability);
+    PiecesAvailability getPiecesAvailability();
 
-    double[] getFilesAvailability(int[] piecesAvailability);
+    boolean havePiece(int pieceIndex);
 
-    int[] getPiecesAvailability();
+    /*
+     * Returns true if all pieces in the range [firstPiece, lastPiece] are downloaded
+     */
 
-    boolean havePiece(int pieceIndex);
+    boolean havePieces(int firstPiece, int lastPiece);
 
     void readPiece(int pieceIndex);
 
     void setInterestedPieces(@NonNull TorrentStream stream, int startPiece, int numPieces);
 
+    void resetInterestedPieces(@NonNull TorrentStream stream);
+
+    /*
+     * Move the reader to another position, unlike resetInterestedPieces()
+     * the stream keeps its playback bitrate estimate
+     */
+
+    void seekInterestedPieces(@NonNull TorrentStream stream, int startPiece, int numPieces);
+
     TorrentStream getStream(int fileIndex);
 
+    Uri getFileUri(int fileIndex);
+
     boolean isValid();
 
     boolean isStopped();
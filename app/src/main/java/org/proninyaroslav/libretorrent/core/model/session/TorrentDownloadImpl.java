@@ -22,6 +22,7 @@ package org.proninyaroslav.libretorrent.core.model.session;
 import static org.proninyaroslav.libretorrent.core.model.data.TorrentInfo.MAX_ETA;
 
 import android.net.Uri;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -63,8 +64,8 @@ import org.libtorrent4j.swig.torrent_handle;
 import org.proninyaroslav.libretorrent.core.exception.DecodeException;
 import org.proninyaroslav.libretorrent.core.exception.FreeSpaceException;
 import org.proninyaroslav.libretorrent.core.exception.UnknownUriException;
-import org.proninyaroslav.libretorrent.core.model.TorrentEngineListener;
 import org.proninyaroslav.libretorrent.core.model.data.PeerInfo;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
 import org.proninyaroslav.libretorrent.core.model.data.Priority;
 import org.proninyaroslav.libretorrent.core.model.data.ReadPieceInfo;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
@@ -78,11 +79,11 @@ import org.proninyaroslav.libretorrent.core.system.FileSystemFacade;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -102,40 +103,23 @@ class TorrentDownloadImpl implements TorrentDownload {
     private static final long SAVE_RESUME_SYNC_TIME = 10000; /* ms */
     private static final long CRITICAL_WORK_WAIT_TIMEOUT = 30000; /* ms */
     private static final double MAX_RATIO = 9999.;
-    /* For streaming */
-    private final static int PRELOAD_PIECES_COUNT = 5;
-    private static final int DEFAULT_PIECE_DEADLINE = 1000; /* ms */
-
-    private static final int[] INNER_LISTENER_TYPES = new int[]{
-            AlertType.STATE_CHANGED.swig(),
-            AlertType.TORRENT_FINISHED.swig(),
-            AlertType.TORRENT_REMOVED.swig(),
-            AlertType.TORRENT_PAUSED.swig(),
-            AlertType.TORRENT_RESUMED.swig(),
-            AlertType.SAVE_RESUME_DATA.swig(),
-            AlertType.STORAGE_MOVED.swig(),
-            AlertType.STORAGE_MOVED_FAILED.swig(),
-            AlertType.METADATA_RECEIVED.swig(),
-            AlertType.PIECE_FINISHED.swig(),
-            AlertType.READ_PIECE.swig(),
-            AlertType.TORRENT_ERROR.swig(),
-            AlertType.METADATA_FAILED.swig(),
-            AlertType.FILE_ERROR.swig(),
-            AlertType.FASTRESUME_REJECTED.swig(),
-            AlertType.TORRENT_CHECKED.swig(),
-    };
 
     private final SessionManager sessionManager;
     private final TorrentHandle th;
     private final String id;
     private final TorrentRepository repo;
     private final FileSystemFacade fs;
-    private final Queue<TorrentEngineListener> listeners;
+    private final TorrentStatusCache statusCache;
+    private final TorrentAlertDispatcher alertDispatcher;
+    private final FastResumeWriter fastResumeWriter;
+    private final ListenerNotifier notifier;
     private final InnerListener listener;
     private final Uri partsFile;
     private long lastSaveResumeTime;
     private final AtomicReference<String> name;
     private final TorrentCriticalWork criticalWork = new TorrentCriticalWork();
+    private final OwnPiecesTracker ownPieces = new OwnPiecesTracker();
+    private final PieceAvailabilityTracker availabilityTracker = new PieceAvailabilityTracker();
     private boolean autoManaged;
     private boolean stopRequested = false;
     private boolean stopped = false;
@@ -143,29 +127,43 @@ class TorrentDownloadImpl implements TorrentDownload {
     private boolean resumeDataRejected;
     private boolean hasMissingFiles;
     private boolean hasFirstLastPiecePriority;
+    private volatile boolean manuallyPaused;
+    /* For streaming. Keyed by the stream instance, one per reader */
+    private final IdentityHashMap<TorrentStream, StreamingScheduler> streamSchedulers =
+            new IdentityHashMap<>();
+    /* Priorities of the pieces before they were raised by the streaming window */
+    private final HashMap<Integer, org.libtorrent4j.Priority> streamPiecePriorities =
+            new HashMap<>();
 
     public TorrentDownloadImpl(SessionManager sessionManager,
                                TorrentRepository repo,
                                FileSystemFacade fs,
-                               final Queue<TorrentEngineListener> listeners,
+                               TorrentStatusCache statusCache,
+                               TorrentAlertDispatcher alertDispatcher,
+                               FastResumeWriter fastResumeWriter,
+                               ListenerNotifier notifier,
                                String id,
                                TorrentHandle handle,
                                boolean autoManaged) {
         this.id = id;
         this.repo = repo;
         this.fs = fs;
+        this.statusCache = statusCache;
+        this.alertDispatcher = alertDispatcher;
+        this.fastResumeWriter = fastResumeWriter;
         this.sessionManager = sessionManager;
         this.autoManaged = autoManaged;
-        this.listeners = listeners;
+        this.notifier = notifier;
         this.th = handle;
         this.name = new AtomicReference<>(handle.getName());
         partsFile = getPartsFile();
         listener = new InnerListener();
-        sessionManager.addListener(listener);
+        alertDispatcher.register(id, listener);
 
         var torrent = repo.getTorrentById(id);
         if (torrent != null) {
             hasFirstLastPiecePriority = torrent.firstLastPiecePriority;
+            manuallyPaused = torrent.manuallyPaused;
             applyFirstLastPiecePriority(hasFirstLastPiecePriority);
         }
 
@@ -177,48 +175,61 @@ class TorrentDownloadImpl implements TorrentDownload {
             saveResumeData(true);
     }
 
-    private interface CallListener {
-        void apply(TorrentEngineListener listener);
-    }
-
-    private void notifyListeners(@NonNull CallListener l) {
-        for (TorrentEngineListener listener : listeners) {
-            if (listener != null)
-                l.apply(listener);
-        }
+    private void notifyListeners(@NonNull ListenerNotifier.Call call) {
+        notifier.post(call);
     }
 
     private boolean operationNotAllowed() {
         return !th.isValid() || stopped;
     }
 
+    /*
+     * Returns the status snapshot taken on the last session tick.
+     * Falls back to the native status() call only if the torrent
+     * hasn't been reported by the session yet (e.g. just added)
+     */
+
+    private TorrentStatusSnapshot status() {
+        TorrentStatusSnapshot s = statusCache.get(id);
+
+        return (s == null ? refreshStatus() : s);
+    }
+
+    /*
+     * Take a new snapshot immediately, without waiting for the next session tick.
+     * Used when the state is changed by the torrent itself or by the user
+     */
+
+    private TorrentStatusSnapshot refreshStatus() {
+        return statusCache.put(id, th.status());
+    }
+
+    private void refreshStatusIfValid() {
+        if (!operationNotAllowed())
+            refreshStatus();
+    }
+
     private boolean hasMetadata() {
         var ti = th.torrentFile();
         return !operationNotAllowed() && ti != null && ti.numFiles() > 0;
     }
 
-    private final class InnerListener implements AlertListener {
-        @Override
-        public int[] types() {
-            return INNER_LISTENER_TYPES;
-        }
+    /*
+     * Receives only alerts of this torrent, see TorrentAlertDispatcher
+     */
 
+    private final class InnerListener implements TorrentAlertDispatcher.Handler {
         @Override
-        public void alert(Alert<?> alert) {
-            if (!(alert instanceof TorrentAlert<?>))
-                return;
-
-            if (!((TorrentAlert<?>) alert).handle().swig().eq(th.swig()))
-                return;
-
+        public void onAlert(@NonNull Alert<?> alert) {
             AlertType type = alert.type();
             switch (type) {
                 case STATE_CHANGED:
+                    refreshStatusIfValid();
                     StateChangedAlert a = ((StateChangedAlert) alert);
+                    TorrentStateCode prevState = stateToStateCode(a.getPrevState());
+                    TorrentStateCode state = stateToStateCode(a.getState());
                     notifyListeners((listener) ->
-                            listener.onTorrentStateChanged(id,
-                                    stateToStateCode(a.getPrevState()),
-                                    stateToStateCode(a.getState())));
+                            listener.onTorrentStateChanged(id, prevState, state));
                     break;
                 case TORRENT_FINISHED:
                     handleTorrentFinished();
@@ -227,10 +238,12 @@ class TorrentDownloadImpl implements TorrentDownload {
                     torrentRemoved();
                     break;
                 case TORRENT_PAUSED:
+                    refreshStatusIfValid();
                     notifyListeners((listener) ->
                             listener.onTorrentPaused(id));
                     break;
                 case TORRENT_RESUMED:
+                    refreshStatusIfValid();
                     resetTorrentError();
 
                     notifyListeners((listener) ->
@@ -248,10 +261,12 @@ class TorrentDownloadImpl implements TorrentDownload {
                 case PIECE_FINISHED:
                     saveResumeData(false);
                     int piece = ((PieceFinishedAlert) alert).pieceIndex();
+                    ownPieces.pieceFinished(piece);
                     notifyListeners((listener) ->
                             listener.onPieceFinished(id, piece));
                     break;
                 case METADATA_RECEIVED:
+                    ownPieces.invalidate();
                     handleMetadata((MetadataReceivedAlert) alert);
                     // If first/last piece priority was specified when adding this torrent,
                     // we should apply it now that we have metadata.
@@ -264,6 +279,7 @@ class TorrentDownloadImpl implements TorrentDownload {
                     handleReadPiece((ReadPieceAlert) alert);
                     break;
                 case TORRENT_CHECKED:
+                    ownPieces.invalidate();
                     handleTorrentChecked();
                     break;
                 default:
@@ -438,11 +454,13 @@ class TorrentDownloadImpl implements TorrentDownload {
                 alert.bufferPtr(),
                 err);
 
-        notifyListeners((listener) ->
+        /* The piece buffer is valid only until the next alert, so call in place */
+        notifier.call((listener) ->
                 listener.onReadPiece(id, info));
     }
 
     private void torrentRemoved() {
+        statusCache.remove(id);
         notifyListeners((listener) ->
                 listener.onTorrentRemoved(id));
 
@@ -458,12 +476,14 @@ class TorrentDownloadImpl implements TorrentDownload {
     }
 
     private void handleTorrentChecked() {
+        refreshStatusIfValid();
         if (resumeDataRejected && !hasMissingFiles)
             saveResumeData(true);
     }
 
     private void handleTorrentFinished() {
         hasMissingFiles = false;
+        refreshStatusIfValid();
 
         notifyListeners((listener) ->
                 listener.onTorrentFinished(id));
@@ -501,7 +521,9 @@ class TorrentDownloadImpl implements TorrentDownload {
     private void serializeResumeData(SaveResumeDataAlert alert) {
         try {
             byte_vector data = libtorrent.write_resume_data(alert.params().swig()).bencode();
-            repo.addFastResume(new FastResume(id, Vectors.byte_vector2bytes(data)));
+            fastResumeWriter.put(new FastResume(id, Vectors.byte_vector2bytes(data)));
+            if (manuallyPaused)
+                saveStats();
 
         } catch (Throwable e) {
             Log.e(TAG, Log.getStackTraceString(e));
@@ -511,6 +533,31 @@ class TorrentDownloadImpl implements TorrentDownload {
         }
     }
 
+    /*
+     * Keep the last known stats in the database, so that the paused torrent
+     * can be shown without being loaded into the session (see TorrentSession.isDormant)
+     */
+
+    private void saveStats() {
+        Torrent torrent = repo.getTorrentById(id);
+        if (torrent == null)
+            return;
+
+        long totalBytes = getTotalWanted();
+        long receivedBytes = getReceivedBytes();
+        long uploadedBytes = getTotalSentBytes();
+        int progress = getProgress();
+        if (torrent.totalBytes == totalBytes && torrent.receivedBytes == receivedBytes &&
+                torrent.uploadedBytes == uploadedBytes && torrent.progress == progress)
+            return;
+
+        torrent.totalBytes = totalBytes;
+        torrent.receivedBytes = receivedBytes;
+        torrent.uploadedBytes = uploadedBytes;
+        torrent.progress = progress;
+        repo.updateTorrent(torrent);
+    }
+
     @Override
     public String getTorrentId() {
         return id;
@@ -564,7 +611,12 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (!stopRequested || stopped)
             return;
 
-        sessionManager.removeListener(listener);
+        alertDispatcher.unregister(id, listener);
+        statusCache.remove(id);
+        synchronized (streamSchedulers) {
+            streamSchedulers.clear();
+            streamPiecePriorities.clear();
+        }
         stopRequested = false;
         stopped = true;
         stopEvent = null;
@@ -601,6 +653,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
         torrent.manuallyPaused = true;
         repo.updateTorrent(torrent);
+        manuallyPaused = true;
 
         doPause();
     }
@@ -616,6 +669,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
         torrent.manuallyPaused = false;
         repo.updateTorrent(torrent);
+        manuallyPaused = false;
 
         doResume();
     }
@@ -626,6 +680,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
         th.unsetFlags(TorrentFlags.AUTO_MANAGED);
         th.pause();
+        refreshStatus();
         saveResumeData(true);
     }
 
@@ -643,6 +698,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         else
             th.unsetFlags(TorrentFlags.AUTO_MANAGED);
         th.resume();
+        refreshStatus();
         saveResumeData(true);
     }
 
@@ -657,11 +713,12 @@ class TorrentDownloadImpl implements TorrentDownload {
             th.setFlags(TorrentFlags.AUTO_MANAGED);
         else
             th.unsetFlags(TorrentFlags.AUTO_MANAGED);
+        refreshStatus();
     }
 
     @Override
     public boolean isAutoManaged() {
-        return !operationNotAllowed() && th.status().flags().and_(TorrentFlags.AUTO_MANAGED).non_zero();
+        return !operationNotAllowed() && status().autoManaged();
     }
 
     @Override
@@ -669,11 +726,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
-        if (ts == null)
-            return 0;
-
-        float fp = ts.progress();
+        float fp = status().progress();
         if (Float.compare(fp, 1f) == 0)
             return 100;
 
@@ -726,18 +779,19 @@ class TorrentDownloadImpl implements TorrentDownload {
     public long getDownloadSpeed() {
         return operationNotAllowed() || isFinished() || isPaused() || isSeeding() ?
                 0 :
-                th.status().downloadPayloadRate();
+                status().downloadPayloadRate();
     }
 
     @Override
     public long getUploadSpeed() {
         return operationNotAllowed() || isFinished() && !isSeeding() || isPaused() ?
                 0 :
-                th.status().uploadPayloadRate();
+                status().uploadPayloadRate();
     }
 
     @Override
     public void remove(boolean withFiles) {
+        fastResumeWriter.remove(id);
         Torrent torrent = repo.getTorrentById(id);
         if (torrent != null) {
             repo.deleteTorrent(torrent);
@@ -753,32 +807,32 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     @Override
     public long getActiveTime() {
-        return operationNotAllowed() ? 0 : th.status().activeDuration() / 1000L;
+        return operationNotAllowed() ? 0 : status().activeDuration() / 1000L;
     }
 
     @Override
     public long getSeedingTime() {
-        return operationNotAllowed() ? 0 : th.status().seedingDuration() / 1000L;
+        return operationNotAllowed() ? 0 : status().seedingDuration() / 1000L;
     }
 
     @Override
     public long getReceivedBytes() {
-        return operationNotAllowed() ? 0 : th.status().totalDone();
+        return operationNotAllowed() ? 0 : status().totalDone();
     }
 
     @Override
     public long getTotalSentBytes() {
-        return operationNotAllowed() ? 0 : th.status().allTimeUpload();
+        return operationNotAllowed() ? 0 : status().allTimeUpload();
     }
 
     @Override
     public int getConnectedPeers() {
-        return operationNotAllowed() ? 0 : th.status().numPeers();
+        return operationNotAllowed() ? 0 : status().numPeers();
     }
 
     @Override
     public int getConnectedSeeds() {
-        return operationNotAllowed() ? 0 : th.status().numSeeds();
+        return operationNotAllowed() ? 0 : status().numSeeds();
     }
 
     @Override
@@ -786,7 +840,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
+        TorrentStatusSnapshot ts = status();
 
         return ts.numPeers() - ts.numSeeds();
     }
@@ -796,7 +850,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
+        TorrentStatusSnapshot ts = status();
         int peers = ts.numComplete() + ts.numIncomplete();
 
         return (peers > 0 ? peers : ts.listPeers());
@@ -807,7 +861,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
+        TorrentStatusSnapshot ts = status();
         int numComplete = ts.numComplete();
 
         return (numComplete > 0 ? numComplete : ts.listSeeds());
@@ -818,7 +872,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
+        TorrentStatusSnapshot ts = status();
         int numIncomplete = ts.numIncomplete();
 
         return (numIncomplete > 0 ? numIncomplete : ts.listPeers() - ts.listSeeds());
@@ -904,7 +958,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     @Override
     public long getTotalWanted() {
-        return operationNotAllowed() ? 0 : th.status().totalWanted();
+        return operationNotAllowed() ? 0 : status().totalWanted();
     }
 
     @Override
@@ -938,16 +992,24 @@ class TorrentDownloadImpl implements TorrentDownload {
     }
 
     @Override
-    public boolean[] pieces() {
-        if (operationNotAllowed())
-            return new boolean[0];
+    public PieceMap pieces() {
+        if (operationNotAllowed() || !hasMetadata())
+            return PieceMap.empty();
 
-        PieceIndexBitfield bitfield = th.status(TorrentHandle.QUERY_PIECES).pieces();
-        boolean[] pieces = new boolean[bitfield.size()];
-        for (int i = 0; i < bitfield.size(); i++)
-            pieces[i] = bitfield.getBit(i);
+        TorrentInfo ti = th.torrentFile();
+        if (ti == null)
+            return PieceMap.empty();
+
+        TorrentStatusSnapshot status = status();
+        if (status.seeding())
+            return PieceMap.full(ti.numPieces());
+
+        if (ownPieces.needsReload(ti.numPieces(), status.numPieces())) {
+            PieceIndexBitfield bitfield = th.status(TorrentHandle.QUERY_PIECES).pieces();
+            ownPieces.reset(Math.min(bitfield.size(), ti.numPieces()), bitfield::getBit);
+        }
 
-        return pieces;
+        return ownPieces.snapshot();
     }
 
     @Override
@@ -1014,6 +1076,7 @@ class TorrentDownloadImpl implements TorrentDownload {
             th.setFlags(TorrentFlags.SEQUENTIAL_DOWNLOAD);
         else
             th.unsetFlags(TorrentFlags.SEQUENTIAL_DOWNLOAD);
+        refreshStatus();
 
         saveResumeData(true);
 
@@ -1112,7 +1175,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (getStateCode() != TorrentStateCode.DOWNLOADING)
             return MAX_ETA;
 
-        TorrentStatus status = th.status();
+        TorrentStatusSnapshot status = status();
         long left = status.totalWanted() - status.totalWantedDone();
         long rate = status.downloadPayloadRate();
         if (left <= 0)
@@ -1190,7 +1253,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     @Override
     public int getNumDownloadedPieces() {
-        return operationNotAllowed() ? 0 : th.status().numPieces();
+        return operationNotAllowed() ? 0 : status().numPieces();
     }
 
     @Override
@@ -1198,7 +1261,7 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (operationNotAllowed())
             return 0;
 
-        TorrentStatus ts = th.status();
+        TorrentStatusSnapshot ts = status();
         long allTimeUpload = ts.allTimeUpload();
         long allTimeDownload = ts.allTimeDownload();
         long totalDone = ts.totalDone();
@@ -1281,16 +1344,16 @@ class TorrentDownloadImpl implements TorrentDownload {
         if (!th.isValid())
             return TorrentStateCode.ERROR;
 
-        TorrentStatus status = th.status();
-        boolean isPaused = isPaused(status);
+        TorrentStatusSnapshot status = status();
+        boolean isPaused = status.paused();
 
-        if (isPaused && status.isFinished())
+        if (isPaused && status.finished())
             return TorrentStateCode.FINISHED;
 
-        if (isPaused && !status.isFinished())
+        if (isPaused && !status.finished())
             return TorrentStateCode.PAUSED;
 
-        if (!isPaused && status.isFinished())
+        if (!isPaused && status.finished())
             return TorrentStateCode.SEEDING;
 
         return stateToStateCode(status.state());
@@ -1309,22 +1372,18 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     @Override
     public boolean isPaused() {
-        return !operationNotAllowed() && (isPaused(th.status(true)) ||
+        return !operationNotAllowed() && (status().paused() ||
                 sessionManager.isPaused() || !sessionManager.isRunning());
     }
 
-    private boolean isPaused(TorrentStatus s) {
-        return s.flags().and_(TorrentFlags.PAUSED).non_zero();
-    }
-
     @Override
     public boolean isSeeding() {
-        return !operationNotAllowed() && th.status().isSeeding();
+        return !operationNotAllowed() && status().seeding();
     }
 
     @Override
     public boolean isFinished() {
-        return !operationNotAllowed() && th.status().isFinished();
+        return !operationNotAllowed() && status().finished();
     }
 
     @Override
@@ -1334,7 +1393,7 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     @Override
     public boolean isSequentialDownload() {
-        return !operationNotAllowed() && th.status().flags().and_(TorrentFlags.SEQUENTIAL_DOWNLOAD).non_zero();
+        return !operationNotAllowed() && status().sequentialDownload();
     }
 
     @Override
@@ -1368,78 +1427,66 @@ class TorrentDownloadImpl implements TorrentDownload {
     }
 
     @Override
-    public double getAvailability(int[] piecesAvailability) {
-        if (piecesAvailability == null || piecesAvailability.length == 0)
-            return 0;
-
-        int min = Integer.MAX_VALUE;
-        for (int avail : piecesAvailability)
-            if (avail < min)
-                min = avail;
-
-        int total = 0;
-        for (int avail : piecesAvailability)
-            if (avail > 0 && avail > min)
-                ++total;
-
-        return (total / (double) piecesAvailability.length) + min;
-    }
-
-    @Override
-    public double[] getFilesAvailability(int[] piecesAvailability) {
-        if (!hasMetadata()) {
-            return new double[0];
-        }
+    public PiecesAvailability getPiecesAvailability() {
+        if (operationNotAllowed() || !hasMetadata())
+            return new PiecesAvailability(0, new double[0]);
 
         TorrentInfo ti = th.torrentFile();
         if (ti == null)
-            return new double[0];
-        int numFiles = ti.numFiles();
-        if (numFiles < 0)
-            return new double[0];
+            return new PiecesAvailability(0, new double[0]);
 
-        double[] filesAvail = new double[numFiles];
-        if (piecesAvailability == null || piecesAvailability.length == 0) {
-            Arrays.fill(filesAvail, -1);
+        if (!availabilityTracker.hasFilePieces())
+            initFilePieces(ti);
 
-            return filesAvail;
-        }
-        for (int i = 0; i < numFiles; i++) {
-            Pair<Integer, Integer> filePieces = getFilePieces(ti, i);
-            if (filePieces == null) {
-                filesAvail[i] = -1;
-                continue;
-            }
-            int availablePieces = 0;
-            for (int p = filePieces.first; p <= filePieces.second; p++)
-                availablePieces += (piecesAvailability[p] > 0 ? 1 : 0);
-            filesAvail[i] = (double) availablePieces / (filePieces.second - filePieces.first + 1);
-        }
+        int[] peersAvail = th.pieceAvailability();
+        if (peersAvail.length == 0)
+            peersAvail = getPeersPieceAvailability(ti.numPieces());
 
-        return filesAvail;
+        return availabilityTracker.update(peersAvail, pieces(), status().seeding());
     }
 
-    @Override
-    public int[] getPiecesAvailability() {
-        if (operationNotAllowed())
-            return new int[0];
-
-        PieceIndexBitfield pieces = th.status(TorrentHandle.QUERY_PIECES).pieces();
-        List<AdvancedPeerInfo> peers = advancedPeerInfo();
-        int[] avail = new int[pieces.size()];
-        for (int i = 0; i < pieces.size(); i++)
-            avail[i] = (pieces.getBit(i) ? 1 : 0);
+    /*
+     * Fallback for piece_availability(), which is empty if libtorrent
+     * has no piece picker (e.g. seeding). Counts the peer bitfields,
+     * peers that have all or none of the pieces are counted without reading the bits
+     */
 
-        for (AdvancedPeerInfo peer : peers) {
+    private int[] getPeersPieceAvailability(int numPieces) {
+        int[] avail = new int[numPieces];
+        for (AdvancedPeerInfo peer : advancedPeerInfo()) {
             PieceIndexBitfield peerPieces = peer.pieces();
-            for (int i = 0; i < pieces.size(); i++)
-                if (peerPieces.getBit(i))
+            if (peerPieces.isNoneSet())
+                continue;
+
+            if (peerPieces.isAllSet() && peerPieces.size() >= numPieces) {
+                for (int i = 0; i < numPieces; i++)
                     ++avail[i];
+            } else {
+                int size = Math.min(numPieces, peerPieces.size());
+                for (int i = 0; i < size; i++)
+                    if (peerPieces.getBit(i))
+                        ++avail[i];
+            }
         }
 
         return avail;
     }
 
+    private void initFilePieces(TorrentInfo ti) {
+        int numFiles = ti.numFiles();
+        if (numFiles <= 0)
+            return;
+
+        int[] firstPiece = new int[numFiles];
+        int[] lastPiece = new int[numFiles];
+        for (int i = 0; i < numFiles; i++) {
+            Pair<Integer, Integer> filePieces = getFilePieces(ti, i);
+            firstPiece[i] = (filePieces == null ? -1 : filePieces.first);
+            lastPiece[i] = (filePieces == null ? -1 : filePieces.second);
+        }
+        availabilityTracker.setFilePieces(firstPiece, lastPiece);
+    }
+
     private Pair<Integer, Integer> getFilePieces(TorrentInfo ti, int fileIndex) {
         if (operationNotAllowed())
             return null;
@@ -1459,6 +1506,24 @@ class TorrentDownloadImpl implements TorrentDownload {
         return !operationNotAllowed() && th.havePiece(pieceIndex);
     }
 
+    @Override
+    public boolean havePieces(int firstPiece, int lastPiece) {
+        if (operationNotAllowed() || firstPiece < 0 || lastPiece < firstPiece)
+            return false;
+        if (status().seeding())
+            return true;
+
+        PieceIndexBitfield bitfield = th.status(TorrentHandle.QUERY_PIECES).pieces();
+        if (lastPiece >= bitfield.size())
+            return false;
+        for (int i = firstPiece; i <= lastPiece; i++) {
+            if (!bitfield.getBit(i))
+                return false;
+        }
+
+        return true;
+    }
+
     @Override
     public void readPiece(int pieceIndex) {
         if (operationNotAllowed())
@@ -1468,43 +1533,93 @@ class TorrentDownloadImpl implements TorrentDownload {
     }
 
     /*
-     * Set the bytes of the selected file that you're interested in
-     * the piece of that specific offset is selected and that piece plus the 1 preceding and the 3 after it.
-     * These pieces will then be prioritised, which results in continuing the sequential download after that piece
+     * Move the streaming window of the reader to the given pieces.
+     * The requested pieces get the nearest deadline, the rest of the window
+     * gets graduated deadlines according to the measured playback bitrate.
+     * Pieces that fell behind the window return to their previous priority.
      */
 
     @Override
     public void setInterestedPieces(@NonNull TorrentStream stream, int startPiece, int numPieces) {
-        if (startPiece < 0 || numPieces < 0)
+        if (startPiece < 0 || numPieces <= 0)
             return;
 
-        for (int i = 0; i < numPieces; i++) {
-            int piece = startPiece + i;
-            if (piece > stream.lastFilePiece)
-                break;
+        synchronized (streamSchedulers) {
+            if (operationNotAllowed())
+                return;
 
-            if (i + 1 == numPieces) {
-                int preloadPieces = PRELOAD_PIECES_COUNT;
-                for (int p = piece; p <= stream.lastFilePiece; p++) {
-                    /* Set max priority to first found piece that is not confirmed finished */
-                    if (!operationNotAllowed() && !th.havePiece(p)) {
-                        th.piecePriority(p, org.libtorrent4j.Priority.TOP_PRIORITY);
-                        th.setPieceDeadline(p, DEFAULT_PIECE_DEADLINE);
-                        preloadPieces--;
-                        if (preloadPieces == 0)
-                            break;
-                    }
-                }
+            var scheduler = streamSchedulers.get(stream);
+            if (scheduler == null) {
+                scheduler = new StreamingScheduler(stream.firstFilePiece,
+                        stream.lastFilePiece, stream.pieceLength);
+                streamSchedulers.put(stream, scheduler);
+            }
 
-            } else {
-                if (!operationNotAllowed() && !th.havePiece(piece)) {
-                    th.piecePriority(piece, org.libtorrent4j.Priority.TOP_PRIORITY);
-                    th.setPieceDeadline(piece, DEFAULT_PIECE_DEADLINE);
-                }
+            var plan = scheduler.update(startPiece, numPieces, SystemClock.elapsedRealtime());
+            if (plan.isEmpty())
+                return;
+
+            resetStreamPieces(plan.reset());
+            for (var d : plan.deadlines()) {
+                int piece = d.piece();
+                if (th.havePiece(piece))
+                    continue;
+                if (!streamPiecePriorities.containsKey(piece))
+                    streamPiecePriorities.put(piece, th.piecePriority(piece));
+                th.piecePriority(piece, org.libtorrent4j.Priority.TOP_PRIORITY);
+                th.setPieceDeadline(piece, d.deadline());
             }
         }
     }
 
+    /*
+     * Cancel the streaming window of the reader when it's closed
+     */
+
+    @Override
+    public void resetInterestedPieces(@NonNull TorrentStream stream) {
+        synchronized (streamSchedulers) {
+            var scheduler = streamSchedulers.remove(stream);
+            if (scheduler == null || operationNotAllowed())
+                return;
+
+            resetStreamPieces(scheduler.cancel());
+        }
+    }
+
+    @Override
+    public void seekInterestedPieces(@NonNull TorrentStream stream, int startPiece, int numPieces) {
+        synchronized (streamSchedulers) {
+            var scheduler = streamSchedulers.get(stream);
+            if (scheduler != null && !operationNotAllowed())
+                resetStreamPieces(scheduler.cancel());
+
+            setInterestedPieces(stream, startPiece, numPieces);
+        }
+    }
+
+    private void resetStreamPieces(List<Integer> pieces) {
+        for (int piece : pieces) {
+            /* Still needed by another reader of the same torrent */
+            if (isInStreamWindow(piece))
+                continue;
+
+            th.resetPieceDeadline(piece);
+            var priority = streamPiecePriorities.remove(piece);
+            if (priority != null)
+                th.piecePriority(piece, priority);
+        }
+    }
+
+    private boolean isInStreamWindow(int piece) {
+        for (var scheduler : streamSchedulers.values()) {
+            if (scheduler.contains(piece))
+                return true;
+        }
+
+        return false;
+    }
+
     @Override
     public TorrentStream getStream(int fileIndex) {
         if (!hasMetadata()) {
@@ -1526,6 +1641,29 @@ class TorrentDownloadImpl implements TorrentDownload {
 
     }
 
+    @Override
+    public Uri getFileUri(int fileIndex) {
+        if (!hasMetadata()) {
+            return null;
+        }
+
+        TorrentInfo ti = th.torrentFile();
+        if (ti == null || fileIndex < 0 || fileIndex >= ti.numFiles())
+            return null;
+
+        Torrent torrent = repo.getTorrentById(id);
+        if (torrent == null)
+            return null;
+
+        try {
+            return fs.getFileUri(ti.files().filePath(fileIndex), torrent.downloadPath);
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting file path: ");
+            Log.e(TAG, Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
     @Override
     public boolean isValid() {
         return th.isValid();
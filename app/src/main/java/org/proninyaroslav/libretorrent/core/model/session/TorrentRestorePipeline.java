@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.libtorrent4j.TorrentFlags;
+import org.libtorrent4j.Vectors;
+import org.libtorrent4j.swig.add_torrent_params;
+import org.libtorrent4j.swig.bdecode_node;
+import org.libtorrent4j.swig.byte_vector;
+import org.libtorrent4j.swig.error_code;
+import org.libtorrent4j.swig.libtorrent;
+import org.libtorrent4j.swig.torrent_flags_t;
+import org.proninyaroslav.libretorrent.core.model.data.SessionRestoreStats;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
+import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
+import org.proninyaroslav.libretorrent.core.storage.TorrentRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Restores the torrents of the previous session in three overlapping stages:
+ *  1. Load the fast resume data from the database in pages (one loader thread).
+ *  2. Decode add_torrent_params on a bounded worker pool.
+ *  3. Submit the decoded torrents to libtorrent in batches, keeping
+ *     at most inFlightLimit torrents submitted but not yet added.
+ * The window is released by the ADD_TORRENT alert, see onTorrentAdded().
+ * Torrents whose alert doesn't arrive within the add timeout are counted as failed.
+ * The number of torrents held in memory between the stages is bounded as well.
+ */
+
+class TorrentRestorePipeline {
+    private static final String TAG = TorrentRestorePipeline.class.getSimpleName();
+
+    private static final int PAGE_SIZE = 100;
+    private static final int BATCH_SIZE = 16;
+    private static final int MAX_DECODE_THREADS = 4;
+    /* Don't wait forever for the lost ADD_TORRENT alerts */
+    private static final long DEFAULT_ADD_TIMEOUT = 10000; /* ms */
+
+    interface Session {
+        boolean isStopped();
+
+        boolean isTorrentAlreadyRunning(@NonNull String id);
+
+        boolean isAutoManaged();
+
+        /* Returns false if the torrent wasn't submitted */
+        boolean addTorrent(@NonNull add_torrent_params params);
+
+        /* Returns false if the magnet wasn't submitted */
+        boolean addMagnet(@NonNull Torrent torrent) throws Exception;
+
+        void onRestoreError(@NonNull String id, @NonNull Exception e);
+
+        void onRestoreProgress(int restored, int total);
+
+        void onRestored(@NonNull SessionRestoreStats stats);
+    }
+
+    private record Item(@NonNull String id, add_torrent_params params, Torrent magnet) {}
+
+    /* End of the decoded items */
+    private static final Item END = new Item("", null, null);
+
+    private final TorrentRepository repo;
+    private final Session session;
+    private final ExecutorService stageExec;
+    private final ExecutorService decodeExec;
+    private final BlockingQueue<Item> decodedQueue = new LinkedBlockingQueue<>();
+    /*
+     * Torrents submitted to libtorrent and their submit time.
+     * Every entry holds one window permit
+     */
+    private final ConcurrentHashMap<String, Long> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore window;
+    private final int inFlightLimit;
+    private final long addTimeout;
+    /* Limits the number of the loaded but not yet added torrents */
+    private final Semaphore pending;
+    private final int total;
+    private final AtomicInteger restored = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong loadTime = new AtomicLong();
+    private final AtomicLong decodeTime = new AtomicLong();
+    private final AtomicLong addTime = new AtomicLong();
+    private final int progressStep;
+    private final long startTime = System.nanoTime();
+    private final List<Torrent> magnets = new ArrayList<>();
+    private final HashMap<String, Torrent> torrents = new HashMap<>();
+    private volatile boolean submitDone;
+    private volatile boolean cancelled;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    TorrentRestorePipeline(@NonNull TorrentRepository repo,
+                           @NonNull Session session,
+                           @NonNull List<Torrent> torrents,
+                           int inFlightLimit) {
+        this(repo, session, torrents, inFlightLimit, DEFAULT_ADD_TIMEOUT);
+    }
+
+    TorrentRestorePipeline(@NonNull TorrentRepository repo,
+                           @NonNull Session session,
+                           @NonNull List<Torrent> torrents,
+                           int inFlightLimit,
+                           long addTimeout) {
+        this.repo = repo;
+        this.session = session;
+        for (Torrent torrent : torrents) {
+            if (torrent.isDownloadingMetadata())
+                magnets.add(torrent);
+            else
+                this.torrents.put(torrent.id, torrent);
+        }
+        total = torrents.size();
+        progressStep = Math.max(1, total / 100);
+
+        this.inFlightLimit = Math.max(1, inFlightLimit);
+        this.addTimeout = addTimeout;
+        window = new Semaphore(this.inFlightLimit);
+        pending = new Semaphore(this.inFlightLimit * 2 + PAGE_SIZE);
+
+        int decodeThreads = Math.max(1, Math.min(MAX_DECODE_THREADS,
+                Runtime.getRuntime().availableProcessors() - 1));
+        decodeExec = Executors.newFixedThreadPool(decodeThreads);
+        stageExec = Executors.newFixedThreadPool(2);
+    }
+
+    void start() {
+        if (total == 0) {
+            finished.set(true);
+            finish();
+            return;
+        }
+
+        stageExec.execute(this::load);
+        stageExec.execute(this::submit);
+    }
+
+    boolean isRunning() {
+        return !cancelled && !finished.get();
+    }
+
+    void cancel() {
+        cancelled = true;
+        decodeExec.shutdownNow();
+        stageExec.shutdownNow();
+        decodedQueue.clear();
+        inFlight.clear();
+    }
+
+    /*
+     * Called for every ADD_TORRENT alert, including torrents
+     * that don't belong to the restore
+     */
+
+    void onTorrentAdded(@NonNull String id, Exception err) {
+        Long submitTime = inFlight.remove(id);
+        if (submitTime == null)
+            return;
+
+        release(id, submitTime, err);
+    }
+
+    /*
+     * Must be called once for every entry removed from inFlight.
+     * The window permit is released last, so that
+     * holding all permits means that all added torrents are counted
+     */
+
+    private void release(String id, long submitTime, Exception err) {
+        addTime.addAndGet(System.nanoTime() - submitTime);
+        if (err == null)
+            complete(true);
+        else
+            fail(id, err);
+        pending.release();
+        window.release();
+
+        checkFinished();
+    }
+
+    /* Gives up on the torrents whose ADD_TORRENT alert didn't arrive in time */
+
+    private void expireInFlight() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(addTimeout);
+        for (var entry : inFlight.entrySet()) {
+            String id = entry.getKey();
+            Long submitTime = entry.getValue();
+            if (now - submitTime >= timeout && inFlight.remove(id, submitTime))
+                release(id, submitTime, new TimeoutException("Timeout waiting for the torrent to be added"));
+        }
+    }
+
+    private void load() {
+        try {
+            for (Torrent magnet : magnets) {
+                pending.acquire();
+                decodedQueue.put(new Item(magnet.id, null, magnet));
+            }
+
+            String lastId = "";
+            while (!isCancelled()) {
+                long pageStartTime = System.nanoTime();
+                List<FastResume> page = repo.getFastResumePage(lastId, PAGE_SIZE);
+                loadTime.addAndGet(System.nanoTime() - pageStartTime);
+                if (page == null || page.isEmpty())
+                    break;
+
+                for (FastResume fastResume : page) {
+                    /* Not requested or already running */
+                    if (torrents.remove(fastResume.torrentId) == null)
+                        continue;
+                    pending.acquire();
+                    decodeExec.execute(() -> decode(fastResume));
+                }
+                lastId = page.get(page.size() - 1).torrentId;
+            }
+
+            for (String id : torrents.keySet())
+                fail(id, new IOException("Fast resume data not found"));
+
+            decodeExec.shutdown();
+            decodeExec.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            decodedQueue.put(END);
+
+        } catch (InterruptedException e) {
+            /* Cancelled */
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to load torrents: " + Log.getStackTraceString(e));
+            decodedQueue.add(END);
+        }
+    }
+
+    private void decode(FastResume fastResume) {
+        if (isCancelled())
+            return;
+
+        long decodeStartTime = System.nanoTime();
+        try {
+            add_torrent_params p = decodeParams(fastResume.data, session.isAutoManaged());
+            decodeTime.addAndGet(System.nanoTime() - decodeStartTime);
+            decodedQueue.put(new Item(fastResume.torrentId, p, null));
+
+        } catch (InterruptedException e) {
+            /* Cancelled */
+        } catch (Exception e) {
+            decodeTime.addAndGet(System.nanoTime() - decodeStartTime);
+            pending.release();
+            fail(fastResume.torrentId, e);
+        }
+    }
+
+    private void submit() {
+        var batch = new ArrayList<Item>(BATCH_SIZE);
+        try {
+            boolean end = false;
+            while (!end && !isCancelled()) {
+                batch.clear();
+                batch.add(decodedQueue.take());
+                decodedQueue.drainTo(batch, BATCH_SIZE - 1);
+
+                for (Item item : batch) {
+                    if (item == END) {
+                        end = true;
+                        break;
+                    }
+                    if (isCancelled())
+                        return;
+                    submitItem(item);
+                }
+            }
+            submitDone = true;
+            checkFinished();
+
+            /* Wait for the remaining alerts */
+            while (!finished.get() && !isCancelled()) {
+                if (window.tryAcquire(inFlightLimit, addTimeout, TimeUnit.MILLISECONDS)) {
+                    window.release(inFlightLimit);
+                    break;
+                }
+                expireInFlight();
+            }
+
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        checkFinished();
+    }
+
+    private void submitItem(Item item) throws InterruptedException {
+        if (session.isTorrentAlreadyRunning(item.id())) {
+            pending.release();
+            complete(true);
+            return;
+        }
+
+        while (!window.tryAcquire(addTimeout, TimeUnit.MILLISECONDS)) {
+            if (isCancelled())
+                return;
+            expireInFlight();
+        }
+
+        inFlight.put(item.id(), System.nanoTime());
+        boolean submitted;
+        try {
+            if (item.magnet() != null)
+                submitted = session.addMagnet(item.magnet());
+            else
+                submitted = session.addTorrent(item.params());
+
+        } catch (Exception e) {
+            onTorrentAdded(item.id(), e);
+            return;
+        }
+
+        if (!submitted) {
+            /* The magnet can be already added, otherwise the session is stopped */
+            boolean alreadyAdded = item.magnet() != null && !session.isStopped();
+            onTorrentAdded(item.id(), alreadyAdded ? null :
+                    new IllegalStateException("Session is stopped"));
+        }
+    }
+
+    private void fail(String id, Exception e) {
+        session.onRestoreError(id, e);
+        complete(false);
+    }
+
+    private void complete(boolean success) {
+        if (success)
+            restored.incrementAndGet();
+        else
+            failed.incrementAndGet();
+
+        int done = restored.get() + failed.get();
+        if (done % progressStep == 0 || done == total)
+            session.onRestoreProgress(done, total);
+    }
+
+    private void checkFinished() {
+        if (submitDone && inFlight.isEmpty() && finished.compareAndSet(false, true))
+            finish();
+    }
+
+    private void finish() {
+        stageExec.shutdown();
+        decodeExec.shutdown();
+        if (isCancelled())
+            return;
+
+        session.onRestored(new SessionRestoreStats(
+                total,
+                restored.get(),
+                failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(loadTime.get()),
+                TimeUnit.NANOSECONDS.toMillis(decodeTime.get()),
+                TimeUnit.NANOSECONDS.toMillis(addTime.get()),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+        ));
+    }
+
+    private boolean isCancelled() {
+        if (!cancelled && session.isStopped())
+            cancel();
+
+        return cancelled;
+    }
+
+    @NonNull
+    static add_torrent_params decodeParams(@NonNull byte[] data, boolean autoManaged) {
+        error_code ec = new error_code();
+        byte_vector buffer = Vectors.bytes2byte_vector(data);
+
+        bdecode_node n = new bdecode_node();
+        int ret = bdecode_node.bdecode(buffer, n, ec);
+        if (ret != 0)
+            throw new IllegalArgumentException("Can't decode data: " + ec.message());
+        ec.clear();
+
+        add_torrent_params p = libtorrent.read_resume_data(n, ec);
+        if (ec.value() != 0)
+            throw new IllegalArgumentException("Unable to read the resume data: " + ec.message());
+
+        torrent_flags_t flags = p.getFlags();
+        /* Disable force saving resume data, because they already have */
+        flags = flags.and_(TorrentFlags.NEED_SAVE_RESUME.inv());
+
+        if (autoManaged)
+            flags = flags.or_(TorrentFlags.AUTO_MANAGED);
+        else
+            flags = flags.and_(TorrentFlags.AUTO_MANAGED.inv());
+
+        p.setFlags(flags);
+
+        return p;
+    }
+}
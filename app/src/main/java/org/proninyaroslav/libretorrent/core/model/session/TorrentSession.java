@@ -22,6 +22,7 @@ package org.proninyaroslav.libretorrent.core.model.session;
 import android.net.Uri;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.proninyaroslav.libretorrent.core.exception.DecodeException;
 import org.proninyaroslav.libretorrent.core.exception.TorrentAlreadyExistsException;
@@ -35,6 +36,8 @@ import org.proninyaroslav.libretorrent.core.settings.SessionSettings;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface TorrentSession
 {
@@ -46,6 +49,32 @@ public interface TorrentSession
 
     TorrentDownload getTask(String id);
 
+    /*
+     * Dormant torrent is paused and kept only in the database,
+     * without the torrent handle, until it's activated
+     */
+
+    boolean isDormant(@NonNull String id);
+
+    /*
+     * Loads the dormant torrent into the session. The action is run
+     * with the task after the torrent is added. If the torrent
+     * is already loaded, the action is run immediately
+     */
+
+    void activateTorrent(@NonNull String id, @Nullable Consumer<TorrentDownload> action);
+
+    /*
+     * Build the magnet and the torrent file of the dormant torrent
+     * from its resume data, without loading it into the session
+     */
+
+    @Nullable
+    String makeDormantMagnet(@NonNull String id, boolean includePriorities);
+
+    @Nullable
+    byte[] getDormantBencode(@NonNull String id);
+
     void setSettings(@NonNull SessionSettings settings);
 
     void setSettings(@NonNull SessionSettings settings, boolean keepPort);
@@ -133,4 +162,10 @@ public interface TorrentSession
     );
 
     void setDefaultTrackersList(@NonNull String[] trackersList);
+
+    List<AlertDispatchStats> getAlertDispatchStats();
+
+    FastResumeWriterStats getFastResumeWriterStats();
+
+    AlertThreadStats getAlertThreadStats();
 }
@@ -24,6 +24,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
 import org.libtorrent4j.AlertListener;
@@ -40,6 +41,7 @@ import org.libtorrent4j.TorrentFlags;
 import org.libtorrent4j.TorrentHandle;
 import org.libtorrent4j.TorrentInfo;
 import org.libtorrent4j.Vectors;
+import org.libtorrent4j.alerts.AddTorrentAlert;
 import org.libtorrent4j.alerts.Alert;
 import org.libtorrent4j.alerts.AlertType;
 import org.libtorrent4j.alerts.ListenFailedAlert;
@@ -47,7 +49,7 @@ import org.libtorrent4j.alerts.MetadataReceivedAlert;
 import org.libtorrent4j.alerts.PortmapErrorAlert;
 import org.libtorrent4j.alerts.SaveResumeDataAlert;
 import org.libtorrent4j.alerts.SessionErrorAlert;
-import org.libtorrent4j.alerts.TorrentAlert;
+import org.libtorrent4j.alerts.StateUpdateAlert;
 import org.libtorrent4j.swig.add_torrent_params;
 import org.libtorrent4j.swig.alert;
 import org.libtorrent4j.swig.alert_category_t;
@@ -65,12 +67,15 @@ import org.libtorrent4j.swig.string_vector;
 import org.libtorrent4j.swig.torrent_flags_t;
 import org.libtorrent4j.swig.torrent_handle;
 import org.proninyaroslav.libretorrent.core.exception.DecodeException;
+import org.proninyaroslav.libretorrent.core.exception.IPFilterException;
 import org.proninyaroslav.libretorrent.core.exception.TorrentAlreadyExistsException;
 import org.proninyaroslav.libretorrent.core.exception.UnknownUriException;
+import org.proninyaroslav.libretorrent.core.logger.LogEntry;
 import org.proninyaroslav.libretorrent.core.model.AddTorrentParams;
 import org.proninyaroslav.libretorrent.core.model.TorrentEngineListener;
 import org.proninyaroslav.libretorrent.core.model.data.MagnetInfo;
 import org.proninyaroslav.libretorrent.core.model.data.Priority;
+import org.proninyaroslav.libretorrent.core.model.data.SessionRestoreStats;
 import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
 import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
 import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
@@ -93,16 +98,16 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
@@ -125,9 +130,14 @@ public class TorrentSessionImpl extends SessionManager
             AlertType.PORTMAP_LOG.swig(),
             AlertType.TORRENT_LOG.swig(),
             AlertType.SESSION_STATS.swig(),
+            AlertType.STATE_UPDATE.swig(),
             AlertType.SAVE_RESUME_DATA.swig(),
+            AlertType.ALERTS_DROPPED.swig(),
     };
 
+    private static final int LISTENER_QUEUE_CAPACITY = 1024;
+    private static final int LOG_QUEUE_CAPACITY = 4096;
+
     /* Base unit in KiB. Used for create torrent */
     private static final int[] pieceSize = {0, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768};
     /* Possible torrent versions to create. Zero is hybrid */
@@ -137,11 +147,30 @@ public class TorrentSessionImpl extends SessionManager
 
     private final InnerListener innerListener;
     private final ConcurrentLinkedQueue<TorrentEngineListener> listeners = new ConcurrentLinkedQueue<>();
+    /* Listeners are called outside the alert thread, see ListenerNotifier */
+    private final BoundedWorkQueue listenerQueue = new BoundedWorkQueue("TorrentListeners",
+            LISTENER_QUEUE_CAPACITY, BoundedWorkQueue.OverflowPolicy.BLOCK);
+    private final BoundedWorkQueue logQueue = new BoundedWorkQueue("SessionLog",
+            LOG_QUEUE_CAPACITY, BoundedWorkQueue.OverflowPolicy.DROP);
+    private final ListenerNotifier notifier = new ListenerNotifier(listeners, listenerQueue);
+    private final AtomicLong droppedAlerts = new AtomicLong();
     private SessionSettings settings = new SessionSettings();
     private final ReentrantLock settingsLock = new ReentrantLock();
-    private final Queue<LoadTorrentTask> restoreTorrentsQueue = new LinkedList<>();
-    private final ExecutorService loadTorrentsExec;
+    private volatile TorrentRestorePipeline restorePipeline;
     private final ConcurrentHashMap<String, TorrentDownload> torrentTasks = new ConcurrentHashMap<>();
+    /* Paused torrents that are kept only in the database until they're needed */
+    private final Set<String> dormantTorrents = ConcurrentHashMap.newKeySet();
+    /*
+     * Actions waiting for the dormant torrent to be added to the session.
+     * The lists are modified only inside compute() and are run after removal
+     */
+    private final ConcurrentHashMap<String, List<Consumer<TorrentDownload>>> activateActions =
+            new ConcurrentHashMap<>();
+    private final TorrentStatusCache statusCache = new TorrentStatusCache();
+    private final TorrentAlertDispatcher alertDispatcher = new TorrentAlertDispatcher();
+    private final FastResumeWriter fastResumeWriter;
+    /* Stats of the current tick, sent after the torrents status is updated */
+    private final AtomicReference<SessionStats> pendingStats = new AtomicReference<>();
     /* Wait list for non added magnets */
     private final HashSet<String> magnets = new HashSet<>();
     private final ConcurrentHashMap<String, byte[]> loadedMagnets = new ConcurrentHashMap<>();
@@ -167,8 +196,8 @@ public class TorrentSessionImpl extends SessionManager
         this.repo = repo;
         this.fs = fs;
         this.system = system;
+        this.fastResumeWriter = new FastResumeWriter(repo);
         innerListener = new InnerListener();
-        loadTorrentsExec = Executors.newCachedThreadPool();
     }
 
     @Override
@@ -191,6 +220,131 @@ public class TorrentSessionImpl extends SessionManager
         return torrentTasks.get(id);
     }
 
+    @Override
+    public boolean isDormant(@NonNull String id) {
+        return dormantTorrents.contains(id);
+    }
+
+    @Override
+    public void activateTorrent(@NonNull String id, @Nullable Consumer<TorrentDownload> action) {
+        if (operationNotAllowed())
+            return;
+
+        TorrentDownload task = getTask(id);
+        if (task != null) {
+            if (action != null)
+                action.accept(task);
+            return;
+        }
+        if (!dormantTorrents.contains(id))
+            return;
+
+        /* Only the caller that creates the actions list adds the torrent */
+        final boolean[] first = {false};
+        List<Consumer<TorrentDownload>> actions = activateActions.compute(id, (k, list) -> {
+            if (list == null) {
+                /* Has been added after the check above */
+                if (!dormantTorrents.contains(id))
+                    return null;
+                list = new ArrayList<>();
+                first[0] = true;
+            }
+            if (action != null)
+                list.add(action);
+
+            return list;
+        });
+        if (actions == null) {
+            task = getTask(id);
+            if (task != null && action != null)
+                action.accept(task);
+            return;
+        }
+        if (!first[0])
+            return;
+
+        try {
+            FastResume fastResume = fastResumeWriter.get(id);
+            if (fastResume == null)
+                fastResume = repo.getFastResumeById(id);
+            if (fastResume == null)
+                throw new IOException("Fast resume data not found");
+
+            swig().async_add_torrent(TorrentRestorePipeline.decodeParams(fastResume.data,
+                    settings.autoManaged));
+
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to activate torrent " + id + ": " + Log.getStackTraceString(e));
+            activateActions.remove(id);
+            dormantTorrents.remove(id);
+            restoreSession.onRestoreError(id, e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public String makeDormantMagnet(@NonNull String id, boolean includePriorities) {
+        add_torrent_params p = getDormantParams(id);
+        if (p == null)
+            return null;
+
+        var params = new org.libtorrent4j.AddTorrentParams(p);
+        TorrentInfo ti = params.torrentInfo();
+        if (ti == null)
+            return null;
+
+        String uri = ti.makeMagnetUri();
+        if (includePriorities) {
+            String indices = TorrentDownloadImpl.getFileIndicesBep53(params.filePriorities());
+            if (!TextUtils.isEmpty(indices))
+                uri += "&so=" + indices;
+        }
+
+        return uri;
+    }
+
+    @Override
+    @Nullable
+    public byte[] getDormantBencode(@NonNull String id) {
+        add_torrent_params p = getDormantParams(id);
+        if (p == null)
+            return null;
+
+        try {
+            return Vectors.byte_vector2bytes(libtorrent.write_torrent_file_buf_ex(p));
+
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to build torrent file of " + id + ": " + Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
+    private add_torrent_params getDormantParams(String id) {
+        if (!dormantTorrents.contains(id))
+            return null;
+
+        FastResume fastResume = fastResumeWriter.get(id);
+        if (fastResume == null)
+            fastResume = repo.getFastResumeById(id);
+        if (fastResume == null)
+            return null;
+
+        try {
+            return TorrentRestorePipeline.decodeParams(fastResume.data, settings.autoManaged);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to read resume data of " + id + ": " + Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
+    private boolean canBeDormant(Torrent torrent) {
+        return settings.dormantPausedTorrents &&
+                torrent.manuallyPaused &&
+                !torrent.isDownloadingMetadata() &&
+                torrent.hasSavedStats();
+    }
+
     public void setSettings(@NonNull SessionSettings settings) {
         setSettings(settings, true);
     }
@@ -364,7 +518,12 @@ public class TorrentSessionImpl extends SessionManager
             return;
 
         TorrentDownload task = getTask(id);
-        if (task == null) {
+        if (task == null && withFiles && isDormant(id)) {
+            /* Files are deleted by the task */
+            activateTorrent(id, (t) -> t.remove(true));
+        } else if (task == null) {
+            dormantTorrents.remove(id);
+            fastResumeWriter.remove(id);
             Torrent torrent = repo.getTorrentById(id);
             if (torrent != null)
                 repo.deleteTorrent(torrent);
@@ -381,29 +540,24 @@ public class TorrentSessionImpl extends SessionManager
         if (operationNotAllowed())
             return;
 
+        TorrentRestorePipeline pipeline = restorePipeline;
+        if (pipeline != null && pipeline.isRunning())
+            return;
+
+        List<Torrent> torrents = new ArrayList<>();
         for (Torrent torrent : repo.getAllTorrents()) {
             if (torrent == null || isTorrentAlreadyRunning(torrent.id))
                 continue;
-
-            String path = null;
-            try {
-                path = fs.makeFileSystemPath(torrent.downloadPath);
-            } catch (UnknownUriException e) {
-                Log.e(TAG, "Unable to restore torrent:");
-                Log.e(TAG, Log.getStackTraceString(e));
-            }
-            LoadTorrentTask loadTask = new LoadTorrentTask(torrent.id);
-            if (path != null && torrent.isDownloadingMetadata()) {
-                loadTask.putMagnet(
-                        torrent.getMagnet(),
-                        new File(path),
-                        torrent.manuallyPaused,
-                        torrent.sequentialDownload
-                );
-            }
-            restoreTorrentsQueue.add(loadTask);
+            if (canBeDormant(torrent))
+                dormantTorrents.add(torrent.id);
+            else
+                torrents.add(torrent);
         }
-        runNextLoadTorrentTask();
+
+        pipeline = new TorrentRestorePipeline(repo, restoreSession, torrents,
+                settings.restoreInFlightLimit);
+        restorePipeline = pipeline;
+        pipeline.start();
     }
 
     @Override
@@ -692,15 +846,26 @@ public class TorrentSessionImpl extends SessionManager
             if (operationNotAllowed() || Thread.interrupted())
                 return;
 
-            IPFilterImpl filter = new IPFilterImpl();
-            int ruleCount = new IPFilterParser().parseFile(path, fs, filter);
+            IPFilterRanges ranges = new IPFilterParser().parseFile(path, fs);
             if (Thread.interrupted())
                 return;
-            if (ruleCount != 0 && swig() != null && !operationNotAllowed())
-                swig().set_ip_filter(filter.getFilter());
+
+            int ruleCount = ranges.ruleCount();
+            if (ruleCount != 0 && swig() != null && !operationNotAllowed()) {
+                IPFilterImpl filter = new IPFilterImpl();
+                try {
+                    ranges.applyTo(filter);
+                    swig().set_ip_filter(filter.getFilter());
+
+                } catch (IPFilterException e) {
+                    Log.e(TAG, "Unable to apply IP filter: " + Log.getStackTraceString(e));
+                    ruleCount = 0;
+                }
+            }
+            int parsedCount = ruleCount;
 
             notifyListeners((listener) ->
-                    listener.onIpFilterParsed(ruleCount));
+                    listener.onIpFilterParsed(parsedCount));
         });
         parseIpFilterThread.start();
     }
@@ -762,6 +927,8 @@ public class TorrentSessionImpl extends SessionManager
                 continue;
             task.resumeManually();
         }
+        for (String id : dormantTorrents)
+            activateTorrent(id, TorrentDownload::resumeManually);
     }
 
     @Override
@@ -888,6 +1055,8 @@ public class TorrentSessionImpl extends SessionManager
     }
 
     private void handleStoppingTasks() {
+        /* Resume data of all torrents have been received at this point */
+        fastResumeWriter.flush();
         /* Handles must be destructed before the session is destructed */
         torrentTasks.clear();
         checkStop();
@@ -930,6 +1099,7 @@ public class TorrentSessionImpl extends SessionManager
     protected void onBeforeStart() {
         addListener(torrentTaskListener);
         addListener(innerListener);
+        addListener(alertDispatcher);
     }
 
     @Override
@@ -970,13 +1140,24 @@ public class TorrentSessionImpl extends SessionManager
     @Override
     protected void onBeforeStop() {
         disposables.clear();
+        TorrentRestorePipeline pipeline = restorePipeline;
+        if (pipeline != null)
+            pipeline.cancel();
+        restorePipeline = null;
         started = false;
         enableSessionLogger(false);
         parseIpFilterThread = null;
         magnets.clear();
         loadedMagnets.clear();
+        dormantTorrents.clear();
+        activateActions.clear();
+        statusCache.clear();
+        pendingStats.set(null);
         removeListener(torrentTaskListener);
         removeListener(innerListener);
+        removeListener(alertDispatcher);
+        alertDispatcher.clear();
+        fastResumeWriter.flush();
     }
 
     @Override
@@ -1007,23 +1188,7 @@ public class TorrentSessionImpl extends SessionManager
         public void alert(Alert<?> alert) {
             switch (alert.type()) {
                 case ADD_TORRENT:
-                    TorrentAlert<?> torrentAlert = (TorrentAlert<?>) alert;
-                    TorrentHandle th = find(torrentAlert.handle().infoHash());
-                    if (th == null)
-                        break;
-                    String hash = th.infoHash().toHex();
-                    if (magnets.contains(hash))
-                        break;
-                    torrentTasks.put(hash, newTask(th, hash));
-                    if (addTorrentsList.contains(hash))
-                        notifyListeners((listener) ->
-                                listener.onTorrentAdded(hash));
-                    else
-                        notifyListeners((listener) ->
-                                listener.onTorrentLoaded(hash));
-                    addTorrentsList.remove(hash);
-                    checkStop();
-                    runNextLoadTorrentTask();
+                    handleTorrentAdded((AddTorrentAlert) alert);
                     break;
                 case METADATA_RECEIVED:
                     handleMetadataReceived((MetadataReceivedAlert) alert);
@@ -1031,50 +1196,52 @@ public class TorrentSessionImpl extends SessionManager
                 case SESSION_STATS:
                     handleStats();
                     break;
+                case STATE_UPDATE:
+                    handleStateUpdate((StateUpdateAlert) alert);
+                    break;
+                case ALERTS_DROPPED:
+                    droppedAlerts.incrementAndGet();
+                    Log.w(TAG, alert.message());
+                    break;
                 case SAVE_RESUME_DATA:
                     handleSaveMetadata((SaveResumeDataAlert) alert);
                 default:
                     checkError(alert);
-                    if (settings.logging)
-                        sessionLogger.send(alert);
+                    if (settings.logging) {
+                        LogEntry entry = sessionLogger.makeEntry(alert);
+                        if (entry != null)
+                            logQueue.submit(() -> sessionLogger.sendEntry(entry));
+                    }
                     break;
             }
         }
     }
 
     private void checkError(Alert<?> alert) {
-        notifyListeners((listener) -> {
-            String msg = null;
-            switch (alert.type()) {
-                case SESSION_ERROR: {
-                    SessionErrorAlert sessionErrorAlert = (SessionErrorAlert) alert;
-                    ErrorCode error = sessionErrorAlert.error();
-                    msg = SessionErrors.getErrorMsg(error);
-                    if (!SessionErrors.isNonCritical(error))
-                        listener.onSessionError(msg);
-                    break;
-                }
-                case LISTEN_FAILED: {
-                    ListenFailedAlert listenFailedAlert = (ListenFailedAlert) alert;
-                    msg = SessionErrors.getErrorMsg(listenFailedAlert.error());
-                    ErrorCode error = listenFailedAlert.error();
-                    if (!SessionErrors.isNonCritical(error))
-                        listener.onSessionError(msg);
-                    break;
-                }
-                case PORTMAP_ERROR: {
-                    PortmapErrorAlert portmapErrorAlert = (PortmapErrorAlert) alert;
-                    ErrorCode error = portmapErrorAlert.error();
-                    msg = SessionErrors.getErrorMsg(error);
-                    if (!SessionErrors.isNonCritical(error))
-                        listener.onNatError(msg);
-                    break;
-                }
-            }
+        ErrorCode error;
+        switch (alert.type()) {
+            case SESSION_ERROR:
+                error = ((SessionErrorAlert) alert).error();
+                break;
+            case LISTEN_FAILED:
+                error = ((ListenFailedAlert) alert).error();
+                break;
+            case PORTMAP_ERROR:
+                error = ((PortmapErrorAlert) alert).error();
+                break;
+            default:
+                return;
+        }
 
-            if (msg != null)
-                Log.e(TAG, "Session error: " + msg);
-        });
+        String msg = SessionErrors.getErrorMsg(error);
+        Log.e(TAG, "Session error: " + msg);
+        if (SessionErrors.isNonCritical(error))
+            return;
+
+        if (alert.type() == AlertType.PORTMAP_ERROR)
+            notifyListeners((listener) -> listener.onNatError(msg));
+        else
+            notifyListeners((listener) -> listener.onSessionError(msg));
     }
 
     private void handleMetadataReceived(MetadataReceivedAlert alert) {
@@ -1104,14 +1271,28 @@ public class TorrentSessionImpl extends SessionManager
         if (operationNotAllowed())
             return;
 
-        notifyListeners((listener) -> listener.onSessionStats(
-                new SessionStats(dhtNodes(),
-                        getTotalDownload(),
-                        getTotalUpload(),
-                        getDownloadSpeed(),
-                        getUploadSpeed(),
-                        getListenPort()))
-        );
+        pendingStats.set(new SessionStats(dhtNodes(),
+                getTotalDownload(),
+                getTotalUpload(),
+                getDownloadSpeed(),
+                getUploadSpeed(),
+                getListenPort()));
+        /*
+         * Request the status of all changed torrents with one native call.
+         * Listeners are notified about the stats once the status snapshots
+         * are updated, see handleStateUpdate()
+         */
+        swig().post_torrent_updates();
+    }
+
+    private void handleStateUpdate(StateUpdateAlert alert) {
+        statusCache.update(alert.status());
+
+        SessionStats stats = pendingStats.getAndSet(null);
+        if (stats == null || operationNotAllowed())
+            return;
+
+        notifyListeners((listener) -> listener.onSessionStats(stats));
     }
 
     private static String dhtBootstrapNodes() {
@@ -1341,7 +1522,8 @@ public class TorrentSessionImpl extends SessionManager
     }
 
     private TorrentDownload newTask(TorrentHandle th, String id) {
-        TorrentDownload task = new TorrentDownloadImpl(this, repo, fs, listeners,
+        TorrentDownload task = new TorrentDownloadImpl(this, repo, fs, statusCache,
+                alertDispatcher, fastResumeWriter, notifier,
                 id, th, settings.autoManaged);
         task.setMaxConnections(settings.connectionsLimitPerTorrent);
         task.setMaxUploads(settings.uploadsLimitPerTorrent);
@@ -1349,91 +1531,133 @@ public class TorrentSessionImpl extends SessionManager
         return task;
     }
 
-    private interface CallListener {
-        void apply(TorrentEngineListener listener);
+    private void notifyListeners(@NonNull ListenerNotifier.Call call) {
+        notifier.post(call);
     }
 
-    private void notifyListeners(@NonNull CallListener l) {
-        for (TorrentEngineListener listener : listeners) {
-            if (listener != null)
-                l.apply(listener);
-        }
+    private boolean isTorrentAlreadyRunning(String torrentId) {
+        return torrentTasks.containsKey(torrentId) || addTorrentsList.contains(torrentId);
     }
 
-    private void runNextLoadTorrentTask() {
-        if (operationNotAllowed()) {
-            restoreTorrentsQueue.clear();
-
-            return;
+    private void handleTorrentAdded(AddTorrentAlert alert) {
+        TorrentHandle th = find(alert.handle().infoHash());
+        if (th != null) {
+            String hash = th.infoHash().toHex();
+            if (!magnets.contains(hash)) {
+                TorrentDownload task = newTask(th, hash);
+                torrentTasks.put(hash, task);
+                dormantTorrents.remove(hash);
+                runActivateActions(hash, task);
+                if (addTorrentsList.contains(hash))
+                    notifyListeners((listener) ->
+                            listener.onTorrentAdded(hash));
+                else
+                    notifyListeners((listener) ->
+                            listener.onTorrentLoaded(hash));
+                addTorrentsList.remove(hash);
+                checkStop();
+            }
         }
 
-        LoadTorrentTask task;
+        TorrentRestorePipeline pipeline = restorePipeline;
+        if (pipeline == null && activateActions.isEmpty())
+            return;
         try {
-            task = restoreTorrentsQueue.poll();
+            String hash = alert.swig().getParams().getInfo_hashes().get_best().to_hex();
+            ErrorCode error = alert.error();
+            Exception err = (error.isError() ? new Exception(error.message()) : null);
+            if (pipeline != null)
+                pipeline.onTorrentAdded(hash, err);
+            if (err != null && activateActions.remove(hash) != null) {
+                dormantTorrents.remove(hash);
+                restoreSession.onRestoreError(hash, err);
+            }
 
         } catch (Exception e) {
-            Log.e(TAG, Log.getStackTraceString(e));
-
-            return;
+            Log.w(TAG, "Unable to get info hash of added torrent: " +
+                    Log.getStackTraceString(e));
         }
-
-        if (task != null)
-            loadTorrentsExec.execute(task);
     }
 
-    private boolean isTorrentAlreadyRunning(String torrentId) {
-        return torrentTasks.containsKey(torrentId) || addTorrentsList.contains(torrentId);
+    private void runActivateActions(String id, TorrentDownload task) {
+        List<Consumer<TorrentDownload>> actions = activateActions.remove(id);
+        if (actions == null)
+            return;
+
+        for (Consumer<TorrentDownload> action : actions) {
+            try {
+                action.accept(task);
+            } catch (Exception e) {
+                Log.e(TAG, "Error running action on activated torrent " + id + ": " +
+                        Log.getStackTraceString(e));
+            }
+        }
     }
 
-    private final class LoadTorrentTask implements Runnable {
-        private final String torrentId;
-        private File saveDir = null;
-        private String magnetUri = null;
-        private boolean isMagnet = false;
-        private boolean magnetPaused = false;
-        private boolean magnetSequentialDownload = false;
+    private final TorrentRestorePipeline.Session restoreSession = new TorrentRestorePipeline.Session() {
+        @Override
+        public boolean isStopped() {
+            return operationNotAllowed();
+        }
 
-        LoadTorrentTask(String torrentId) {
-            this.torrentId = torrentId;
+        @Override
+        public boolean isTorrentAlreadyRunning(@NonNull String id) {
+            return TorrentSessionImpl.this.isTorrentAlreadyRunning(id);
         }
 
-        public void putMagnet(
-                String magnetUri,
-                File saveDir,
-                boolean magnetPaused,
-                boolean magnetSequentialDownload
-        ) {
-            this.magnetUri = magnetUri;
-            this.saveDir = saveDir;
-            this.magnetPaused = magnetPaused;
-            this.magnetSequentialDownload = magnetSequentialDownload;
-            isMagnet = true;
+        @Override
+        public boolean isAutoManaged() {
+            return settings.autoManaged;
         }
 
         @Override
-        public void run() {
-            try {
-                if (isTorrentAlreadyRunning(torrentId))
-                    return;
+        public boolean addTorrent(@NonNull add_torrent_params params) {
+            if (operationNotAllowed())
+                return false;
 
-                if (isMagnet)
-                    download(magnetUri, saveDir, magnetPaused, magnetSequentialDownload);
-                else
-                    restoreDownload(torrentId);
+            swig().async_add_torrent(params);
+            return true;
+        }
 
-            } catch (Exception e) {
-                Log.e(TAG, "Unable to restore torrent from previous session: " + torrentId, e);
-                Torrent torrent = repo.getTorrentById(torrentId);
-                if (torrent != null) {
-                    torrent.error = e.toString();
-                    repo.updateTorrent(torrent);
-                }
+        @Override
+        public boolean addMagnet(@NonNull Torrent torrent) throws Exception {
+            String path = fs.makeFileSystemPath(torrent.downloadPath);
+            if (path == null)
+                throw new IOException("Unable to get download path");
+
+            return downloadMagnet(
+                    torrent.getMagnet(),
+                    new File(path),
+                    torrent.manuallyPaused,
+                    torrent.sequentialDownload
+            );
+        }
 
-                notifyListeners((listener) ->
-                        listener.onRestoreSessionError(torrentId));
+        @Override
+        public void onRestoreError(@NonNull String id, @NonNull Exception e) {
+            Log.e(TAG, "Unable to restore torrent from previous session: " + id, e);
+            Torrent torrent = repo.getTorrentById(id);
+            if (torrent != null) {
+                torrent.error = e.toString();
+                repo.updateTorrent(torrent);
             }
+
+            notifyListeners((listener) ->
+                    listener.onRestoreSessionError(id));
+        }
+
+        @Override
+        public void onRestoreProgress(int restored, int total) {
+            notifyListeners((listener) ->
+                    listener.onRestoreSessionProgress(restored, total));
         }
-    }
+
+        @Override
+        public void onRestored(@NonNull SessionRestoreStats stats) {
+            notifyListeners((listener) ->
+                    listener.onSessionRestored(stats));
+        }
+    };
 
     private void download(byte[] bencode, File saveDir,
                           Priority[] priorities, boolean sequentialDownload,
@@ -1512,9 +1736,22 @@ public class TorrentSessionImpl extends SessionManager
             File saveDir,
             boolean paused,
             boolean sequentialDownload
+    ) {
+        downloadMagnet(magnetUri, saveDir, paused, sequentialDownload);
+    }
+
+    /*
+     * Returns false if the magnet wasn't submitted to the session
+     */
+
+    private boolean downloadMagnet(
+            @NonNull String magnetUri,
+            File saveDir,
+            boolean paused,
+            boolean sequentialDownload
     ) {
         if (operationNotAllowed())
-            return;
+            return false;
 
         error_code ec = new error_code();
         add_torrent_params p = libtorrent.parse_magnet_uri(magnetUri, ec);
@@ -1524,11 +1761,11 @@ public class TorrentSessionImpl extends SessionManager
 
         sha1_hash info_hash = p.getInfo_hashes().get_best();
         if (info_hash == null)
-            return;
+            return false;
         torrent_handle th = swig().find_torrent(info_hash);
         if (th != null && th.is_valid()) {
             /* Found a download with the same hash */
-            return;
+            return false;
         }
 
         if (saveDir != null)
@@ -1554,6 +1791,8 @@ public class TorrentSessionImpl extends SessionManager
         addDefaultTrackers(p);
 
         swig().async_add_torrent(p);
+
+        return true;
     }
 
     private void addDefaultTrackers(add_torrent_params p) {
@@ -1569,46 +1808,26 @@ public class TorrentSessionImpl extends SessionManager
     }
 
     @Override
-    public void setDefaultTrackersList(@NonNull String[] trackersList) {
-        settings.defaultTrackersList = trackersList;
+    public List<AlertDispatchStats> getAlertDispatchStats() {
+        return alertDispatcher.getDispatchStats();
     }
 
-    private void restoreDownload(String id) throws IOException {
-        if (operationNotAllowed())
-            return;
-
-        FastResume fastResume = repo.getFastResumeById(id);
-        if (fastResume == null)
-            throw new IOException("Fast resume data not found");
-
-        error_code ec = new error_code();
-        byte_vector buffer = Vectors.bytes2byte_vector(fastResume.data);
-
-        bdecode_node n = new bdecode_node();
-        int ret = bdecode_node.bdecode(buffer, n, ec);
-        if (ret != 0)
-            throw new IllegalArgumentException("Can't decode data: " + ec.message());
-        ec.clear();
-
-        add_torrent_params p = libtorrent.read_resume_data(n, ec);
-        if (ec.value() != 0)
-            throw new IllegalArgumentException("Unable to read the resume data: " + ec.message());
-
-        torrent_flags_t flags = p.getFlags();
-        /* Disable force saving resume data, because they already have */
-        flags = flags.and_(TorrentFlags.NEED_SAVE_RESUME.inv());
-
-        if (settings.autoManaged)
-            flags = flags.or_(TorrentFlags.AUTO_MANAGED);
-        else
-            flags = flags.and_(TorrentFlags.AUTO_MANAGED.inv());
-
-        p.setFlags(flags);
+    @Override
+    public AlertThreadStats getAlertThreadStats() {
+        return new AlertThreadStats(
+                droppedAlerts.get(),
+                List.of(listenerQueue.getStats(), logQueue.getStats()),
+                notifier.getStats()
+        );
+    }
 
-        /* After reading the metadata some time may have passed */
-        if (operationNotAllowed())
-            return;
+    @Override
+    public FastResumeWriterStats getFastResumeWriterStats() {
+        return fastResumeWriter.getStats();
+    }
 
-        swig().async_add_torrent(p);
+    @Override
+    public void setDefaultTrackersList(@NonNull String[] trackersList) {
+        settings.defaultTrackersList = trackersList;
     }
 }
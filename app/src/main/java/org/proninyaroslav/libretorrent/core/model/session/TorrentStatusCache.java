@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.libtorrent4j.TorrentStatus;
+import org.libtorrent4j.swig.sha1_hash;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Keeps the latest status snapshot of every torrent in the session.
+ * Snapshots are refreshed in bulk once per session tick (see StateUpdateAlert),
+ * so that reading torrent info doesn't require a native status() call per field.
+ */
+
+class TorrentStatusCache {
+    private static final String TAG = TorrentStatusCache.class.getSimpleName();
+
+    private final ConcurrentHashMap<String, TorrentStatusSnapshot> snapshots =
+            new ConcurrentHashMap<>();
+
+    /*
+     * Apply the result of post_torrent_updates(). libtorrent only reports
+     * torrents whose status has changed since the previous call,
+     * the rest of the snapshots remain valid.
+     */
+
+    void update(@NonNull List<TorrentStatus> statusList) {
+        for (TorrentStatus ts : statusList) {
+            try {
+                sha1_hash hash = ts.swig().getInfo_hashes().get_best();
+                snapshots.put(hash.to_hex(), TorrentStatusSnapshot.fromStatus(ts));
+            } catch (Exception e) {
+                Log.w(TAG, "Unable to read torrent status: " + Log.getStackTraceString(e));
+            }
+        }
+    }
+
+    @NonNull
+    TorrentStatusSnapshot put(@NonNull String id, @NonNull TorrentStatus ts) {
+        TorrentStatusSnapshot snapshot = TorrentStatusSnapshot.fromStatus(ts);
+        snapshots.put(id, snapshot);
+
+        return snapshot;
+    }
+
+    @Nullable
+    TorrentStatusSnapshot get(@NonNull String id) {
+        return snapshots.get(id);
+    }
+
+    void remove(@NonNull String id) {
+        snapshots.remove(id);
+    }
+
+    void clear() {
+        snapshots.clear();
+    }
+
+    int size() {
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import org.libtorrent4j.TorrentFlags;
+import org.libtorrent4j.TorrentStatus;
+import org.libtorrent4j.swig.torrent_flags_t;
+
+/*
+ * Immutable copy of the libtorrent torrent_status. All fields are read
+ * from the native object once, so that the getters don't cross JNI.
+ */
+
+public record TorrentStatusSnapshot(
+        @NonNull TorrentStatus.State state,
+        boolean paused,
+        boolean autoManaged,
+        boolean sequentialDownload,
+        boolean finished,
+        boolean seeding,
+        float progress,
+        long totalDone,
+        long totalWanted,
+        long totalWantedDone,
+        long allTimeUpload,
+        long allTimeDownload,
+        int downloadPayloadRate,
+        int uploadPayloadRate,
+        int numPeers,
+        int numSeeds,
+        int numComplete,
+        int numIncomplete,
+        int listPeers,
+        int listSeeds,
+        int numPieces,
+        long activeDuration,
+        long seedingDuration,
+        long timestamp
+) {
+    public static TorrentStatusSnapshot fromStatus(@NonNull TorrentStatus ts) {
+        torrent_flags_t flags = ts.flags();
+
+        return new TorrentStatusSnapshot(
+                ts.state(),
+                flags.and_(TorrentFlags.PAUSED).non_zero(),
+                flags.and_(TorrentFlags.AUTO_MANAGED).non_zero(),
+                flags.and_(TorrentFlags.SEQUENTIAL_DOWNLOAD).non_zero(),
+                ts.isFinished(),
+                ts.isSeeding(),
+                ts.progress(),
+                ts.totalDone(),
+                ts.totalWanted(),
+                ts.totalWantedDone(),
+                ts.allTimeUpload(),
+                ts.allTimeDownload(),
+                ts.downloadPayloadRate(),
+                ts.uploadPayloadRate(),
+                ts.numPeers(),
+                ts.numSeeds(),
+                ts.numComplete(),
+                ts.numIncomplete(),
+                ts.listPeers(),
+                ts.listSeeds(),
+                ts.numPieces(),
+                ts.activeDuration(),
+                ts.seedingDuration(),
+                System.currentTimeMillis()
+        );
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.stream;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Bounded LRU cache of the piece data. The buffers of the evicted pieces
+ * are returned to the pool and reused, so that reading pieces doesn't
+ * allocate a new multi-megabyte array every time. Not thread-safe.
+ */
+
+class PieceCache {
+    private final int capacity;
+    private final int bufSize;
+    /* In access order, the eldest entry is evicted first */
+    private final LinkedHashMap<Integer, CachedPiece> pieces =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<byte[]> pool = new ArrayDeque<>();
+
+    private record CachedPiece(byte[] buf, int size) {
+    }
+
+    PieceCache(int capacity, int bufSize) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+
+        this.capacity = capacity;
+        this.bufSize = bufSize;
+    }
+
+    /*
+     * Doesn't change the access order
+     */
+
+    boolean contains(int piece) {
+        return pieces.containsKey(piece);
+    }
+
+    /*
+     * Returns false if the piece isn't cached
+     */
+
+    boolean read(int piece, int offset, byte[] dst, int dstOffset, int length) {
+        CachedPiece cached = pieces.get(piece);
+        if (cached == null)
+            return false;
+        if (offset < 0 || length < 0 || offset + length > cached.size)
+            throw new IndexOutOfBoundsException("Piece " + piece + ": offset=" + offset +
+                    ", length=" + length + ", size=" + cached.size);
+
+        System.arraycopy(cached.buf, offset, dst, dstOffset, length);
+
+        return true;
+    }
+
+    /*
+     * Returns a buffer for the piece data from the pool. The buffer must be
+     * passed to put() or release()
+     */
+
+    byte[] acquire() {
+        byte[] buf = pool.poll();
+
+        return (buf == null ? new byte[bufSize] : buf);
+    }
+
+    void release(byte[] buf) {
+        if (buf.length == bufSize && pool.size() < capacity)
+            pool.push(buf);
+    }
+
+    void put(int piece, byte[] buf, int size) {
+        if (size > buf.length)
+            throw new IllegalArgumentException("Size is greater than buffer length");
+
+        CachedPiece old = pieces.remove(piece);
+        if (old != null)
+            release(old.buf);
+
+        Iterator<Map.Entry<Integer, CachedPiece>> it = pieces.entrySet().iterator();
+        while (pieces.size() >= capacity && it.hasNext()) {
+            release(it.next().getValue().buf);
+            it.remove();
+        }
+        pieces.put(piece, new CachedPiece(buf, size));
+    }
+
+    int size() {
+        return pieces.size();
+    }
+
+    void clear() {
+        pieces.clear();
+        pool.clear();
+    }
+}
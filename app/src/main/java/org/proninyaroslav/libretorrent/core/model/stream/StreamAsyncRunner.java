@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.stream;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.nanohttpd.NanoHTTPD;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Runs the client connections of the streaming server in a bounded thread pool
+ * instead of a new thread per connection. Connections over the total limit
+ * or over the limit of one client address are closed immediately.
+ */
+
+class StreamAsyncRunner implements NanoHTTPD.AsyncRunner {
+    private static final String TAG = StreamAsyncRunner.class.getSimpleName();
+
+    private static final long IDLE_THREAD_TIMEOUT = 30; /* sec */
+
+    private final int maxConnections;
+    private final int maxConnectionsPerClient;
+    private final ThreadPoolExecutor executor;
+    /* Guarded by this */
+    private final HashSet<NanoHTTPD.ClientHandler> running = new HashSet<>();
+    /* Guarded by this */
+    private final HashMap<InetAddress, Integer> clientConnections = new HashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    StreamAsyncRunner(int maxConnections, int maxConnectionsPerClient) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                maxConnections,
+                maxConnections,
+                IDLE_THREAD_TIMEOUT,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                (r) -> {
+                    Thread t = new Thread(r, "TorrentStreamServer #" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void exec(NanoHTTPD.ClientHandler clientHandler) {
+        InetAddress address = clientHandler.getInetAddress();
+        synchronized (this) {
+            int clientCount = getClientCount(address);
+            if (running.size() >= maxConnections || clientCount >= maxConnectionsPerClient) {
+                reject(clientHandler, address);
+                return;
+            }
+            running.add(clientHandler);
+            clientConnections.put(address, clientCount + 1);
+        }
+
+        try {
+            executor.execute(clientHandler);
+
+        } catch (RejectedExecutionException e) {
+            closed(clientHandler);
+            reject(clientHandler, address);
+        }
+    }
+
+    @Override
+    public void closed(NanoHTTPD.ClientHandler clientHandler) {
+        synchronized (this) {
+            if (!running.remove(clientHandler))
+                return;
+
+            InetAddress address = clientHandler.getInetAddress();
+            int clientCount = getClientCount(address);
+            if (clientCount <= 1)
+                clientConnections.remove(address);
+            else
+                clientConnections.put(address, clientCount - 1);
+        }
+    }
+
+    @Override
+    public void closeAll() {
+        ArrayList<NanoHTTPD.ClientHandler> handlers;
+        synchronized (this) {
+            handlers = new ArrayList<>(running);
+        }
+        for (NanoHTTPD.ClientHandler handler : handlers)
+            handler.close();
+    }
+
+    synchronized int getActiveConnections() {
+        return running.size();
+    }
+
+    long getRejectedConnections() {
+        return rejectedCount.get();
+    }
+
+    private int getClientCount(InetAddress address) {
+        Integer count = clientConnections.get(address);
+
+        return (count == null ? 0 : count);
+    }
+
+    private void reject(@NonNull NanoHTTPD.ClientHandler clientHandler, InetAddress address) {
+        rejectedCount.incrementAndGet();
+        Log.w(TAG, "Too many connections, reject client " + address);
+        clientHandler.close();
+    }
+}
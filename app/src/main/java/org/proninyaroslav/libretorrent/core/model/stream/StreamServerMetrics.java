@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.stream;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Collects the traffic and the time to first byte of the streaming server.
+ * The time to first byte is measured from the start of the request until
+ * the first byte of the body is available, i.e. it includes waiting for pieces.
+ * A connection is served by a single thread, so the start time of the current
+ * request is kept per thread.
+ */
+
+class StreamServerMetrics {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong ttfbCount = new AtomicLong();
+    private final AtomicLong ttfbTotal = new AtomicLong();
+    private final AtomicLong ttfbMax = new AtomicLong();
+    private final ThreadLocal<Long> requestStartTime = new ThreadLocal<>();
+    /* Guarded by this */
+    private long lastSampleTime = SystemClock.elapsedRealtime();
+    private long lastSampleBytes;
+    private long bytesPerSecond;
+
+    void onRequestStarted() {
+        requests.incrementAndGet();
+        requestStartTime.set(SystemClock.elapsedRealtime());
+    }
+
+    /*
+     * Must be called on the connection thread
+     */
+
+    void onFirstByte() {
+        Long startTime = requestStartTime.get();
+        if (startTime == null)
+            return;
+
+        requestStartTime.remove();
+        long time = SystemClock.elapsedRealtime() - startTime;
+        ttfbCount.incrementAndGet();
+        ttfbTotal.addAndGet(time);
+        long max;
+        do {
+            max = ttfbMax.get();
+        } while (time > max && !ttfbMax.compareAndSet(max, time));
+    }
+
+    /*
+     * Counts all bytes written to the connection
+     */
+
+    OutputStream wrap(@NonNull OutputStream out) {
+        return new MeteredOutputStream(out);
+    }
+
+    /*
+     * Reports the first read from the response body
+     */
+
+    InputStream wrap(@NonNull InputStream in) {
+        return new FirstByteInputStream(in);
+    }
+
+    /*
+     * The transfer rate is averaged over the time since the previous call
+     */
+
+    @NonNull
+    synchronized StreamServerStats getStats(int activeConnections, long rejectedConnections) {
+        long now = SystemClock.elapsedRealtime();
+        long bytes = bytesServed.get();
+        long interval = now - lastSampleTime;
+        if (interval > 0) {
+            bytesPerSecond = (bytes - lastSampleBytes) * 1000 / interval;
+            lastSampleTime = now;
+            lastSampleBytes = bytes;
+        }
+        long count = ttfbCount.get();
+
+        return new StreamServerStats(
+                activeConnections,
+                rejectedConnections,
+                requests.get(),
+                bytes,
+                bytesPerSecond,
+                (count == 0 ? 0 : ttfbTotal.get() / count),
+                ttfbMax.get()
+        );
+    }
+
+    private class MeteredOutputStream extends FilterOutputStream {
+        MeteredOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesServed.incrementAndGet();
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesServed.addAndGet(len);
+        }
+    }
+
+    private class FirstByteInputStream extends FilterInputStream {
+        private boolean firstByte = true;
+
+        FirstByteInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            onRead();
+
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            onRead();
+
+            return n;
+        }
+
+        private void onRead() {
+            if (firstByte) {
+                firstByte = false;
+                onFirstByte();
+            }
+        }
+    }
+}
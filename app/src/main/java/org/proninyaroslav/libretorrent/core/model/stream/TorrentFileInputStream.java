@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.stream;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.system.FileDescriptorWrapper;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/*
+ * Reads the torrent file directly from the disk, bypassing the piece reading.
+ * Used only for the ranges that are completely downloaded.
+ */
+
+public class TorrentFileInputStream extends FileInputStream {
+    private final FileDescriptorWrapper fdWrapper;
+
+    public TorrentFileInputStream(@NonNull FileDescriptorWrapper fdWrapper,
+                                  @NonNull FileDescriptor fd) {
+        super(fd);
+
+        this.fdWrapper = fdWrapper;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            fdWrapper.close();
+        }
+    }
+}
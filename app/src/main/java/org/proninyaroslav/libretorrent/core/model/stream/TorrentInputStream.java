@@ -31,6 +31,7 @@ import org.proninyaroslav.libretorrent.core.model.session.TorrentSession;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashSet;
 import java.util.concurrent.locks.ReentrantLock;
 
 /*
@@ -46,50 +47,47 @@ import java.util.concurrent.locks.ReentrantLock;
  * (e.g 3 bytes            *         *                 *
  *  per piece)             |         |                 |
  *                     fileStart  filePos             EOF
+ *
+ * The read pieces are kept in the LRU cache. The pieces following
+ * the current position are read in advance, as soon as they are downloaded.
  */
 
 public class TorrentInputStream extends InputStream {
     public static final int EOF = -1;
+    public static final int DEFAULT_READ_AHEAD_PIECES = 4;
+    /* Max size of the cached pieces of one stream */
+    private static final long MAX_CACHE_SIZE = 32 * 1024 * 1024;
 
     private TorrentSession session;
     private final TorrentStream stream;
-    private ReadSession readSession;
+    /* Position relative to the beginning of the first file piece */
     private long filePos;
     private final long eof;
-    private byte[] cacheBuf;
-    private int cachePieceIndex = -1;
     private boolean stopped;
-    private static final ReentrantLock lock = new ReentrantLock();
+    /*
+     * Serializes reads of this stream only, so that a stream
+     * waiting for a piece doesn't block other streams
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] singleByteBuf = new byte[1];
+    /* Guarded by this */
+    private final PieceCache cache;
+    /* Pieces requested through readPiece() and not received yet. Guarded by this */
+    private final HashSet<Integer> pendingPieces = new HashSet<>();
+    private final int readAheadPieces;
+    /* The read-ahead window starts after this piece */
+    private volatile int lastReadPiece;
 
-    private static class ReadSession {
-        private int countLatch;
-        private Piece[] piecesForReading;
-        private byte[] buf;
+    public TorrentInputStream(@NonNull TorrentSession session, @NonNull TorrentStream stream) {
+        this(session, stream, DEFAULT_READ_AHEAD_PIECES);
     }
 
-    private static class Piece {
-        int index;
-        int readLength;
-        int readOffset;
-        int bufIndex;
-        boolean cache = false;
-
-        Piece(int index) {
-            this.index = index;
-        }
-
-        @Override
-        public int hashCode() {
-            return index;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            return o instanceof Piece && (o == this || index == ((Piece) o).index);
-        }
-    }
+    public TorrentInputStream(@NonNull TorrentSession session,
+                              @NonNull TorrentStream stream,
+                              int readAheadPieces) {
+        if (readAheadPieces < 0)
+            throw new IllegalArgumentException("Read-ahead must not be negative");
 
-    public TorrentInputStream(@NonNull TorrentSession session, @NonNull TorrentStream stream) {
         this.session = session;
         this.stream = stream;
         TorrentDownload task = session.getTask(stream.torrentId);
@@ -107,68 +105,62 @@ public class TorrentInputStream extends InputStream {
         filePos = firstPieceSize - (firstPieceEnd - stream.fileOffset);
         eof = filePos + stream.fileSize;
 
+        /* The current piece and the one being read also take the cache space */
+        int capacity = (int) Math.max(2, Math.min(readAheadPieces + 2,
+                MAX_CACHE_SIZE / Math.max(1, stream.pieceLength)));
+        this.readAheadPieces = Math.min(readAheadPieces, capacity - 2);
+        cache = new PieceCache(capacity, stream.pieceLength);
+        lastReadPiece = stream.firstFilePiece - 1;
+
         session.addListener(listener);
         task.setInterestedPieces(stream, stream.firstFilePiece, 1);
     }
 
     @Override
     protected void finalize() throws Throwable {
-        synchronized (this) {
-            stopped = true;
-            if (session != null)
-                session.removeListener(listener);
-            session = null;
-            notifyAll();
-        }
+        stop();
 
         super.finalize();
     }
 
-    private synchronized boolean waitForPiece(TorrentDownload task, int pieceIndex) {
-        while (!Thread.currentThread().isInterrupted() && !stopped) {
-            try {
-                if (task.havePiece(pieceIndex))
-                    return true;
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    private synchronized void stop() {
+        stopped = true;
+        if (session != null) {
+            session.removeListener(listener);
+            TorrentDownload task = session.getTask(stream.torrentId);
+            if (task != null)
+                task.resetInterestedPieces(stream);
         }
-
-        return false;
+        session = null;
+        pendingPieces.clear();
+        cache.clear();
+        notifyAll();
     }
 
-    private synchronized boolean waitForReadPieces() {
-        while (!Thread.currentThread().isInterrupted() && !stopped) {
-            try {
-                if (readSession != null && readSession.countLatch <= 0)
-                    return true;
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+    private TorrentDownload getTask() throws IOException {
+        TorrentSession s = session;
+        if (s == null)
+            throw new IOException("Torrent session is null");
 
-        return false;
-    }
+        TorrentDownload task = s.getTask(stream.torrentId);
+        if (task == null)
+            throw new IOException("Task " + stream.torrentId + " is null");
 
-    /*
-     * Calculate global file offset to local offset inside piece
-     */
+        return task;
+    }
 
-    private int filePosToPiecePos(int piece, long pos) {
-        int pieceLocalIndex = piece - stream.firstFilePiece;
-        int pieceSize = (piece == stream.lastFilePiece ?
+    private int pieceSize(int piece) {
+        return (piece == stream.lastFilePiece ?
                 stream.lastFilePieceSize :
                 stream.pieceLength);
-        long pieceEnd = (long) pieceLocalIndex * stream.pieceLength + pieceSize;
-
-        return pieceSize - (int) (pieceEnd - pos);
     }
 
-    private void readFromCache(Piece piece, byte[] b) {
-        System.arraycopy(cacheBuf, piece.readOffset, b,
-                piece.bufIndex, piece.readLength);
+    /*
+     * Calculate file position to local offset inside piece
+     */
+
+    private int filePosToPiecePos(int piece, long pos) {
+        return (int) (pos - (long) (piece - stream.firstFilePiece) * stream.pieceLength);
     }
 
     /*
@@ -184,57 +176,11 @@ public class TorrentInputStream extends InputStream {
         lock.lock();
 
         try {
-            if (session == null)
-                throw new IOException("Torrent session is null");
-
-            TorrentDownload task = session.getTask(stream.torrentId);
-            if (task == null)
-                throw new IOException("task " + stream.torrentId + " is null");
-
-            /* EOF check */
-            if (filePos == eof) {
-                cacheBuf = null;
-                return EOF;
-            }
-
-            /* Pieces definition that need to be read */
-            int p = stream.bytesToPieceIndex(filePos + 1);
-
-            task.setInterestedPieces(stream, p, 1);
-
-            readSession = new ReadSession();
-            readSession.piecesForReading = new Piece[1];
-            readSession.buf = new byte[1];
-            readSession.countLatch = 1;
-
-            Piece piece = new Piece(p);
-            piece.readOffset = filePosToPiecePos(p, filePos);
-            piece.readLength = 1;
-            piece.bufIndex = 0;
-
-            /* Check cache */
-            if (p == cachePieceIndex) {
-                readFromCache(piece, readSession.buf);
-                filePos++;
-
-                return toUnsignedByte(readSession.buf[0]);
-            }
-            piece.cache = true;
-            readSession.piecesForReading[0] = piece;
-
-            if (!waitForPiece(task, p))
-                return EOF;
-            /* Async piece reading */
-            task.readPiece(p);
+            int n = read(singleByteBuf, 0, 1);
 
-            if (!waitForReadPieces())
-                return EOF;
-            filePos++;
-
-            return toUnsignedByte(readSession.buf[0]);
+            return (n == EOF ? EOF : toUnsignedByte(singleByteBuf[0]));
 
         } finally {
-            readSession = null;
             lock.unlock();
         }
     }
@@ -249,89 +195,42 @@ public class TorrentInputStream extends InputStream {
             else if (len == 0)
                 return 0;
 
-            if (session == null)
-                throw new IOException("Torrent session is null");
-
-            TorrentDownload task = session.getTask(stream.torrentId);
-            if (task == null)
-                throw new IOException("Task " + stream.torrentId + " is null");
+            TorrentDownload task = getTask();
 
             /* EOF check */
-            if (filePos == eof) {
-                cacheBuf = null;
+            if (filePos == eof)
                 return EOF;
-            }
             if (filePos + len > eof)
                 len = (int) (eof - filePos);
 
-
             /* Pieces definition that need to be read */
-            int firstPiece = stream.bytesToPieceIndex(filePos + 1);
-            int lastPiece = stream.bytesToPieceIndex(filePos + len);
-            int numPieces = lastPiece - firstPiece + 1;
-
-            task.setInterestedPieces(stream, firstPiece, numPieces);
+            int firstPiece = stream.bytesToPieceIndex(filePos);
+            int lastPiece = stream.bytesToPieceIndex(filePos + len - 1);
 
-            readSession = new ReadSession();
-            readSession.piecesForReading = new Piece[numPieces];
-            readSession.buf = b;
-            readSession.countLatch = numPieces;
+            task.setInterestedPieces(stream, firstPiece, lastPiece - firstPiece + 1);
 
+            long pos = filePos;
             int bufIndex = off;
-            for (int p = firstPiece, i = 0; p <= lastPiece; p++, i++) {
-                int pieceSize;
-                if (p == stream.lastFilePiece)
-                    pieceSize = stream.lastFilePieceSize;
-                else
-                    pieceSize = stream.pieceLength;
-
-                Piece piece = new Piece(p);
-                piece.bufIndex = bufIndex;
-                piece.cache = p == lastPiece;
-
-                if (p == firstPiece)
-                    piece.readOffset = filePosToPiecePos(firstPiece, filePos);
-                else
-                    piece.readOffset = 0;
-
-                if (p == lastPiece && firstPiece != lastPiece) {
-                    piece.readLength = filePosToPiecePos(lastPiece, filePos + len);
-                } else {
-                    if (piece.readOffset + len > pieceSize)
-                        piece.readLength = pieceSize - piece.readOffset;
-                    else
-                        piece.readLength = len;
-                }
-                bufIndex += piece.readLength;
-
-                /* Check cache */
-                if (p == cachePieceIndex) {
-                    readFromCache(piece, b);
-                    /* Exit if there are no other pieces except cached */
-                    if (numPieces == 1) {
-                        filePos += len;
-
-                        return len;
-                    }
-                }
+            int remaining = len;
+            for (int p = firstPiece; p <= lastPiece; p++) {
+                int readOffset = filePosToPiecePos(p, pos);
+                int readLength = Math.min(pieceSize(p) - readOffset, remaining);
 
-                readSession.piecesForReading[i] = piece;
-
-                if (!waitForPiece(task, p))
+                if (!readFromPiece(task, p, readOffset, b, bufIndex, readLength))
                     return EOF;
-                /* Async pieces reading */
-                task.readPiece(p);
-            }
 
-            /* Wait for pieces reading */
-            if (!waitForReadPieces())
-                return EOF;
+                pos += readLength;
+                bufIndex += readLength;
+                remaining -= readLength;
+            }
             filePos += len;
 
+            lastReadPiece = lastPiece;
+            readAhead(task, lastPiece);
+
             return len;
 
         } finally {
-            readSession = null;
             lock.unlock();
         }
     }
@@ -341,15 +240,48 @@ public class TorrentInputStream extends InputStream {
         return read(b, 0, b.length);
     }
 
+    /*
+     * Copy the piece data from the cache, reading the piece if it's missing
+     */
+
+    private synchronized boolean readFromPiece(TorrentDownload task, int piece,
+                                               int offset, byte[] b, int off, int len) {
+        while (!Thread.currentThread().isInterrupted() && !stopped) {
+            if (cache.read(piece, offset, b, off, len))
+                return true;
+
+            /* Async piece reading, the result arrives in readPiece() */
+            if (!pendingPieces.contains(piece) && task.havePiece(piece)) {
+                pendingPieces.add(piece);
+                task.readPiece(piece);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Request the downloaded pieces following the given piece
+     */
+
+    private synchronized void readAhead(TorrentDownload task, int fromPiece) {
+        int last = Math.min(fromPiece + readAheadPieces, stream.lastFilePiece);
+        for (int p = fromPiece + 1; p <= last; p++) {
+            if (!cache.contains(p) && !pendingPieces.contains(p) && task.havePiece(p)) {
+                pendingPieces.add(p);
+                task.readPiece(p);
+            }
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        synchronized (this) {
-            stopped = true;
-            if (session != null)
-                session.removeListener(listener);
-            session = null;
-            notifyAll();
-        }
+        stop();
 
         super.close();
     }
@@ -370,10 +302,15 @@ public class TorrentInputStream extends InputStream {
 
             filePos += n;
 
-            if (session != null) {
-                TorrentDownload task = session.getTask(stream.torrentId);
-                if (task != null)
-                    task.setInterestedPieces(stream, stream.bytesToPieceIndex(filePos + 1), 1);
+            int piece = stream.bytesToPieceIndex(filePos);
+            lastReadPiece = piece - 1;
+            TorrentSession s = session;
+            if (s != null) {
+                TorrentDownload task = s.getTask(stream.torrentId);
+                if (task != null) {
+                    /* Seek, the old window is no longer needed */
+                    task.seekInterestedPieces(stream, piece, 1);
+                }
             }
 
             return n;
@@ -397,46 +334,52 @@ public class TorrentInputStream extends InputStream {
             if (!stream.torrentId.equals(id))
                 return;
 
-            pieceFinished();
+            pieceFinished(piece);
         }
     };
 
-    private synchronized void pieceFinished() {
+    private synchronized void pieceFinished(int piece) {
+        int from = lastReadPiece;
+        if (!stopped && piece > from && piece <= from + readAheadPieces &&
+                !cache.contains(piece) && !pendingPieces.contains(piece)) {
+            TorrentDownload task = session.getTask(stream.torrentId);
+            if (task != null) {
+                pendingPieces.add(piece);
+                task.readPiece(piece);
+            }
+        }
+
         notifyAll();
     }
 
     private synchronized void readPiece(ReadPieceInfo info) {
-        if (readSession == null)
+        /*
+         * Other streams of the same torrent may request the same piece,
+         * accept only the requested pieces and only once
+         */
+        if (!pendingPieces.remove(info.piece))
             return;
 
-        Piece piece = null;
-        for (Piece p : readSession.piecesForReading) {
-            if (p.index == info.piece) {
-                piece = p;
-                break;
+        try {
+            if (info.err != null) {
+                /* The reader will request the piece again */
+                TorrentDownload task = session.getTask(stream.torrentId);
+                if (task != null)
+                    task.resume();
+                return;
             }
-        }
-        if (readSession.countLatch > 0 && piece != null && readSession.buf != null) {
+
+            byte[] buf = cache.acquire();
             try {
-                if (info.err != null) {
-                    TorrentDownload task = session.getTask(stream.torrentId);
-                    if (task != null)
-                        task.resume();
-                    return;
-                }
-                Pointer ptr = new Pointer(info.bufferPtr);
-                if (piece.cache) {
-                    cacheBuf = new byte[info.size];
-                    ptr.read(0, cacheBuf, 0, info.size);
-                    cachePieceIndex = piece.index;
-                    readFromCache(piece, readSession.buf);
-                } else {
-                    ptr.read(piece.readOffset, readSession.buf, piece.bufIndex, piece.readLength);
-                }
-            } finally {
-                --readSession.countLatch;
-                notifyAll();
+                new Pointer(info.bufferPtr).read(0, buf, 0, info.size);
+            } catch (RuntimeException e) {
+                cache.release(buf);
+                throw e;
             }
+            cache.put(info.piece, buf, info.size);
+
+        } finally {
+            notifyAll();
         }
     }
-}
\ No newline at end of file
+}
@@ -36,6 +36,9 @@ import org.nanohttpd.NanoHTTPD;
 import org.proninyaroslav.libretorrent.core.model.TorrentEngine;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
@@ -52,6 +55,11 @@ public class TorrentStreamServer extends NanoHTTPD {
     private static final String TAG = TorrentStreamServer.class.getSimpleName();
 
     private static final String MIME_OCTET_STREAM = "application/octet-stream";
+    private static final int MAX_CONNECTIONS = 16;
+    /* Players and TVs open several connections for probing and seeking */
+    private static final int MAX_CONNECTIONS_PER_CLIENT = 6;
+    /* Idle time of a keep-alive connection before it's closed */
+    private static final int KEEP_ALIVE_TIMEOUT = 15000; /* ms */
 
     private static final HashMap<String, DLNAFileType> DLNA_FILE_TYPES;
 
@@ -63,9 +71,14 @@ public class TorrentStreamServer extends NanoHTTPD {
     }
 
     private TorrentEngine engine;
+    private final StreamAsyncRunner runner =
+            new StreamAsyncRunner(MAX_CONNECTIONS, MAX_CONNECTIONS_PER_CLIENT);
+    private final StreamServerMetrics metrics = new StreamServerMetrics();
 
     public TorrentStreamServer(@NonNull String host, int port) {
         super(host, port);
+
+        setAsyncRunner(runner);
     }
 
     public void start(@NonNull Context appContext) throws IOException {
@@ -73,7 +86,7 @@ public class TorrentStreamServer extends NanoHTTPD {
 
         engine = TorrentEngine.getInstance(appContext);
 
-        super.start();
+        super.start(KEEP_ALIVE_TIMEOUT);
     }
 
     @Override
@@ -103,8 +116,20 @@ public class TorrentStreamServer extends NanoHTTPD {
         }
     }
 
+    @NonNull
+    public StreamServerStats getStats() {
+        return metrics.getStats(runner.getActiveConnections(), runner.getRejectedConnections());
+    }
+
+    @Override
+    protected OutputStream createOutputStream(Socket socket) throws IOException {
+        return metrics.wrap(super.createOutputStream(socket));
+    }
+
     @Override
     public Response serve(IHTTPSession session) {
+        metrics.onRequestStarted();
+
         String uri = session.getUri();
         String extension = uri.substring(uri.lastIndexOf('.') + 1);
         DLNAFileType fileType = DLNA_FILE_TYPES.get(extension);
@@ -112,6 +137,7 @@ public class TorrentStreamServer extends NanoHTTPD {
         Response res = handleTorrent(session);
         if (fileType != null)
             fileType.setHeaders(res);
+        res.addHeader("Keep-Alive", "timeout=" + KEEP_ALIVE_TIMEOUT / 1000);
 
         return res;
     }
@@ -197,8 +223,7 @@ public class TorrentStreamServer extends NanoHTTPD {
                     if (newLen < 0)
                         newLen = 0;
 
-                    TorrentInputStream is = engine.getTorrentInputStream(stream);
-                    is.skip(startFrom);
+                    InputStream is = openStream(stream, startFrom, endAt);
 
                     res = newFixedLengthResponse(PARTIAL_CONTENT, MIME_OCTET_STREAM, is, newLen);
                     res.addHeader("Accept-Ranges", "bytes");
@@ -234,7 +259,7 @@ public class TorrentStreamServer extends NanoHTTPD {
                     res.addHeader("ETag", etag);
 
                 } else {
-                    TorrentInputStream is = engine.getTorrentInputStream(stream);
+                    InputStream is = openStream(stream, 0, stream.fileSize - 1);
                     res = newFixedLengthResponse(OK, MIME_OCTET_STREAM, is, stream.fileSize);
                     res.addHeader("Accept-Ranges", "bytes");
                     res.addHeader("Content-Length", "" + stream.fileSize);
@@ -251,6 +276,25 @@ public class TorrentStreamServer extends NanoHTTPD {
         }
     }
 
+    /*
+     * Completely downloaded ranges are read directly from the file,
+     * the rest through the piece reading
+     */
+
+    private InputStream openStream(TorrentStream stream, long startFrom, long endAt) {
+        InputStream is = engine.getCompletedRangeInputStream(stream, startFrom, endAt);
+        if (is != null) {
+            /* The data is already on the disk */
+            metrics.onFirstByte();
+            return is;
+        }
+
+        TorrentInputStream torrentStream = engine.getTorrentInputStream(stream);
+        torrentStream.skip(startFrom);
+
+        return metrics.wrap(torrentStream);
+    }
+
     record DLNAFileType(String extension, String mimeType, String dlnaContentFeatures,
                         String dlnaTransferMode) {
 
@@ -69,6 +69,8 @@ public class SessionSettings
     public static final boolean DEFAULT_USE_RANDOM_PORT = true;
     public static final boolean DEFAULT_VALIDATE_HTTPS_TRACKERS = true;
     public static final boolean DEFAULT_POSIX_DISK_IO = false;
+    public static final int DEFAULT_RESTORE_IN_FLIGHT_LIMIT = 64;
+    public static final boolean DEFAULT_DORMANT_PAUSED_TORRENTS = true;
 
     public int activeDownloads = DEFAULT_ACTIVE_DOWNLOADS;
     public int activeSeeds = DEFAULT_ACTIVE_SEEDS;
@@ -112,6 +114,10 @@ public class SessionSettings
     public String[] defaultTrackersList = new String[]{};
     public boolean validateHttpsTrackers = DEFAULT_VALIDATE_HTTPS_TRACKERS;
     public boolean posixDiskIo = DEFAULT_POSIX_DISK_IO;
+    /* Max number of torrents submitted to libtorrent but not yet added during session restore */
+    public int restoreInFlightLimit = DEFAULT_RESTORE_IN_FLIGHT_LIMIT;
+    /* Don't load manually paused torrents into the session until they're needed */
+    public boolean dormantPausedTorrents = DEFAULT_DORMANT_PAUSED_TORRENTS;
 
     public SessionSettings() {}
 
@@ -159,6 +165,8 @@ public class SessionSettings
         this.defaultTrackersList = other.defaultTrackersList;
         this.validateHttpsTrackers = other.validateHttpsTrackers;
         this.posixDiskIo = other.posixDiskIo;
+        this.restoreInFlightLimit = other.restoreInFlightLimit;
+        this.dormantPausedTorrents = other.dormantPausedTorrents;
     }
 
     public enum EncryptMode
@@ -243,6 +243,10 @@ public interface SettingsRepository
 
     void posixDiskIo(boolean val);
 
+    boolean resumeDataLog();
+
+    void resumeDataLog(boolean val);
+
     /*
      * Limitations settings
      */
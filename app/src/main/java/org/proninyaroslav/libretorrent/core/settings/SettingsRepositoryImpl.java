@@ -130,6 +130,7 @@ public class SettingsRepositoryImpl implements SettingsRepository {
 
         static final boolean watchDirDeleteFile = false;
         static final boolean posixDiskIo = SessionSettings.DEFAULT_POSIX_DISK_IO;
+        static final boolean resumeDataLog = false;
         static final boolean anonymousMode = SessionSettings.DEFAULT_ANONYMOUS_MODE;
         static final boolean seedingOutgoingConnections = SessionSettings.DEFAULT_SEEDING_OUTGOING_CONNECTIONS;
         /* Limitations settings */
@@ -858,6 +859,19 @@ public class SettingsRepositoryImpl implements SettingsRepository {
                 .apply();
     }
 
+    @Override
+    public boolean resumeDataLog() {
+        return pref.getBoolean(appContext.getString(R.string.pref_key_resume_data_log),
+                Default.resumeDataLog);
+    }
+
+    @Override
+    public void resumeDataLog(boolean val) {
+        pref.edit()
+                .putBoolean(appContext.getString(R.string.pref_key_resume_data_log), val)
+                .apply();
+    }
+
     @Override
     public boolean posixDiskIo() {
         return pref.getBoolean(appContext.getString(R.string.pref_key_posix_disk_io),
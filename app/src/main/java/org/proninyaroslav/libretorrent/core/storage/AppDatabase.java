@@ -51,7 +51,7 @@ import org.proninyaroslav.libretorrent.core.storage.dao.ErrorLogDao;
                 TorrentTagInfo.class,
                 ErrorLog.class,
         },
-        version = 10
+        version = 13
 )
 @TypeConverters({UriConverter.class})
 
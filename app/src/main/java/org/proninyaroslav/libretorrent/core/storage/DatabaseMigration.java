@@ -51,7 +51,10 @@ class DatabaseMigration
                 MIGRATION_6_7,
                 MIGRATION_7_8,
                 MIGRATION_8_9,
-                MIGRATION_9_10
+                MIGRATION_9_10,
+                MIGRATION_10_11,
+                MIGRATION_11_12,
+                MIGRATION_12_13
         };
     }
 
@@ -136,6 +139,33 @@ class DatabaseMigration
         }
     };
 
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `Torrent` ADD COLUMN `totalBytes` INTEGER NOT NULL DEFAULT -1");
+            database.execSQL("ALTER TABLE `Torrent` ADD COLUMN `receivedBytes` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `Torrent` ADD COLUMN `uploadedBytes` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `Torrent` ADD COLUMN `progress` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `FeedChannel` ADD COLUMN `etag` TEXT");
+            database.execSQL("ALTER TABLE `FeedChannel` ADD COLUMN `lastModified` TEXT");
+            database.execSQL("ALTER TABLE `FeedChannel` ADD COLUMN `contentHash` TEXT");
+        }
+    };
+
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_FeedItem_title` ON `FeedItem` (`title`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_FeedItem_fetchDate` ON `FeedItem` (`fetchDate`)");
+        }
+    };
+
     /*
      * Migration from old database (ver. 4) to Room (ver. 5).
      */
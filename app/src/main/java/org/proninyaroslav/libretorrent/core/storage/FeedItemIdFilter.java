@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.storage;
+
+import androidx.annotation.NonNull;
+
+import org.proninyaroslav.libretorrent.core.collections.BloomFilter;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
+
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * In-memory bloom filter of the saved item ids per feed channel,
+ * lets most of the "is this item new" checks skip the database.
+ * A filter is loaded from the database on the first check of its channel
+ * and is kept up to date by addItems(). Deleted items aren't removed
+ * from it, this only leads to false positives that are resolved by the
+ * database, so the filter never reports a saved item as missing.
+ */
+
+class FeedItemIdFilter {
+    private static final int MIN_CAPACITY = 1024;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    interface IdsLoader {
+        @NonNull
+        List<String> load(long feedId);
+    }
+
+    private final HashMap<Long, BloomFilter> filters = new HashMap<>();
+    private final IdsLoader loader;
+
+    FeedItemIdFilter(@NonNull IdsLoader loader) {
+        this.loader = loader;
+    }
+
+    /*
+     * Returns false if the item is definitely not saved
+     */
+
+    synchronized boolean mightContain(long feedId, @NonNull String itemId) {
+        BloomFilter filter = filters.get(feedId);
+        if (filter == null) {
+            filter = load(feedId);
+            filters.put(feedId, filter);
+        }
+
+        return filter.mightContain(itemId);
+    }
+
+    /*
+     * Must be called both before and after the items are inserted
+     * into the database: the former covers the already loaded filters,
+     * the latter covers the ones loaded in between
+     */
+
+    synchronized void add(@NonNull List<FeedItem> items) {
+        for (FeedItem item : items) {
+            if (item == null)
+                continue;
+
+            BloomFilter filter = filters.get(item.feedId);
+            if (filter == null)
+                continue;
+
+            filter.add(item.id);
+            /* Reload with a bigger capacity on the next check */
+            if (filter.isSaturated())
+                filters.remove(item.feedId);
+        }
+    }
+
+    synchronized void remove(long feedId) {
+        filters.remove(feedId);
+    }
+
+    private BloomFilter load(long feedId) {
+        List<String> ids = loader.load(feedId);
+        var filter = new BloomFilter(Math.max(MIN_CAPACITY, ids.size() * 2),
+                FALSE_POSITIVE_PROBABILITY);
+        for (String id : ids)
+            filter.add(id);
+
+        return filter;
+    }
+}
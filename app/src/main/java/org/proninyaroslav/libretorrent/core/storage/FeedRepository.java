@@ -47,6 +47,8 @@ public interface FeedRepository {
 
     int updateFeed(@NonNull FeedChannel channel);
 
+    void setLastUpdate(@NonNull List<Long> feedId, long lastUpdate);
+
     void deleteFeed(@NonNull FeedChannel channel);
 
     void deleteFeeds(@NonNull List<FeedChannel> feeds);
@@ -83,5 +85,12 @@ public interface FeedRepository {
 
     List<String> findItemsExistingTitles(@NonNull List<String> titles);
 
+    /*
+     * Cheaper than loading getItemsIdByFeedId(), most of the new items
+     * are rejected by an in-memory bloom filter without querying the database
+     */
+
+    boolean itemExists(long feedId, @NonNull String itemId);
+
     List<FeedItem> getItemsById(@NonNull String... itemsId);
 }
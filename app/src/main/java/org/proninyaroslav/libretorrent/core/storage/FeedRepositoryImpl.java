@@ -49,13 +49,17 @@ public class FeedRepositoryImpl implements FeedRepository {
     private static final String SERIALIZE_FILE_FORMAT = "json";
     private static final String SERIALIZE_MIME_TYPE = "application/json";
     private static final String FILTER_SEPARATOR = "\\|";
+    /* SQLite limit of host parameters is 999 before 3.32 */
+    private static final int MAX_QUERY_ARGS = 500;
 
     private final Context appContext;
     private final AppDatabase db;
+    private final FeedItemIdFilter itemIdFilter;
 
     public FeedRepositoryImpl(@NonNull Context appContext, @NonNull AppDatabase db) {
         this.appContext = appContext;
         this.db = db;
+        itemIdFilter = new FeedItemIdFilter((feedId) -> db.feedDao().getItemsIdByFeedId(feedId));
     }
 
     @Override
@@ -88,14 +92,22 @@ public class FeedRepositoryImpl implements FeedRepository {
         return db.feedDao().updateFeed(channel);
     }
 
+    @Override
+    public void setLastUpdate(@NonNull List<Long> feedId, long lastUpdate) {
+        db.feedDao().setLastUpdate(feedId, lastUpdate);
+    }
+
     @Override
     public void deleteFeed(@NonNull FeedChannel channel) {
         db.feedDao().deleteFeed(channel);
+        itemIdFilter.remove(channel.id);
     }
 
     @Override
     public void deleteFeeds(@NonNull List<FeedChannel> feeds) {
         db.feedDao().deleteFeeds(feeds);
+        for (FeedChannel channel : feeds)
+            itemIdFilter.remove(channel.id);
     }
 
     @Override
@@ -146,13 +158,25 @@ public class FeedRepositoryImpl implements FeedRepository {
                     }
                             .getType());
         }
+        if (feeds != null) {
+            /* The validators belong to the exporting device's HTTP cache, the first fetch must be full */
+            for (FeedChannel channel : feeds) {
+                if (channel != null) {
+                    channel.etag = null;
+                    channel.lastModified = null;
+                    channel.contentHash = null;
+                }
+            }
+        }
 
         return feeds;
     }
 
     @Override
     public void addItems(@NonNull List<FeedItem> items) {
+        itemIdFilter.add(items);
         db.feedDao().addItems(items);
+        itemIdFilter.add(items);
     }
 
     @Override
@@ -187,7 +211,21 @@ public class FeedRepositoryImpl implements FeedRepository {
 
     @Override
     public List<String> findItemsExistingTitles(@NonNull List<String> titles) {
-        return db.feedDao().findItemsExistingTitles(titles);
+        if (titles.size() <= MAX_QUERY_ARGS)
+            return db.feedDao().findItemsExistingTitles(titles);
+
+        ArrayList<String> existingTitles = new ArrayList<>();
+        for (int i = 0; i < titles.size(); i += MAX_QUERY_ARGS) {
+            int end = Math.min(i + MAX_QUERY_ARGS, titles.size());
+            existingTitles.addAll(db.feedDao().findItemsExistingTitles(titles.subList(i, end)));
+        }
+
+        return existingTitles;
+    }
+
+    @Override
+    public boolean itemExists(long feedId, @NonNull String itemId) {
+        return itemIdFilter.mightContain(feedId, itemId) && db.feedDao().itemExists(feedId, itemId);
     }
 
     @Override
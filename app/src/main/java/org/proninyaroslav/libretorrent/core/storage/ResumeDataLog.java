@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.storage;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of the fast resume data, an alternative to storing
+ * them in the FastResume table. Records are appended to the end of the
+ * file and read through a memory mapping, the offsets of the latest
+ * record of each torrent are kept in memory. The file is compacted
+ * when obsolete records take more space than the actual ones.
+ *
+ * Record format (big-endian):
+ *   int payload length, byte type, short id length, id (ASCII), data,
+ *   int CRC32 of the payload (type, id length, id, data).
+ * Records after the first corrupted or incomplete one are discarded.
+ */
+
+class ResumeDataLog implements Closeable {
+    private static final String TAG = ResumeDataLog.class.getSimpleName();
+
+    private static final int MAGIC = 0x4C54524C; /* "LTRL" */
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    /* Payload length, type, id length and CRC32 */
+    private static final int RECORD_OVERHEAD = 4 + 1 + 2 + 4;
+    static final long COMPACT_MIN_SIZE = 4 * 1024 * 1024;
+
+    private record Entry(long dataOffset, int dataLength, int recordSize) {
+    }
+
+    private final File file;
+    private final long compactMinSize;
+    private final TreeMap<String, Entry> index = new TreeMap<>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    /* Size of the valid part of the file */
+    private long size;
+    /* Total size of the actual records */
+    private long liveSize;
+
+    ResumeDataLog(@NonNull File file) throws IOException {
+        this(file, COMPACT_MIN_SIZE);
+    }
+
+    ResumeDataLog(@NonNull File file, long compactMinSize) throws IOException {
+        this.file = file;
+        this.compactMinSize = compactMinSize;
+        open();
+        maybeCompact();
+    }
+
+    synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    synchronized int count() {
+        return index.size();
+    }
+
+    synchronized long fileSize() {
+        return size;
+    }
+
+    @Nullable
+    synchronized FastResume get(@NonNull String torrentId) throws IOException {
+        Entry entry = index.get(torrentId);
+
+        return (entry == null ? null : new FastResume(torrentId, readData(entry)));
+    }
+
+    /*
+     * Returns up to limit records ordered by torrent id,
+     * starting after the given id (empty string for the first page)
+     */
+
+    @NonNull
+    synchronized List<FastResume> getPage(@NonNull String afterTorrentId, int limit) throws IOException {
+        List<FastResume> page = new ArrayList<>(Math.min(limit, index.size()));
+        for (Map.Entry<String, Entry> e : index.tailMap(afterTorrentId, false).entrySet()) {
+            if (page.size() >= limit)
+                break;
+            page.add(new FastResume(e.getKey(), readData(e.getValue())));
+        }
+
+        return page;
+    }
+
+    synchronized void put(@NonNull FastResume fastResume) throws IOException {
+        putAll(Collections.singletonList(fastResume));
+    }
+
+    /*
+     * Appends all records with a single write and sync
+     */
+
+    synchronized void putAll(@NonNull List<FastResume> fastResumeList) throws IOException {
+        if (fastResumeList.isEmpty())
+            return;
+
+        int total = 0;
+        byte[][] ids = new byte[fastResumeList.size()][];
+        for (int i = 0; i < ids.length; i++) {
+            FastResume fastResume = fastResumeList.get(i);
+            ids[i] = fastResume.torrentId.getBytes(StandardCharsets.US_ASCII);
+            total += RECORD_OVERHEAD + ids[i].length + fastResume.data.length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        long[] dataOffsets = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            FastResume fastResume = fastResumeList.get(i);
+            dataOffsets[i] = size + buf.position() + RECORD_OVERHEAD - 4 + ids[i].length;
+            writeRecord(buf, TYPE_PUT, ids[i], fastResume.data);
+        }
+        append(buf);
+
+        for (int i = 0; i < ids.length; i++) {
+            FastResume fastResume = fastResumeList.get(i);
+            int recordSize = RECORD_OVERHEAD + ids[i].length + fastResume.data.length;
+            putEntry(fastResume.torrentId,
+                    new Entry(dataOffsets[i], fastResume.data.length, recordSize));
+        }
+        maybeCompact();
+    }
+
+    synchronized void remove(@NonNull String torrentId) throws IOException {
+        if (!index.containsKey(torrentId))
+            return;
+
+        byte[] id = torrentId.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_OVERHEAD + id.length);
+        writeRecord(buf, TYPE_DELETE, id, new byte[0]);
+        append(buf);
+
+        removeEntry(torrentId);
+        maybeCompact();
+    }
+
+    /*
+     * Rewrites the file with the actual records only
+     */
+
+    synchronized void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fout = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fout))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                byte[] id = e.getKey().getBytes(StandardCharsets.US_ASCII);
+                byte[] data = readData(e.getValue());
+                ByteBuffer buf = ByteBuffer.allocate(RECORD_OVERHEAD + id.length + data.length);
+                writeRecord(buf, TYPE_PUT, id, data);
+                out.write(buf.array());
+            }
+            out.flush();
+            fout.getFD().sync();
+        }
+
+        closeFile();
+        if (!tmp.renameTo(file)) {
+            /* The old file is still intact */
+            tmp.delete();
+            open();
+            throw new IOException("Unable to replace " + file);
+        }
+        open();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeFile();
+        index.clear();
+    }
+
+    private void open() throws IOException {
+        index.clear();
+        liveSize = 0;
+        map = null;
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+
+        long fileSize = channel.size();
+        if (fileSize >= HEADER_SIZE) {
+            remap(fileSize);
+            if (map.getInt(0) == MAGIC && map.getInt(4) == VERSION) {
+                size = scan(fileSize);
+                if (size < fileSize) {
+                    Log.w(TAG, "Discarding corrupted tail of " + file + " at " + size);
+                    channel.truncate(size);
+                }
+                return;
+            }
+            Log.w(TAG, "Unknown format of " + file + ", resetting");
+        }
+
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        write(header, 0);
+        channel.force(false);
+        size = HEADER_SIZE;
+        map = null;
+    }
+
+    private void closeFile() throws IOException {
+        map = null;
+        if (channel != null)
+            channel.close();
+        if (raf != null)
+            raf.close();
+        channel = null;
+        raf = null;
+    }
+
+    /*
+     * Reads all records through the mapping and returns
+     * the end of the last valid one
+     */
+
+    private long scan(long fileSize) {
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[0];
+        long pos = HEADER_SIZE;
+
+        while (pos + 4 <= fileSize) {
+            int length = map.getInt((int) pos);
+            long end = pos + 4 + (long) length + 4;
+            if (length < 3 || end > fileSize)
+                break;
+
+            if (payload.length < length)
+                payload = new byte[Math.max(length, payload.length * 2)];
+            ByteBuffer b = map.duplicate();
+            b.position((int) pos + 4);
+            b.get(payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != map.getInt((int) (end - 4)))
+                break;
+
+            byte type = payload[0];
+            int idLength = ((payload[1] & 0xFF) << 8) | (payload[2] & 0xFF);
+            if (3 + idLength > length || (type != TYPE_PUT && type != TYPE_DELETE))
+                break;
+            String id = new String(payload, 3, idLength, StandardCharsets.US_ASCII);
+
+            if (type == TYPE_PUT)
+                putEntry(id, new Entry(pos + 4 + 3 + idLength, length - 3 - idLength,
+                        (int) (end - pos)));
+            else
+                removeEntry(id);
+
+            pos = end;
+        }
+
+        return pos;
+    }
+
+    private void putEntry(String id, Entry entry) {
+        Entry prev = index.put(id, entry);
+        if (prev != null)
+            liveSize -= prev.recordSize;
+        liveSize += entry.recordSize;
+    }
+
+    private void removeEntry(String id) {
+        Entry prev = index.remove(id);
+        if (prev != null)
+            liveSize -= prev.recordSize;
+    }
+
+    private static void writeRecord(ByteBuffer buf, byte type, byte[] id, byte[] data) {
+        int start = buf.position();
+        buf.putInt(3 + id.length + data.length);
+        buf.put(type);
+        buf.putShort((short) id.length);
+        buf.put(id);
+        buf.put(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), start + 4, buf.position() - start - 4);
+        buf.putInt((int) crc.getValue());
+    }
+
+    private void append(ByteBuffer buf) throws IOException {
+        buf.flip();
+        int length = buf.remaining();
+        write(buf, size);
+        channel.force(false);
+        size += length;
+    }
+
+    private void write(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining())
+            position += channel.write(buf, position);
+    }
+
+    private byte[] readData(Entry entry) throws IOException {
+        long end = entry.dataOffset + entry.dataLength;
+        if (map == null || map.capacity() < end)
+            remap(size);
+
+        byte[] data = new byte[entry.dataLength];
+        ByteBuffer b = map.duplicate();
+        b.position((int) entry.dataOffset);
+        b.get(data);
+
+        return data;
+    }
+
+    private void remap(long length) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Resume data log is too large: " + length);
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    private void maybeCompact() throws IOException {
+        long garbage = size - HEADER_SIZE - liveSize;
+        if (size >= compactMinSize && garbage > liveSize)
+            compact();
+    }
+}
@@ -24,6 +24,7 @@ import androidx.annotation.NonNull;
 import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TagInfo;
 import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
+import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentWithTags;
 
 import java.io.IOException;
 import java.util.List;
@@ -47,10 +48,33 @@ public interface TorrentRepository
 
     List<Torrent> getAllTorrents();
 
+    /*
+     * Returns torrents with their tags from the in-memory index,
+     * the database is queried only after the tables have changed.
+     * The returned objects are shared, do not modify them
+     */
+
+    List<TorrentWithTags> getAllTorrentsWithTags();
+
+    TorrentWithTags getTorrentWithTagsById(@NonNull String id);
+
     void addFastResume(@NonNull FastResume fastResume);
 
+    /*
+     * Inserts all records in a single transaction
+     */
+
+    void addFastResumeList(@NonNull List<FastResume> fastResumeList);
+
     FastResume getFastResumeById(@NonNull String torrentId);
 
+    /*
+     * Returns up to limit records ordered by torrent id,
+     * starting after the given id (empty string for the first page)
+     */
+
+    List<FastResume> getFastResumePage(@NonNull String afterTorrentId, int limit);
+
     void saveSession(@NonNull byte[] data) throws IOException;
 
     String getSessionFile();
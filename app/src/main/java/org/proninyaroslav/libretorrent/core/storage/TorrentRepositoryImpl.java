@@ -20,49 +20,104 @@
 package org.proninyaroslav.libretorrent.core.storage;
 
 import android.content.Context;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
 
 import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TagInfo;
 import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentTagInfo;
+import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentWithTags;
 import org.proninyaroslav.libretorrent.core.system.SystemFacadeHelper;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
 
 public class TorrentRepositoryImpl implements TorrentRepository {
+    private static final String TAG = TorrentRepositoryImpl.class.getSimpleName();
+
     private static final class FileDataModel {
         private static final String TORRENT_SESSION_FILE = "session";
+        private static final String RESUME_DATA_LOG_FILE = "resume_data.log";
     }
 
+    private static final int RESUME_DATA_MIGRATION_PAGE_SIZE = 100;
+
     private final Context appContext;
     private final AppDatabase db;
+    private final boolean useResumeDataLog;
+    /* Null if the resume data are stored in the database, see initResumeData() */
+    private ResumeDataLog resumeDataLog;
+    private boolean resumeDataInitialized;
+    /* In-memory index of torrents with tags, see getAllTorrentsWithTags() */
+    private final Object torrentsIndexLock = new Object();
+    private Map<String, TorrentWithTags> torrentsIndex;
+    private long torrentsIndexVersion;
+    private final InvalidationTracker.Observer torrentsObserver =
+            new InvalidationTracker.Observer("Torrent", "TagInfo", "TorrentTagInfo") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidateTorrentsIndex();
+                }
+            };
 
     public TorrentRepositoryImpl(@NonNull Context appContext, @NonNull AppDatabase db) {
+        this(appContext, db, false);
+    }
+
+    public TorrentRepositoryImpl(@NonNull Context appContext,
+                                 @NonNull AppDatabase db,
+                                 boolean useResumeDataLog) {
         this.appContext = appContext;
         this.db = db;
+        this.useResumeDataLog = useResumeDataLog;
+        /* Catches changes made outside of this repository, e.g. tag renaming */
+        db.getInvalidationTracker().addObserver(torrentsObserver);
     }
 
     @Override
     public void addTorrent(@NonNull Torrent torrent) {
         db.torrentDao().add(torrent);
+        invalidateTorrentsIndex();
     }
 
     @Override
     public void updateTorrent(@NonNull Torrent torrent) {
         db.torrentDao().update(torrent);
+        invalidateTorrentsIndex();
     }
 
     @Override
     public void deleteTorrent(@NonNull Torrent torrent) {
-        db.torrentDao().delete(torrent);
+        /* The database removes the resume data by cascade, but the log doesn't */
+        ResumeDataLog log = initResumeData();
+        if (log == null) {
+            db.torrentDao().delete(torrent);
+            invalidateTorrentsIndex();
+            return;
+        }
+
+        /* Don't let addFastResumeList() write between deleting the row and the record */
+        synchronized (log) {
+            db.torrentDao().delete(torrent);
+            invalidateTorrentsIndex();
+            try {
+                log.remove(torrent.id);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to remove resume data: " + Log.getStackTraceString(e));
+            }
+        }
     }
 
     @Override
@@ -85,14 +140,173 @@ public class TorrentRepositoryImpl implements TorrentRepository {
         return db.torrentDao().getAllTorrents();
     }
 
+    @Override
+    public List<TorrentWithTags> getAllTorrentsWithTags() {
+        return new ArrayList<>(getTorrentsIndex().values());
+    }
+
+    @Override
+    public TorrentWithTags getTorrentWithTagsById(@NonNull String id) {
+        return getTorrentsIndex().get(id);
+    }
+
+    private Map<String, TorrentWithTags> getTorrentsIndex() {
+        long version;
+        synchronized (torrentsIndexLock) {
+            if (torrentsIndex != null) {
+                return torrentsIndex;
+            }
+            version = torrentsIndexVersion;
+        }
+
+        var index = new LinkedHashMap<String, TorrentWithTags>();
+        for (var torrent : db.torrentDao().getAllTorrentsWithTags()) {
+            index.put(torrent.torrent.id, torrent);
+        }
+        var unmodifiableIndex = Collections.unmodifiableMap(index);
+
+        synchronized (torrentsIndexLock) {
+            /* Don't cache if the tables were changed during loading */
+            if (version == torrentsIndexVersion) {
+                torrentsIndex = unmodifiableIndex;
+            }
+        }
+
+        return unmodifiableIndex;
+    }
+
+    private void invalidateTorrentsIndex() {
+        synchronized (torrentsIndexLock) {
+            torrentsIndexVersion++;
+            torrentsIndex = null;
+        }
+    }
+
     @Override
     public void addFastResume(@NonNull FastResume fastResume) {
-        db.fastResumeDao().add(fastResume);
+        addFastResumeList(Collections.singletonList(fastResume));
+    }
+
+    @Override
+    public void addFastResumeList(@NonNull List<FastResume> fastResumeList) {
+        ResumeDataLog log = initResumeData();
+        if (log == null) {
+            db.fastResumeDao().add(fastResumeList);
+            return;
+        }
+        try {
+            synchronized (log) {
+                /*
+                 * Unlike the FastResume table, the log has no foreign key.
+                 * Skip resume data of the deleted torrents, e.g. saved
+                 * by a late alert, otherwise it would be kept forever
+                 */
+                List<FastResume> existing = new ArrayList<>(fastResumeList.size());
+                for (FastResume fastResume : fastResumeList) {
+                    if (db.torrentDao().exists(fastResume.torrentId))
+                        existing.add(fastResume);
+                }
+                log.putAll(existing);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
     public FastResume getFastResumeById(@NonNull String torrentId) {
-        return db.fastResumeDao().getByTorrentId(torrentId);
+        ResumeDataLog log = initResumeData();
+        if (log == null)
+            return db.fastResumeDao().getByTorrentId(torrentId);
+
+        try {
+            return log.get(torrentId);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read resume data: " + Log.getStackTraceString(e));
+            return null;
+        }
+    }
+
+    @Override
+    public List<FastResume> getFastResumePage(@NonNull String afterTorrentId, int limit) {
+        ResumeDataLog log = initResumeData();
+        if (log == null)
+            return db.fastResumeDao().getPage(afterTorrentId, limit);
+
+        try {
+            return log.getPage(afterTorrentId, limit);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read resume data: " + Log.getStackTraceString(e));
+            return new ArrayList<>();
+        }
+    }
+
+    /*
+     * Opens the resume data log if it's enabled and moves the resume data
+     * between the database and the log if the storage has been changed.
+     * Falls back to the database if the log can't be opened.
+     * Do not run in the UI thread
+     */
+
+    private synchronized ResumeDataLog initResumeData() {
+        if (resumeDataInitialized)
+            return resumeDataLog;
+        resumeDataInitialized = true;
+
+        File file = new File(appContext.getFilesDir(), FileDataModel.RESUME_DATA_LOG_FILE);
+        try {
+            if (useResumeDataLog) {
+                resumeDataLog = new ResumeDataLog(file);
+                moveResumeDataToLog(resumeDataLog);
+            } else if (file.exists()) {
+                moveResumeDataToDatabase(file);
+            }
+
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open resume data log, using database: " +
+                    Log.getStackTraceString(e));
+            if (resumeDataLog != null) {
+                try {
+                    resumeDataLog.close();
+                } catch (IOException ignored) {
+                }
+            }
+            resumeDataLog = null;
+        }
+
+        return resumeDataLog;
+    }
+
+    private void moveResumeDataToLog(ResumeDataLog log) throws IOException {
+        var dao = db.fastResumeDao();
+        String lastId = "";
+        List<FastResume> page;
+        while (!(page = dao.getPage(lastId, RESUME_DATA_MIGRATION_PAGE_SIZE)).isEmpty()) {
+            log.putAll(page);
+            lastId = page.get(page.size() - 1).torrentId;
+        }
+        if (!lastId.isEmpty())
+            dao.deleteAll();
+    }
+
+    private void moveResumeDataToDatabase(File file) throws IOException {
+        var dao = db.fastResumeDao();
+        try (ResumeDataLog log = new ResumeDataLog(file)) {
+            String lastId = "";
+            List<FastResume> page;
+            while (!(page = log.getPage(lastId, RESUME_DATA_MIGRATION_PAGE_SIZE)).isEmpty()) {
+                /* Skip resume data of the deleted torrents */
+                List<FastResume> existing = new ArrayList<>(page.size());
+                for (FastResume fastResume : page) {
+                    if (db.torrentDao().getTorrentById(fastResume.torrentId) != null)
+                        existing.add(fastResume);
+                }
+                dao.add(existing);
+                lastId = page.get(page.size() - 1).torrentId;
+            }
+        }
+        if (!file.delete())
+            Log.w(TAG, "Unable to delete " + file);
     }
 
     // TODO
@@ -134,15 +348,18 @@ public class TorrentRepositoryImpl implements TorrentRepository {
             tagInfoList.add(new TorrentTagInfo(tag.id, torrentId));
         }
         db.torrentDao().replaceTags(torrentId, tagInfoList);
+        invalidateTorrentsIndex();
     }
 
     @Override
     public void addTag(@NonNull String torrentId, @NonNull TagInfo tag) {
         db.torrentDao().addTag(new TorrentTagInfo(tag.id, torrentId));
+        invalidateTorrentsIndex();
     }
 
     @Override
     public void deleteTag(@NonNull String torrentId, @NonNull TagInfo tag) {
         db.torrentDao().deleteTag(new TorrentTagInfo(tag.id, torrentId));
+        invalidateTorrentsIndex();
     }
 }
@@ -7,12 +7,23 @@ import androidx.room.Query;
 
 import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
 
+import java.util.List;
+
 @Dao
 public interface FastResumeDao
 {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void add(FastResume fastResume);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void add(List<FastResume> fastResumeList);
+
     @Query("SELECT * FROM FastResume WHERE torrentId = :torrentId")
     FastResume getByTorrentId(String torrentId);
+
+    @Query("SELECT * FROM FastResume WHERE torrentId > :afterTorrentId ORDER BY torrentId LIMIT :limit")
+    List<FastResume> getPage(String afterTorrentId, int limit);
+
+    @Query("DELETE FROM FastResume")
+    void deleteAll();
 }
@@ -43,9 +43,11 @@ public interface FeedDao {
     String QUERY_MARK_AS_READ = "UPDATE FeedItem SET read = 1 WHERE id = :itemId";
     String QUERY_MARK_AS_UNREAD = "UPDATE FeedItem SET read = 0 WHERE id = :itemId";
     String QUERY_MARK_AS_READ_BY_FEED_ID = "UPDATE FeedItem SET read = 1 WHERE feedId IN (:feedId)";
+    String QUERY_SET_LAST_UPDATE = "UPDATE FeedChannel SET lastUpdate = :lastUpdate WHERE id IN (:feedId)";
     String QUERY_GET_ITEMS_BY_FEED_ID = "SELECT * FROM FeedItem WHERE feedId = :feedId";
     String QUERY_GET_ITEMS_ID_BY_FEED_ID = "SELECT id FROM FeedItem WHERE feedId = :feedId";
     String QUERY_FIND_ITEMS_EXISTING_TITLES = "SELECT title FROM FeedItem WHERE title IN (:titles)";
+    String QUERY_ITEM_EXISTS = "SELECT EXISTS(SELECT 1 FROM FeedItem WHERE id = :itemId AND feedId = :feedId)";
     String QUERY_GET_ITEMS_BY_ID = "SELECT * FROM FeedItem WHERE id IN (:itemsId)";
     String QUERY_GET_UNREAD_ITEMS_COUNT = "SELECT feedId, COUNT(*) as count FROM FeedItem WHERE read = 0 GROUP BY feedId";
     String QUERY_GET_UNREAD_FEED_ID_LIST = "SELECT DISTINCT feedId FROM FeedItem WHERE read = 0";
@@ -59,6 +61,9 @@ public interface FeedDao {
     @Update
     int updateFeed(FeedChannel channel);
 
+    @Query(QUERY_SET_LAST_UPDATE)
+    void setLastUpdate(List<Long> feedId, long lastUpdate);
+
     @Delete
     void deleteFeed(FeedChannel channel);
 
@@ -101,6 +106,9 @@ public interface FeedDao {
     @Query(QUERY_FIND_ITEMS_EXISTING_TITLES)
     List<String> findItemsExistingTitles(List<String> titles);
 
+    @Query(QUERY_ITEM_EXISTS)
+    boolean itemExists(long feedId, String itemId);
+
     @Query(QUERY_GET_ITEMS_BY_ID)
     List<FeedItem> getItemsById(String... itemsId);
 
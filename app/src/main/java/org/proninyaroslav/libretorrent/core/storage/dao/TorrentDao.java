@@ -28,6 +28,7 @@ import androidx.room.Update;
 
 import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentTagInfo;
+import org.proninyaroslav.libretorrent.core.model.data.entity.TorrentWithTags;
 
 import java.util.List;
 
@@ -48,12 +49,19 @@ public abstract class TorrentDao {
     @Query("SELECT * FROM Torrent")
     public abstract List<Torrent> getAllTorrents();
 
+    @Transaction
+    @Query("SELECT * FROM Torrent")
+    public abstract List<TorrentWithTags> getAllTorrentsWithTags();
+
     @Query("SELECT * FROM Torrent WHERE id = :id")
     public abstract Torrent getTorrentById(String id);
 
     @Query("SELECT * FROM Torrent WHERE id = :id")
     public abstract Single<Torrent> getTorrentByIdSingle(String id);
 
+    @Query("SELECT EXISTS(SELECT 1 FROM Torrent WHERE id = :id)")
+    public abstract boolean exists(String id);
+
     @Query("SELECT * FROM Torrent WHERE id = :id")
     public abstract Flowable<Torrent> observeTorrentById(String id);
 
@@ -79,6 +79,8 @@ public interface FileSystemFacade
 
     File getTempDir();
 
+    File getCacheDir();
+
     void cleanTempDir() throws IOException;
 
     File makeTempFile(@NonNull String postfix);
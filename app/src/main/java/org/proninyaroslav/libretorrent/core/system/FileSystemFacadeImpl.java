@@ -292,6 +292,16 @@ class FileSystemFacadeImpl implements FileSystemFacade
         return tmpDir;
     }
 
+    /*
+     * Private app cache, may be cleared by the system at any time
+     */
+
+    @Override
+    public File getCacheDir()
+    {
+        return appContext.getCacheDir();
+    }
+
     @Override
     public void cleanTempDir() throws IOException
     {
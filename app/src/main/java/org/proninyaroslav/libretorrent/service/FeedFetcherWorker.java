@@ -19,8 +19,8 @@
 
 package org.proninyaroslav.libretorrent.service;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -31,18 +31,22 @@ import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
+import org.proninyaroslav.libretorrent.core.FeedFetcher;
+import org.proninyaroslav.libretorrent.core.FeedItemCollector;
 import org.proninyaroslav.libretorrent.core.FeedParser;
 import org.proninyaroslav.libretorrent.core.RepositoryHelper;
+import org.proninyaroslav.libretorrent.core.filter.FeedItemFilter;
 import org.proninyaroslav.libretorrent.core.model.data.entity.FeedChannel;
 import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
 import org.proninyaroslav.libretorrent.core.settings.SettingsRepository;
 import org.proninyaroslav.libretorrent.core.storage.FeedRepository;
 import org.proninyaroslav.libretorrent.core.utils.Utils;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.Objects;
 
 /*
  * The worker for fetching items from RSS/Atom channels.
@@ -88,10 +92,11 @@ public class FeedFetcherWorker extends Worker {
         }
 
         return switch (action) {
-            case ACTION_FETCH_CHANNEL -> fetchChannel(data.getLong(TAG_CHANNEL_ID, -1),
-                    keepDateBorderTime, forceAutoDownload);
+            case ACTION_FETCH_CHANNEL ->
+                    fetchChannelsById(new long[]{data.getLong(TAG_CHANNEL_ID, -1)},
+                            keepDateBorderTime, forceAutoDownload);
             case ACTION_FETCH_CHANNEL_LIST ->
-                    fetchChannelsByUrl(data.getLongArray(TAG_CHANNEL_ID_LIST),
+                    fetchChannelsById(data.getLongArray(TAG_CHANNEL_ID_LIST),
                             keepDateBorderTime, forceAutoDownload);
             case ACTION_FETCH_ALL_CHANNELS -> fetchChannels(repo.getAllFeeds(),
                     keepDateBorderTime, forceAutoDownload);
@@ -99,77 +104,130 @@ public class FeedFetcherWorker extends Worker {
         };
     }
 
-    @SuppressLint("RestrictedApi")
-    private Result fetchChannelsByUrl(long[] ids, long acceptMinDate,
-                                      boolean noAutoDownload) {
+    private Result fetchChannelsById(long[] ids, long acceptMinDate,
+                                     boolean forceAutoDownload) {
         if (ids == null) {
             return Result.failure();
         }
 
-        ArrayList<Result> results = new ArrayList<>();
+        boolean notFound = false;
+        ArrayList<FeedChannel> channels = new ArrayList<>();
         for (long id : ids) {
-            results.add(fetchChannel(id, acceptMinDate, noAutoDownload));
-        }
-
-        for (Result result : results) {
-            if (result instanceof Result.Failure) {
-                return result;
+            FeedChannel channel = (id == -1 ? null : repo.getFeedById(id));
+            if (channel == null) {
+                notFound = true;
+            } else {
+                channels.add(channel);
             }
         }
 
-        return Result.success();
+        Result result = fetchChannels(channels, acceptMinDate, forceAutoDownload);
+
+        return (notFound ? Result.failure() : result);
     }
 
-    @SuppressLint("RestrictedApi")
+    /*
+     * Feeds are downloaded in parallel (see FeedFetcher), while parsing
+     * and saving are done in this thread as soon as each download completes
+     */
+
     private Result fetchChannels(List<FeedChannel> channels, long acceptMinDate,
-                                 boolean noAutoDownload) {
+                                 boolean forceAutoDownload) {
         if (channels == null) {
             return Result.failure();
         }
 
-        ArrayList<Result> results = new ArrayList<>();
+        ArrayList<FeedFetcher.Request> requests = new ArrayList<>();
         for (FeedChannel channel : channels) {
-            if (channel == null) {
-                continue;
+            if (channel != null) {
+                requests.add(new FeedFetcher.Request(channel.id, channel.url,
+                        getValidators(channel)));
             }
-            results.add(fetchChannel(channel.id, acceptMinDate, noAutoDownload));
+        }
+        if (requests.isEmpty()) {
+            return Result.success();
         }
 
-        for (Result result : results) {
-            if (result instanceof Result.Failure) {
-                return result;
+        if (!Utils.checkConnectivity(context)) {
+            for (FeedFetcher.Request request : requests) {
+                setFetchError(request.channelId(), "No network connection");
             }
+            return Result.failure();
         }
 
-        return Result.success();
-    }
+        ArrayList<Long> notModified = new ArrayList<>();
+        boolean[] failed = new boolean[1];
+        FeedFetcher.Response[] slowest = new FeedFetcher.Response[1];
+        long startTime = SystemClock.elapsedRealtime();
+        try (var fetcher = new FeedFetcher()) {
+            fetcher.fetchAll(requests, (response) -> {
+                if (slowest[0] == null || response.latency() > slowest[0].latency()) {
+                    slowest[0] = response;
+                }
+                try {
+                    if (!handleResponse(response, acceptMinDate, forceAutoDownload, notModified)) {
+                        failed[0] = true;
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Unable to handle feed " + response.request().url() + ": "
+                            + Log.getStackTraceString(e));
+                    failed[0] = true;
+                }
+            });
 
-    private Result fetchChannel(long id, long acceptMinDate,
-                                boolean forceAutoDownload) {
-        if (id == -1) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return Result.failure();
         }
 
+        /* One write for all unchanged channels instead of one per channel */
+        if (!notModified.isEmpty()) {
+            repo.setLastUpdate(notModified, System.currentTimeMillis());
+        }
+
+        if (slowest[0] != null) {
+            Log.i(TAG, "Fetched " + requests.size() + " feeds in "
+                    + (SystemClock.elapsedRealtime() - startTime) + " ms, the slowest is "
+                    + slowest[0].request().url() + " (" + slowest[0].latency() + " ms)");
+        }
+
+        return (failed[0] ? Result.failure() : Result.success());
+    }
+
+    private boolean handleResponse(FeedFetcher.Response response, long acceptMinDate,
+                                   boolean forceAutoDownload, List<Long> notModified) {
+        long id = response.request().channelId();
+        /* Re-read the channel, it could be changed during the download */
         FeedChannel channel = repo.getFeedById(id);
         if (channel == null) {
-            return Result.failure();
+            return false;
         }
         var lastUpdated = channel.lastUpdate;
 
+        if (response.isNotModified()) {
+            handleNotModified(channel, response, notModified);
+            return true;
+        }
+
         FeedParser parser;
+        var collector = new FeedItemCollector(
+                (itemId) -> repo.itemExists(id, itemId), acceptMinDate);
         try {
-            parser = new FeedParser(getApplicationContext(), channel);
+            if (!response.isSuccessful()) {
+                throw response.error();
+            }
+            try (var is = new ByteArrayInputStream(response.body())) {
+                parser = new FeedParser(channel, is, collector);
+            }
 
         } catch (Exception e) {
             channel.fetchError = e.getMessage();
             repo.updateFeed(channel);
 
-            return Result.failure();
+            return false;
         }
 
-        List<FeedItem> items = parser.getItems();
-
-        filterItems(id, items, acceptMinDate);
+        List<FeedItem> items = collector.getItems();
 
         if (pref.feedRemoveDuplicates()) {
             filterItemDuplicates(items);
@@ -191,28 +249,74 @@ public class FeedFetcherWorker extends Worker {
             }
         }
         channel.lastUpdate = System.currentTimeMillis();
+        setValidators(channel, response.validators());
         repo.updateFeed(channel);
 
         if (forceAutoDownload || channel.autoDownload) {
             sendFetchedItems(channel, items);
         }
 
-        return Result.success();
+        return true;
     }
 
-    private void filterItems(long id, List<FeedItem> items, long acceptMinDate) {
-        List<String> existingItemsId = repo.getItemsIdByFeedId(id);
-        /* Also filtering the items that we already have in db */
-        items.removeIf(item -> item != null && (item.pubDate > 0 && item.pubDate <= acceptMinDate || existingItemsId.contains(item.id)));
+    /*
+     * Nothing to parse or save, the channel is written only
+     * if the previous fetch failed or the server sent new validators.
+     * Otherwise only the update time is advanced, in a single batch
+     * for all unchanged channels (see fetchChannels)
+     */
+
+    private void handleNotModified(FeedChannel channel, FeedFetcher.Response response,
+                                   List<Long> notModified) {
+        /* The channel was edited during the download, the next fetch should be full */
+        if (!Objects.equals(getValidators(channel), response.request().validators())) {
+            return;
+        }
+
+        boolean changed = channel.fetchError != null
+                || !Objects.equals(getValidators(channel), response.validators());
+        if (changed) {
+            channel.fetchError = null;
+            channel.lastUpdate = System.currentTimeMillis();
+            setValidators(channel, response.validators());
+            repo.updateFeed(channel);
+        } else {
+            notModified.add(channel.id);
+        }
+    }
+
+    private static FeedFetcher.Validators getValidators(FeedChannel channel) {
+        if (channel.etag == null && channel.lastModified == null && channel.contentHash == null) {
+            return null;
+        }
+
+        return new FeedFetcher.Validators(channel.etag, channel.lastModified, channel.contentHash);
+    }
+
+    private static void setValidators(FeedChannel channel, FeedFetcher.Validators validators) {
+        channel.etag = (validators == null ? null : validators.etag());
+        channel.lastModified = (validators == null ? null : validators.lastModified());
+        channel.contentHash = (validators == null ? null : validators.contentHash());
+    }
+
+    private void setFetchError(long id, String error) {
+        FeedChannel channel = repo.getFeedById(id);
+        if (channel != null) {
+            channel.fetchError = error;
+            repo.updateFeed(channel);
+        }
     }
 
     private void filterItemDuplicates(List<FeedItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
         List<String> titles = new ArrayList<>();
         for (FeedItem item : items) {
             titles.add(item.title);
         }
 
-        List<String> existingTitles = repo.findItemsExistingTitles(titles);
+        var existingTitles = new HashSet<>(repo.findItemsExistingTitles(titles));
         items.removeIf(item -> item != null && existingTitles.contains(item.title));
     }
 
@@ -223,13 +327,19 @@ public class FeedFetcherWorker extends Worker {
     }
 
     private void sendFetchedItems(FeedChannel channel, List<FeedItem> items) {
+        FeedItemFilter filter = FeedItemFilter.forChannel(channel, repo.getFilterSeparator());
+        if (filter.getInvalidPattern() != null) {
+            /* TODO: maybe there is an option better? */
+            Log.e(TAG, "Invalid pattern: " + filter.getInvalidPattern());
+        }
+
         ArrayList<String> ids = new ArrayList<>();
         for (FeedItem item : items) {
             if (item == null || item.read) {
                 continue;
             }
 
-            if (isMatch(item, channel.filter, channel.isRegexFilter)) {
+            if (filter.matches(item)) {
                 ids.add(item.id);
                 repo.markAsRead(item.id);
             }
@@ -249,39 +359,4 @@ public class FeedFetcherWorker extends Worker {
 
         WorkManager.getInstance(context).enqueue(work);
     }
-
-    private boolean isMatch(FeedItem item, String filters, boolean isRegex) {
-        if (filters == null || TextUtils.isEmpty(filters)) {
-            return true;
-        }
-
-        for (String filter : filters.split(Utils.NEWLINE_PATTERN)) {
-            if (TextUtils.isEmpty(filter)) {
-                continue;
-            }
-
-            if (isRegex) {
-                Pattern pattern;
-                try {
-                    pattern = Pattern.compile(filter);
-
-                } catch (PatternSyntaxException e) {
-                    /* TODO: maybe there is an option better? */
-                    Log.e(TAG, "Invalid pattern: " + filter);
-                    return true;
-                }
-
-                return pattern.matcher(item.title).matches();
-            } else {
-                String[] words = filter.split(repo.getFilterSeparator());
-                for (String word : words) {
-                    if (item.title.toLowerCase().contains(word.toLowerCase().trim())) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
 }
@@ -46,7 +46,8 @@ import org.proninyaroslav.libretorrent.core.model.TorrentEngineListener;
 import org.proninyaroslav.libretorrent.core.model.TorrentInfoProvider;
 import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
-import org.proninyaroslav.libretorrent.core.model.data.TorrentListState;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfoField;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentListPatcher;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentStateCode;
 import org.proninyaroslav.libretorrent.core.settings.SettingsRepository;
 import org.proninyaroslav.libretorrent.core.sorting.TorrentSortingComparator;
@@ -56,13 +57,15 @@ import org.proninyaroslav.libretorrent.ui.TorrentNotifier;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Flowable;
-import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
@@ -76,6 +79,8 @@ public class TorrentService extends Service {
 
     private static final int SERVICE_STARTED_NOTIFICATION_ID = -1;
     private static final int FOREGROUND_NOTIFY_UPDATE_DELAY = 1000; /* ms */
+    /* Peers are needed for the sorting, see Utils.getForegroundNotifySorting() */
+    private static final Set<TorrentInfoField> NOTIFY_FIELDS = EnumSet.of(TorrentInfoField.PEERS);
     public static final String ACTION_SHUTDOWN = "org.proninyaroslav.libretorrent.services.TorrentService.ACTION_SHUTDOWN";
     public static final String ACTION_RESTART_FOREGROUND_NOTIFICATION = "org.proninyaroslav.libretorrent.services.TorrentService.ACTION_RESTART_FOREGROUND_NOTIFICATION";
 
@@ -83,6 +88,7 @@ public class TorrentService extends Service {
     /* For the pause action button of foreground notify */
     private NotificationCompat.Builder foregroundNotify;
     private Disposable foregroundDisposable;
+    private TorrentListPatcher<TorrentInfo> foregroundListPatcher;
     private boolean isNetworkOnline = false;
     private TorrentInfoProvider stateProvider;
     private TorrentEngine engine;
@@ -276,29 +282,20 @@ public class TorrentService extends Service {
             return;
         }
 
+        var patcher = new TorrentListPatcher<TorrentInfo>(
+                Function.identity(),
+                itemsFilter,
+                itemsSorting
+        );
+        foregroundListPatcher = patcher;
+
         foregroundDisposable = Flowable.combineLatest(
-                        stateProvider.observeInfoList(),
-                        stateProvider.observeSessionStats(),
+                        stateProvider.observeInfoList(false, NOTIFY_FIELDS)
+                                .map(patcher::apply),
+                        stateProvider.observeSessionStats(false),
                         Pair::new
                 )
                 .subscribeOn(Schedulers.io())
-                .flatMapSingle((pair) -> {
-                    var state = pair.first;
-                    var sessionStats = pair.second;
-                    if (state instanceof TorrentListState.Initial) {
-                        return Single.just(Pair.create(new ArrayList<TorrentInfo>(0), sessionStats));
-                    } else if (state instanceof TorrentListState.Loaded loaded) {
-                        return Single.zip(
-                                Flowable.fromIterable(loaded.list())
-                                        .filter(itemsFilter)
-                                        .sorted(itemsSorting)
-                                        .toList(),
-                                Single.just(sessionStats),
-                                Pair::new
-                        );
-                    }
-                    throw new IllegalStateException("Unknown state: " + state);
-                })
                 .observeOn(AndroidSchedulers.mainThread())
                 .delay(FOREGROUND_NOTIFY_UPDATE_DELAY, TimeUnit.MILLISECONDS)
                 .subscribe((pair) -> {
@@ -312,24 +309,18 @@ public class TorrentService extends Service {
     }
 
     private Disposable getInfoListSingle() {
+        var patcher = foregroundListPatcher;
+        if (patcher == null) {
+            return Disposable.empty();
+        }
+
         return Single.zip(
-                        stateProvider.getInfoListSingle(),
+                        Single.fromCallable(() ->
+                                patcher.setFilterAndSorting(itemsFilter, itemsSorting)),
                         stateProvider.getSessionStatsSingle(),
                         Pair::new
                 )
                 .subscribeOn(Schedulers.io())
-                .flatMap((pair) -> {
-                    var infoList = pair.first;
-                    var sessionStats = pair.second;
-                    return Single.zip(
-                            Observable.fromIterable(infoList)
-                                    .filter(itemsFilter)
-                                    .sorted(itemsSorting)
-                                    .toList(),
-                            Single.just(sessionStats),
-                            Pair::new
-                    );
-                })
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe((Pair<List<TorrentInfo>, SessionStats> pair) ->
                                 updateForegroundNotify(pair.first, pair.second),
@@ -43,6 +43,7 @@ import org.proninyaroslav.libretorrent.core.model.TorrentEngine;
 import org.proninyaroslav.libretorrent.core.model.TorrentInfoProvider;
 import org.proninyaroslav.libretorrent.core.model.data.AdvancedTorrentInfo;
 import org.proninyaroslav.libretorrent.core.model.data.PeerInfo;
+import org.proninyaroslav.libretorrent.core.model.data.PiecesState;
 import org.proninyaroslav.libretorrent.core.model.data.Priority;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
 import org.proninyaroslav.libretorrent.core.model.data.TrackerInfo;
@@ -187,8 +188,8 @@ public class TorrentDetailsViewModel extends ViewModel {
         return infoProvider.observePeersInfo(torrentId);
     }
 
-    public Flowable<boolean[]> observePieces() {
-        return infoProvider.observePiecesInfo(torrentId);
+    public Flowable<PiecesState> observePieces() {
+        return infoProvider.observePiecesChanges(torrentId);
     }
 
     public Flowable<Pair<Torrent, TorrentInfo>> observeTorrentInfoPair() {
@@ -30,9 +30,10 @@ import androidx.annotation.NonNull;
 import com.google.android.material.color.MaterialColors;
 
 import org.proninyaroslav.libretorrent.R;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
 import org.proninyaroslav.libretorrent.core.utils.Utils;
 
-import java.util.Arrays;
+import java.util.List;
 
 /*
  * A widget for display pieces map.
@@ -43,9 +44,9 @@ public class PiecesView extends View {
     private static final float CELL_SIZE_SMALL_DP = 10f;
     private static final float BORDER_SIZE_DP = 1f;
 
-    private static final boolean[] UNINITIALIZED_VIEW_PIECES = new boolean[10];
+    private static final PieceMap UNINITIALIZED_VIEW_PIECES = PieceMap.empty(10);
 
-    private boolean[] pieces;
+    private PieceMap pieces;
     private int borderSize;
     private MeasureResult measureResult;
     private final Paint empty = new Paint();
@@ -64,7 +65,6 @@ public class PiecesView extends View {
     }
 
     void create() {
-        Arrays.fill(UNINITIALIZED_VIEW_PIECES, false);
         borderSize = Utils.dpToPx(getContext(), BORDER_SIZE_DP);
         pieces = UNINITIALIZED_VIEW_PIECES;
 
@@ -72,28 +72,37 @@ public class PiecesView extends View {
         empty.setColor(MaterialColors.getColor(this, R.attr.colorSurfaceVariant));
     }
 
-    public void setPieces(boolean[] pieces) {
-        if (pieces == null || Arrays.equals(this.pieces, pieces)) {
+    public void setPieces(PieceMap pieces) {
+        if (pieces == null || pieces.equals(this.pieces)) {
             return;
         }
 
-        int prevLength = this.pieces != null ? this.pieces.length : 0;
+        int prevLength = this.pieces != null ? this.pieces.size() : 0;
         this.pieces = pieces;
 
-        if (prevLength == pieces.length) {
+        if (prevLength == pieces.size()) {
             invalidate();
         } else {
             requestLayout();
         }
     }
 
+    public void applyChanges(@NonNull List<PieceMap.Range> ranges) {
+        if (ranges.isEmpty()) {
+            return;
+        }
+
+        pieces = pieces.apply(ranges);
+        invalidate();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         int width = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
-        var result = measure(width, pieces.length, CELL_SIZE_BIG_DP);
+        var result = measure(width, pieces.size(), CELL_SIZE_BIG_DP);
         if (result.height >= result.width) {
-            result = measure(width, pieces.length, CELL_SIZE_SMALL_DP);
+            result = measure(width, pieces.size(), CELL_SIZE_SMALL_DP);
         }
         measureResult = result;
 
@@ -119,8 +128,8 @@ public class PiecesView extends View {
 
         int position = 0;
         for (int r = 0; r < measureResult.rows; r++) {
-            for (int c = 0; c < measureResult.cols && position < pieces.length; c++) {
-                var paint = pieces[position] ? complete : empty;
+            for (int c = 0; c < measureResult.cols && position < pieces.size(); c++) {
+                var paint = pieces.get(position) ? complete : empty;
                 int left = c * measureResult.stepSize + borderSize + measureResult.margin;
                 int right = left + measureResult.stepSize - borderSize * 2;
                 int top = r * measureResult.stepSize + borderSize;
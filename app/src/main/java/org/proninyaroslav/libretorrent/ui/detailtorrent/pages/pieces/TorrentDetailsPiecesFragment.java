@@ -33,6 +33,7 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import org.proninyaroslav.libretorrent.R;
+import org.proninyaroslav.libretorrent.core.model.data.PiecesState;
 import org.proninyaroslav.libretorrent.core.utils.Utils;
 import org.proninyaroslav.libretorrent.core.utils.WindowInsetsSide;
 import org.proninyaroslav.libretorrent.databinding.FragmentTorrentDetailsPiecesBinding;
@@ -140,6 +141,14 @@ public class TorrentDetailsPiecesFragment extends Fragment {
         disposables.add(viewModel.observePieces()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe((pieces) -> binding.pieceMap.setPieces(pieces)));
+                .subscribe(this::handlePieces));
+    }
+
+    private void handlePieces(PiecesState state) {
+        if (state instanceof PiecesState.Loaded loaded) {
+            binding.pieceMap.setPieces(loaded.pieces());
+        } else if (state instanceof PiecesState.Changed changed) {
+            binding.pieceMap.applyChanges(changed.ranges());
+        }
     }
 }
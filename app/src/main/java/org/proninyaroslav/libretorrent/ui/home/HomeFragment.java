@@ -69,7 +69,7 @@ import org.proninyaroslav.libretorrent.R;
 import org.proninyaroslav.libretorrent.core.filter.TorrentFilterCollection;
 import org.proninyaroslav.libretorrent.core.model.TorrentInfoProvider;
 import org.proninyaroslav.libretorrent.core.model.data.SessionStats;
-import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentListPatcher;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentListState;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TagInfo;
 import org.proninyaroslav.libretorrent.core.sorting.BaseSorting;
@@ -102,7 +102,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
@@ -137,6 +136,8 @@ public class HomeFragment extends AbstractListDetailFragment {
     private HomeViewModel viewModel;
     private final CompositeDisposable disposables = new CompositeDisposable();
     private final CompositeDisposable searchDisposables = new CompositeDisposable();
+    private TorrentListPatcher<TorrentListItem> listPatcher;
+    private TorrentListPatcher<TorrentListItem> searchListPatcher;
 
     @NonNull
     @Override
@@ -556,20 +557,21 @@ public class HomeFragment extends AbstractListDetailFragment {
     }
 
     private Disposable observeTorrents() {
+        var patcher = new TorrentListPatcher<>(
+                TorrentListItem::new,
+                viewModel.getFilter(),
+                viewModel.getSorting()
+        );
+        listPatcher = patcher;
+
         return viewModel.observeAllTorrentsInfo()
                 .subscribeOn(Schedulers.io())
-                .flatMapSingle((state) -> {
+                .map((state) -> {
+                    var list = patcher.apply(state);
                     if (state instanceof TorrentListState.Initial) {
-                        return Single.just((TorrentListItemState) new TorrentListItemState.Initial());
-                    } else if (state instanceof TorrentListState.Loaded loaded) {
-                        return Flowable.fromIterable(loaded.list())
-                                .filter(viewModel.getFilter())
-                                .map(TorrentListItem::new)
-                                .sorted(viewModel.getSorting())
-                                .toList()
-                                .map(TorrentListItemState.Loaded::new);
+                        return (TorrentListItemState) new TorrentListItemState.Initial();
                     }
-                    throw new IllegalStateException("Unknown state: " + state);
+                    return new TorrentListItemState.Loaded(list);
                 })
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe((state) -> {
@@ -596,20 +598,21 @@ public class HomeFragment extends AbstractListDetailFragment {
     }
 
     private Disposable observeSearchListTorrents() {
+        var patcher = new TorrentListPatcher<>(
+                TorrentListItem::new,
+                viewModel.getSearchFilter(),
+                viewModel.getSorting()
+        );
+        searchListPatcher = patcher;
+
         return viewModel.observeAllTorrentsInfo()
                 .subscribeOn(Schedulers.io())
-                .flatMapSingle((state) -> {
+                .map((state) -> {
+                    var list = patcher.apply(state);
                     if (state instanceof TorrentListState.Initial) {
-                        return Single.just((TorrentListItemState) new TorrentListItemState.Initial());
-                    } else if (state instanceof TorrentListState.Loaded loaded) {
-                        return Flowable.fromIterable(loaded.list())
-                                .filter(viewModel.getSearchFilter())
-                                .map(TorrentListItem::new)
-                                .sorted(viewModel.getSorting())
-                                .toList()
-                                .map(TorrentListItemState.Loaded::new);
+                        return (TorrentListItemState) new TorrentListItemState.Initial();
                     }
-                    throw new IllegalStateException("Unknown state: " + state);
+                    return new TorrentListItemState.Loaded(list);
                 })
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe((state) -> {
@@ -632,15 +635,16 @@ public class HomeFragment extends AbstractListDetailFragment {
     }
 
     private Disposable getSearchTorrentsSingle() {
-        return viewModel.getAllTorrentsInfoSingle()
+        var patcher = searchListPatcher;
+        if (patcher == null) {
+            return Disposable.empty();
+        }
+
+        return Single.fromCallable(() -> patcher.setFilterAndSorting(
+                        viewModel.getSearchFilter(),
+                        viewModel.getSorting()
+                ))
                 .subscribeOn(Schedulers.io())
-                .flatMap((infoList) ->
-                        Observable.fromIterable(infoList)
-                                .filter(viewModel.getSearchFilter())
-                                .map(TorrentListItem::new)
-                                .sorted(viewModel.getSorting())
-                                .toList()
-                )
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(searchAdapter::submitList,
                         (Throwable t) -> Log.e(TAG, "Getting torrent info list error: " +
@@ -655,15 +659,16 @@ public class HomeFragment extends AbstractListDetailFragment {
     }
 
     private Disposable getAllTorrentsSingle() {
-        return viewModel.getAllTorrentsInfoSingle()
+        var patcher = listPatcher;
+        if (patcher == null) {
+            return Disposable.empty();
+        }
+
+        return Single.fromCallable(() -> patcher.setFilterAndSorting(
+                        viewModel.getFilter(),
+                        viewModel.getSorting()
+                ))
                 .subscribeOn(Schedulers.io())
-                .flatMap((infoList) ->
-                        Observable.fromIterable(infoList)
-                                .filter(viewModel.getFilter())
-                                .map(TorrentListItem::new)
-                                .sorted(viewModel.getSorting())
-                                .toList()
-                )
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(adapter::submitList,
                         (Throwable t) -> Log.e(TAG, "Getting torrent info list error: " +
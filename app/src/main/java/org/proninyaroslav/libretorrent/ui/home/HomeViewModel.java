@@ -38,6 +38,7 @@ import org.proninyaroslav.libretorrent.core.filter.TorrentFilterCollection;
 import org.proninyaroslav.libretorrent.core.model.TorrentEngine;
 import org.proninyaroslav.libretorrent.core.model.TorrentInfoProvider;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentInfo;
+import org.proninyaroslav.libretorrent.core.model.data.TorrentInfoField;
 import org.proninyaroslav.libretorrent.core.model.data.TorrentListState;
 import org.proninyaroslav.libretorrent.core.model.data.entity.TagInfo;
 import org.proninyaroslav.libretorrent.core.sorting.TorrentSorting;
@@ -51,6 +52,7 @@ import org.proninyaroslav.libretorrent.ui.home.drawer.model.DrawerTagFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -65,6 +67,9 @@ public class HomeViewModel extends AndroidViewModel {
     private static final String TAG = HomeViewModel.class.getSimpleName();
 
     private static final long FORCE_FILTER_DEBOUNCE_TIME = 500; // ms
+    /* Fields rendered, filtered and sorted by the list */
+    private static final Set<TorrentInfoField> LIST_FIELDS =
+            EnumSet.of(TorrentInfoField.PEERS, TorrentInfoField.TAGS);
 
     private final TorrentInfoProvider stateProvider;
     private final TorrentEngine engine;
@@ -102,11 +107,11 @@ public class HomeViewModel extends AndroidViewModel {
     }
 
     public Flowable<TorrentListState> observeAllTorrentsInfo() {
-        return stateProvider.observeInfoList();
+        return stateProvider.observeInfoList(true, LIST_FIELDS);
     }
 
     public Single<List<TorrentInfo>> getAllTorrentsInfoSingle() {
-        return stateProvider.getInfoListSingle();
+        return stateProvider.getInfoListSingle(LIST_FIELDS);
     }
 
     public Flowable<String> observeTorrentsDeleted() {
@@ -115,7 +120,8 @@ public class HomeViewModel extends AndroidViewModel {
 
     public void setSort(@NonNull TorrentSortingComparator sorting, boolean force) {
         this.sorting = sorting;
-        if (force && !sorting.sorting().getColumnName().equals(TorrentSorting.SortingColumns.none.name())) {
+        /* The list is patched incrementally, so any sorting change requires a full re-sort */
+        if (force) {
             forceSortAndFilter.onNext(true);
         }
     }
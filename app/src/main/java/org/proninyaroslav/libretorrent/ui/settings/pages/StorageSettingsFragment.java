@@ -206,6 +206,13 @@ public class StorageSettingsFragment extends CustomPreferenceFragment
             bindOnPreferenceChangeListener(posixDiskIo);
         }
 
+        String keyResumeDataLog = getString(R.string.pref_key_resume_data_log);
+        SwitchPreferenceCompat resumeDataLog = findPreference(keyResumeDataLog);
+        if (resumeDataLog != null) {
+            resumeDataLog.setChecked(pref.resumeDataLog());
+            bindOnPreferenceChangeListener(resumeDataLog);
+        }
+
         var navBarFragment = activity.findNavBarFragment(this);
         if (navBarFragment != null) {
             setChooseFolderDialogListener(navBarFragment);
@@ -303,6 +310,13 @@ public class StorageSettingsFragment extends CustomPreferenceFragment
                     R.string.apply_settings_after_reboot,
                     Snackbar.LENGTH_LONG
             ).show();
+        } else if (preference.getKey().equals(getString(R.string.pref_key_resume_data_log))) {
+            pref.resumeDataLog((boolean) newValue);
+            Snackbar.make(
+                    binding.coordinatorLayout,
+                    R.string.apply_settings_after_reboot,
+                    Snackbar.LENGTH_LONG
+            ).show();
         }
 
         return true;
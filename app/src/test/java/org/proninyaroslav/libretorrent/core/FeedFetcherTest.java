@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.exception.FetchLinkException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FeedFetcherTest {
+    private static final String BODY = "<rss version=\"2.0\"><channel></channel></rss>";
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private ExecutorService serverExec;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    @Before
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/fast", (exchange) -> respond(exchange, 200, 0));
+        server.createContext("/slow", (exchange) -> respond(exchange, 200, 1000));
+        server.createContext("/not_found", (exchange) -> respond(exchange, 404, 0));
+        server.createContext("/hang", (exchange) -> respond(exchange, 200, 3000));
+        server.createContext("/etag", (exchange) -> {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                respond(exchange, 200, 0);
+            }
+        });
+        serverExec = Executors.newCachedThreadPool();
+        server.setExecutor(serverExec);
+        server.start();
+    }
+
+    @After
+    public void finish() {
+        server.stop(0);
+        serverExec.shutdownNow();
+    }
+
+    @Test
+    public void testCompletionOrder() throws InterruptedException {
+        var requests = List.of(
+                new FeedFetcher.Request(1, url("localhost", "/slow")),
+                new FeedFetcher.Request(2, url("127.0.0.1", "/fast"))
+        );
+
+        var responses = fetchAll(new FeedFetcher(4, 1, 5000, 5000), requests);
+
+        assertEquals(2, responses.size());
+        assertEquals(2, responses.get(0).request().channelId());
+        assertEquals(1, responses.get(1).request().channelId());
+        for (var response : responses) {
+            assertTrue(response.isSuccessful());
+            assertEquals(BODY, new String(response.body(), StandardCharsets.UTF_8));
+        }
+        assertTrue(responses.get(1).latency() >= 1000);
+    }
+
+    @Test
+    public void testMaxFetchesPerHost() throws InterruptedException {
+        server.createContext("/count", (exchange) -> {
+            int active = activeRequests.incrementAndGet();
+            maxActiveRequests.accumulateAndGet(active, Math::max);
+            try {
+                respond(exchange, 200, 200);
+            } finally {
+                activeRequests.decrementAndGet();
+            }
+        });
+        var requests = new ArrayList<FeedFetcher.Request>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(new FeedFetcher.Request(i, url("127.0.0.1", "/count")));
+        }
+
+        var responses = fetchAll(new FeedFetcher(8, 2, 5000, 5000), requests);
+
+        assertEquals(6, responses.size());
+        assertEquals(2, maxActiveRequests.get());
+    }
+
+    @Test
+    public void testErrors() throws InterruptedException {
+        var requests = List.of(
+                new FeedFetcher.Request(1, url("127.0.0.1", "/not_found")),
+                new FeedFetcher.Request(2, url("127.0.0.1", "/hang"))
+        );
+
+        var responses = fetchAll(new FeedFetcher(4, 2, 5000, 500), requests);
+
+        assertEquals(2, responses.size());
+        for (var response : responses) {
+            assertFalse(response.isSuccessful());
+            assertNull(response.body());
+            assertTrue(response.error() instanceof FetchLinkException);
+        }
+        var timeout = responses.get(0).request().channelId() == 2 ? responses.get(0) : responses.get(1);
+        assertTrue(timeout.latency() < 3000);
+    }
+
+    @Test
+    public void testConditionalGet() {
+        try (var fetcher = new FeedFetcher()) {
+            var first = fetcher.fetch(new FeedFetcher.Request(1, url("127.0.0.1", "/etag")));
+            assertTrue(first.isSuccessful());
+            assertFalse(first.isNotModified());
+            assertEquals(ETAG, first.validators().etag());
+
+            var second = fetcher.fetch(new FeedFetcher.Request(1, url("127.0.0.1", "/etag"),
+                    first.validators()));
+            assertTrue(second.isNotModified());
+            assertEquals(first.validators(), second.validators());
+        }
+    }
+
+    @Test
+    public void testUnchangedContent() {
+        try (var fetcher = new FeedFetcher()) {
+            var first = fetcher.fetch(new FeedFetcher.Request(1, url("127.0.0.1", "/fast")));
+            assertFalse(first.isNotModified());
+            assertNull(first.validators().etag());
+
+            var second = fetcher.fetch(new FeedFetcher.Request(1, url("127.0.0.1", "/fast"),
+                    first.validators()));
+            assertTrue(second.isNotModified());
+            assertEquals(first.validators().contentHash(), second.validators().contentHash());
+
+            var changed = new FeedFetcher.Validators(null, null, "0");
+            var third = fetcher.fetch(new FeedFetcher.Request(1, url("127.0.0.1", "/fast"), changed));
+            assertFalse(third.isNotModified());
+        }
+    }
+
+    private List<FeedFetcher.Response> fetchAll(
+            FeedFetcher fetcher,
+            List<FeedFetcher.Request> requests
+    ) throws InterruptedException {
+        var responses = new ArrayList<FeedFetcher.Response>();
+        try (fetcher) {
+            fetcher.fetchAll(requests, responses::add);
+        }
+
+        return responses;
+    }
+
+    private String url(String host, String path) {
+        return "http://" + host + ":" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, int code, long delay) throws IOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
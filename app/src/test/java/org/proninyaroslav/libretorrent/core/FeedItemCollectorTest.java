@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core;
+
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FeedItemCollectorTest {
+    private static final long FEED_ID = 1;
+
+    @Test
+    public void testStopAfterOldRun() {
+        var collector = new FeedItemCollector(Set.of(
+                FEED_ID + "_old1", FEED_ID + "_old2", FEED_ID + "_old3")::contains, 1000, 3);
+
+        assertTrue(collector.onItem(makeItem("new1", 0)));
+        assertTrue(collector.onItem(makeItem("old1", 0)));
+        /* A single known item doesn't break the run of new ones */
+        assertTrue(collector.onItem(makeItem("new2", 0)));
+        assertTrue(collector.onItem(makeItem("old2", 0)));
+        assertTrue(collector.onItem(makeItem("old3", 0)));
+        assertFalse(collector.isStopped());
+        /* Known items and the outdated ones make up the same run */
+        assertFalse(collector.onItem(makeItem("old4", 100)));
+        assertTrue(collector.isStopped());
+
+        assertEquals(2, collector.getItems().size());
+        assertEquals("new1", collector.getItems().get(0).title);
+        assertEquals("new2", collector.getItems().get(1).title);
+        assertEquals(4, collector.getSkipped());
+    }
+
+    @Test
+    public void testAcceptMinDate() {
+        var collector = new FeedItemCollector((id) -> false, 1000, 2);
+
+        assertTrue(collector.onItem(makeItem("a", 2000)));
+        assertTrue(collector.onItem(makeItem("b", 0)));
+        assertTrue(collector.onItem(makeItem("c", 1000)));
+        assertFalse(collector.onItem(makeItem("d", 500)));
+
+        assertEquals(2, collector.getItems().size());
+        assertTrue(collector.isStopped());
+    }
+
+    private static FeedItem makeItem(String title, long pubDate) {
+        return new FeedItem(FEED_ID, null, null, title, pubDate);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityZero() {
+        new BloomFilter(0, 0.01);
+    }
+
+    @Test
+    public void testNoFalseNegatives() {
+        var filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++)
+            filter.add("1_item " + i);
+
+        for (int i = 0; i < 1000; i++)
+            assertTrue(filter.mightContain("1_item " + i));
+        assertEquals(1000, filter.size());
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        var filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++)
+            filter.add("1_item " + i);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("2_item " + i))
+                falsePositives++;
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < 200);
+    }
+
+    @Test
+    public void testSaturated() {
+        var filter = new BloomFilter(2, 0.01);
+        filter.add("a");
+        filter.add("b");
+        assertFalse(filter.isSaturated());
+        filter.add("c");
+        assertTrue(filter.isSaturated());
+    }
+}
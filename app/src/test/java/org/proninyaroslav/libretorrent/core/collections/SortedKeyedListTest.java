@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SortedKeyedListTest {
+    private record Item(String key, int value) {
+    }
+
+    private SortedKeyedList<String, Item> list;
+
+    @Before
+    public void init() {
+        list = new SortedKeyedList<>(Item::key, Comparator.comparingInt(Item::value));
+    }
+
+    @Test
+    public void testSetAll() {
+        list.setAll(List.of(new Item("a", 3), new Item("b", 1), new Item("c", 2)));
+
+        assertEquals(List.of(new Item("b", 1), new Item("c", 2), new Item("a", 3)), list.toList());
+    }
+
+    @Test
+    public void testPut() {
+        list.setAll(List.of(new Item("a", 1), new Item("b", 2), new Item("c", 3)));
+
+        list.put(new Item("d", 0));
+        list.put(new Item("a", 4));
+
+        assertEquals(List.of(new Item("d", 0), new Item("b", 2), new Item("c", 3), new Item("a", 4)),
+                list.toList());
+        assertEquals(new Item("a", 4), list.get("a"));
+        assertEquals(4, list.size());
+    }
+
+    @Test
+    public void testPut_equalOrderKeepsPosition() {
+        list.setAll(List.of(new Item("a", 0), new Item("b", 0), new Item("c", 0)));
+
+        list.put(new Item("b", 0));
+        list.put(new Item("d", 0));
+
+        assertEquals(List.of("a", "b", "c", "d"), list.toList().stream().map(Item::key).toList());
+    }
+
+    @Test
+    public void testRemove() {
+        list.setAll(List.of(new Item("a", 1), new Item("b", 1), new Item("c", 2)));
+
+        assertTrue(list.remove("b"));
+        assertFalse(list.remove("b"));
+
+        assertEquals(List.of(new Item("a", 1), new Item("c", 2)), list.toList());
+        assertNull(list.get("b"));
+    }
+
+    @Test
+    public void testSetComparator() {
+        list.setAll(List.of(new Item("a", 1), new Item("b", 2), new Item("c", 3)));
+
+        list.setComparator(Comparator.comparingInt(Item::value).reversed());
+
+        assertEquals(List.of("c", "b", "a"), list.toList().stream().map(Item::key).toList());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.filter;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/*
+ * Matching of 10k titles against 100 rules, the compiled filter
+ * versus the per-item evaluation used before. Run manually, the results
+ * are printed to stdout in the JMH-like form (average time per title).
+ */
+
+@Ignore("Benchmark")
+public class FeedItemFilterBenchmark {
+    private static final String SEPARATOR = "\\|";
+    private static final int NUM_TITLES = 10_000;
+    private static final int NUM_RULES = 100;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final String[] WORDS = {
+            "ubuntu", "debian", "fedora", "arch", "mint", "suse", "gentoo",
+            "desktop", "server", "amd64", "arm64", "iso", "live", "netinst",
+            "1080p", "720p", "x264", "hevc", "web-dl", "bluray", "s01e01",
+    };
+
+    @Test
+    public void benchKeywords() {
+        var rules = makeRules(false);
+        var compiled = FeedItemFilter.compile(rules, false, SEPARATOR);
+
+        run("keywords, per-item", (title) -> legacyMatch(title, rules, false));
+        run("keywords, compiled", compiled::matches);
+    }
+
+    @Test
+    public void benchRegex() {
+        var rules = makeRules(true);
+        var compiled = FeedItemFilter.compile(rules, true, SEPARATOR);
+
+        run("regex, per-item", (title) -> legacyMatch(title, rules, true));
+        run("regex, compiled", compiled::matches);
+    }
+
+    private static void run(String name, Predicate<String> matcher) {
+        List<String> titles = makeTitles();
+        long matched = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            matched += iteration(titles, matcher);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++)
+            matched += iteration(titles, matcher);
+        long time = System.nanoTime() - startTime;
+
+        System.out.printf("%-20s %10.1f ns/op (matched %d)%n", name,
+                (double) time / (MEASUREMENT_ITERATIONS * (long) NUM_TITLES), matched);
+    }
+
+    private static long iteration(List<String> titles, Predicate<String> matcher) {
+        long matched = 0;
+        for (String title : titles) {
+            if (matcher.test(title))
+                matched++;
+        }
+
+        return matched;
+    }
+
+    /*
+     * Evaluates all lines, unlike the old code that stopped at the first regex,
+     * so that both sides do the same amount of work
+     */
+
+    private static boolean legacyMatch(String title, String filters, boolean isRegex) {
+        for (String filter : filters.split("\\r\\n|\\r|\\n")) {
+            if (isRegex) {
+                if (Pattern.compile(filter).matcher(title).matches())
+                    return true;
+            } else {
+                for (String word : filter.split(SEPARATOR)) {
+                    if (title.toLowerCase().contains(word.toLowerCase().trim()))
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static String makeRules(boolean isRegex) {
+        var random = new Random(1);
+        var sb = new StringBuilder();
+        for (int i = 0; i < NUM_RULES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(100);
+            if (isRegex)
+                sb.append(".*").append(Pattern.quote(word)).append(".*");
+            else
+                sb.append(word).append(" | ").append(i).append("-release");
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private static List<String> makeTitles() {
+        var random = new Random(2);
+        var titles = new ArrayList<String>(NUM_TITLES);
+        for (int i = 0; i < NUM_TITLES; i++) {
+            var sb = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                if (j > 0)
+                    sb.append('.');
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            sb.append(' ').append(random.nextInt(1000));
+            titles.add(sb.toString());
+        }
+
+        return titles;
+    }
+}
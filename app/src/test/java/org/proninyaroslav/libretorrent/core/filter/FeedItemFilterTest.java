@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.filter;
+
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedChannel;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FeedItemFilterTest {
+    private static final String SEPARATOR = "\\|";
+
+    @Test
+    public void testEmpty() {
+        assertTrue(FeedItemFilter.compile(null, false, SEPARATOR).matches("foo"));
+        assertTrue(FeedItemFilter.compile("", true, SEPARATOR).matches("foo"));
+    }
+
+    @Test
+    public void testKeywords() {
+        var filter = FeedItemFilter.compile("Ubuntu | debian\nFedora 4", false, SEPARATOR);
+
+        assertTrue(filter.matches("ubuntu-24.04-desktop-amd64.iso"));
+        assertTrue(filter.matches("DEBIAN 12"));
+        assertTrue(filter.matches("fedora 41 workstation"));
+        assertFalse(filter.matches("Fedora 39"));
+        assertFalse(filter.matches("Arch Linux"));
+    }
+
+    @Test
+    public void testKeywordMatcherOverlapping() {
+        var matcher = new KeywordMatcher(List.of("abcd", "bce", "cf", ""));
+
+        assertTrue(matcher.containsAny("xxabcfyy"));
+        assertTrue(matcher.containsAny("abce"));
+        assertTrue(matcher.containsAny("ABCD"));
+        assertFalse(matcher.containsAny("abcxbc"));
+        assertFalse(matcher.containsAny(""));
+        assertTrue(new KeywordMatcher(List.of("", " ")).containsAny("a b"));
+        assertTrue(new KeywordMatcher(List.of("")).isEmpty());
+    }
+
+    @Test
+    public void testRegexAllLines() {
+        var filter = FeedItemFilter.compile("^foo.*\n.*bar$\n(a)\\1", true, SEPARATOR);
+
+        assertTrue(filter.matches("foo 1"));
+        /* Previously only the first line was checked */
+        assertTrue(filter.matches("1 bar"));
+        assertTrue(filter.matches("aa"));
+        assertFalse(filter.matches("baz"));
+        assertFalse(filter.matches("ab"));
+    }
+
+    @Test
+    public void testRegexQuote() {
+        /* The unterminated quote would swallow the closing parenthesis of the combined pattern */
+        var filter = FeedItemFilter.compile("\\Qfoo\nbar.*\n\\Qa.b\\E.*", true, SEPARATOR);
+
+        assertNull(filter.getInvalidPattern());
+        assertTrue(filter.matches("foo"));
+        assertTrue(filter.matches("bar 1"));
+        assertTrue(filter.matches("a.b 1"));
+        assertFalse(filter.matches("foo)|(?:bar.*)"));
+        assertFalse(filter.matches("axb"));
+    }
+
+    @Test
+    public void testInvalidRegex() {
+        var filter = FeedItemFilter.compile("foo\n[", true, SEPARATOR);
+
+        assertEquals("[", filter.getInvalidPattern());
+        assertTrue(filter.matches("bar"));
+    }
+
+    @Test
+    public void testChannelCache() {
+        var channel = new FeedChannel("http://example.org/rss");
+        channel.id = 42;
+        channel.filter = "foo";
+
+        var filter = FeedItemFilter.forChannel(channel, SEPARATOR);
+        assertSame(filter, FeedItemFilter.forChannel(channel, SEPARATOR));
+
+        channel.filter = "bar";
+        var changed = FeedItemFilter.forChannel(channel, SEPARATOR);
+        assertNotSame(filter, changed);
+        assertTrue(changed.matches("bar"));
+        assertFalse(changed.matches("foo"));
+
+        channel.isRegexFilter = true;
+        assertNotSame(changed, FeedItemFilter.forChannel(channel, SEPARATOR));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PieceMapTest {
+    @Test
+    public void testFull() {
+        var pieces = PieceMap.full(130);
+        assertEquals(130, pieces.size());
+        assertEquals(130, pieces.count());
+        assertTrue(pieces.get(129));
+        assertFalse(pieces.get(130));
+        assertEquals(pieces, PieceMap.empty(130).apply(List.of(new PieceMap.Range(0, 129, true))));
+    }
+
+    @Test
+    public void testDiff() {
+        var prev = PieceMap.empty(200).apply(List.of(new PieceMap.Range(10, 20, true)));
+        var cur = prev.apply(List.of(
+                new PieceMap.Range(15, 15, false),
+                new PieceMap.Range(60, 70, true),
+                new PieceMap.Range(199, 199, true)
+        ));
+
+        assertEquals(List.of(
+                new PieceMap.Range(15, 15, false),
+                new PieceMap.Range(60, 70, true),
+                new PieceMap.Range(199, 199, true)
+        ), cur.diff(prev));
+        assertTrue(cur.diff(cur).isEmpty());
+    }
+
+    @Test
+    public void testApplyDiff() {
+        var prev = PieceMap.empty(100).apply(List.of(new PieceMap.Range(0, 50, true)));
+        var cur = PieceMap.empty(100).apply(List.of(new PieceMap.Range(40, 99, true)));
+
+        assertEquals(cur, prev.apply(cur.diff(prev)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDiffDifferentSize() {
+        PieceMap.empty(10).diff(PieceMap.empty(11));
+    }
+}
@@ -19,7 +19,6 @@
 
 package org.proninyaroslav.libretorrent.core.model.session;
 
-import androidx.annotation.NonNull;
 import androidx.core.util.Pair;
 
 import java.util.ArrayList;
@@ -29,8 +28,14 @@ class FakeIPFilter implements IPFilter {
     private final ArrayList<Pair<String, String>> ranges = new ArrayList<>();
 
     @Override
-    public void addRange(@NonNull String first, @NonNull String last) {
-        ranges.add(Pair.create(first, last));
+    public void addV4Range(int first, int last) {
+        ranges.add(Pair.create(IPFilterRanges.formatV4(first), IPFilterRanges.formatV4(last)));
+    }
+
+    @Override
+    public void addV6Range(long firstHigh, long firstLow, long lastHigh, long lastLow) {
+        ranges.add(Pair.create(IPFilterRanges.formatV6(firstHigh, firstLow),
+                IPFilterRanges.formatV6(lastHigh, lastLow)));
     }
 
     List<Pair<String, String>> getRanges() {
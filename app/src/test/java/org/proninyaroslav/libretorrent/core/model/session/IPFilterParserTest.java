@@ -24,6 +24,8 @@ import androidx.core.util.Pair;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.List;
 
@@ -64,28 +66,28 @@ public class IPFilterParserTest {
                     """;
 
     private final Pair<String, String>[] dat_expected_ranges = new Pair[]{
-            Pair.create("000.000.000.000", "000.255.255.255"),
-            Pair.create("2002:0000:0000:0:0:0:0:0", "2002:00ff:ffff:0:0:0:0:0"),
-            Pair.create("001.002.004.000", "001.002.004.255"),
-            Pair.create("001.002.008.000", "001.002.008.255"),
-            Pair.create("001.009.096.105", "001.009.096.105"),
-            Pair.create("001.009.102.251", "001.009.102.251"),
-            Pair.create("001.009.106.186", "001.009.106.186"),
-            Pair.create("001.016.000.000", "001.019.255.255"),
-            Pair.create("001.055.241.140", "001.055.241.140"),
+            Pair.create("0.0.0.0", "0.255.255.255"),
+            Pair.create("2002:0:0:0:0:0:0:0", "2002:ff:ffff:0:0:0:0:0"),
+            Pair.create("1.2.4.0", "1.2.4.255"),
+            Pair.create("1.2.8.0", "1.2.8.255"),
+            Pair.create("1.9.96.105", "1.9.96.105"),
+            Pair.create("1.9.102.251", "1.9.102.251"),
+            Pair.create("1.9.106.186", "1.9.106.186"),
+            Pair.create("1.16.0.0", "1.19.255.255"),
+            Pair.create("1.55.241.140", "1.55.241.140"),
     };
 
     private Pair[] p2p_expected_ranges = new Pair[]{
-            Pair.create("000.000.000.000", "000.255.255.255"),
-            Pair.create("001.002.004.000", "001.002.004.255"),
-            Pair.create("001.002.008.000", "001.002.008.255"),
-            Pair.create("001.009.096.105", "001.009.096.105"),
-            Pair.create("001.009.102.251", "001.009.102.251"),
-            Pair.create("001.009.106.186", "001.009.106.186"),
-            Pair.create("001.016.000.000", "001.019.255.255"),
-            Pair.create("001.055.241.140", "001.055.241.140"),
-            Pair.create("1.093.021.147", "001.093.021.147"),
-            Pair.create("001.093.026.97", "001.093.026.097"),
+            Pair.create("0.0.0.0", "0.255.255.255"),
+            Pair.create("1.2.4.0", "1.2.4.255"),
+            Pair.create("1.2.8.0", "1.2.8.255"),
+            Pair.create("1.9.96.105", "1.9.96.105"),
+            Pair.create("1.9.102.251", "1.9.102.251"),
+            Pair.create("1.9.106.186", "1.9.106.186"),
+            Pair.create("1.16.0.0", "1.19.255.255"),
+            Pair.create("1.55.241.140", "1.55.241.140"),
+            Pair.create("1.93.21.147", "1.93.21.147"),
+            Pair.create("1.93.26.97", "1.93.26.97"),
     };
 
     @Test
@@ -123,4 +125,88 @@ public class IPFilterParserTest {
             fail(e.toString());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseIPv6() {
+        String file = """
+                ::1 - ::ffff , 0 , Loopback
+                fe80::1:2 - fe80::ffff:1.2.3.4 , 0 , Link-local
+                1:2:3:4:5:6:7:8 - 1:2:3:4:5:6:7:ffff , 0 , Full
+                1::2::3 - 1::4 , 0 , Invalid
+                ::1 - 1.2.3.4 , 0 , Mixed
+                """;
+        FakeIPFilter filter = new FakeIPFilter();
+        try (InputStream is = IOUtils.toInputStream(file, "UTF-8")) {
+            int ruleCount = new IPFilterParser(false).parseDAT(is, filter);
+            assertEquals(3, ruleCount);
+            assertEquals(List.of(
+                    Pair.create("0:0:0:0:0:0:0:1", "0:0:0:0:0:0:0:ffff"),
+                    Pair.create("fe80:0:0:0:0:0:1:2", "fe80:0:0:0:0:ffff:102:304"),
+                    Pair.create("1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7:ffff")
+            ), filter.getRanges());
+
+        } catch (Exception e) {
+            fail(e.toString());
+        }
+    }
+
+    @Test
+    public void compileRanges() {
+        String file = """
+                # Overlapping and adjacent ranges in arbitrary order
+                c : 10.0.0.128 - 10.0.1.255
+                a : 10.0.0.0 - 10.0.0.255
+                d : 10.0.2.0 - 10.0.2.10
+                b : 192.168.0.1 - 192.168.0.1
+                e : 200.0.0.0 - 255.255.255.255
+                """;
+        IPFilterRanges.Builder builder = new IPFilterRanges.Builder();
+        try (InputStream is = IOUtils.toInputStream(file, "UTF-8")) {
+            assertEquals(5, new IPFilterParser(false).parseP2P(is, builder));
+
+            IPFilterRanges ranges = builder.build();
+            assertEquals(5, ranges.ruleCount());
+            assertEquals(3, ranges.v4Size());
+
+            FakeIPFilter filter = new FakeIPFilter();
+            ranges.applyTo(filter);
+            assertEquals(List.of(
+                    Pair.create("10.0.0.0", "10.0.2.10"),
+                    Pair.create("192.168.0.1", "192.168.0.1"),
+                    Pair.create("200.0.0.0", "255.255.255.255")
+            ), filter.getRanges());
+
+        } catch (Exception e) {
+            fail(e.toString());
+        }
+    }
+
+    @Test
+    public void compiledRangesCache() {
+        try (InputStream is = IOUtils.toInputStream(dat_file, "UTF-8")) {
+            IPFilterRanges.Builder builder = new IPFilterRanges.Builder();
+            new IPFilterParser(false).parseDAT(is, builder);
+            IPFilterRanges ranges = builder.build();
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ranges.write(os, "key", 100);
+            byte[] bytes = os.toByteArray();
+
+            assertNull(IPFilterRanges.read(new ByteArrayInputStream(bytes), "key", 101));
+            assertNull(IPFilterRanges.read(new ByteArrayInputStream(bytes), "other", 100));
+
+            IPFilterRanges cached = IPFilterRanges.read(new ByteArrayInputStream(bytes), "key", 100);
+            assertNotNull(cached);
+            assertEquals(ranges.ruleCount(), cached.ruleCount());
+
+            FakeIPFilter expected = new FakeIPFilter();
+            ranges.applyTo(expected);
+            FakeIPFilter actual = new FakeIPFilter();
+            cached.applyTo(actual);
+            assertEquals(expected.getRanges(), actual.getRanges());
+
+        } catch (Exception e) {
+            fail(e.toString());
+        }
+    }
+}
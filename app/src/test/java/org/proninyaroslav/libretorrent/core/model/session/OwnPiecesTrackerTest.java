@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
+
+import static org.junit.Assert.*;
+
+public class OwnPiecesTrackerTest {
+    @Test
+    public void testPieceFinished() {
+        var tracker = new OwnPiecesTracker();
+        tracker.reset(100, (i) -> i < 3);
+        assertFalse(tracker.needsReload(100, 3));
+
+        tracker.pieceFinished(70);
+        tracker.pieceFinished(70);
+        assertFalse(tracker.needsReload(100, 4));
+        assertTrue(tracker.needsReload(100, 5));
+
+        PieceMap pieces = tracker.snapshot();
+        assertEquals(100, pieces.size());
+        assertEquals(4, pieces.count());
+        assertTrue(pieces.get(2));
+        assertTrue(pieces.get(70));
+        assertFalse(pieces.get(69));
+    }
+
+    @Test
+    public void testInvalidate() {
+        var tracker = new OwnPiecesTracker();
+        assertTrue(tracker.needsReload(0, 0));
+
+        tracker.reset(2, (i) -> false);
+        assertFalse(tracker.needsReload(2, 0));
+        assertTrue(tracker.needsReload(3, 0));
+
+        tracker.invalidate();
+        assertTrue(tracker.needsReload(2, 0));
+    }
+
+    @Test
+    public void testSnapshotIsCopy() {
+        var tracker = new OwnPiecesTracker();
+        tracker.reset(10, (i) -> false);
+        PieceMap pieces = tracker.snapshot();
+
+        tracker.pieceFinished(5);
+        assertFalse(pieces.get(5));
+        assertTrue(tracker.snapshot().get(5));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.model.data.PieceMap;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PieceAvailabilityTrackerTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testAvailability() {
+        var tracker = new PieceAvailabilityTracker();
+        var own = PieceMap.empty(4).apply(List.of(new PieceMap.Range(0, 0, true)));
+
+        var avail = tracker.update(new int[]{0, 1, 2, 0}, own, false);
+        /* Availability {1, 1, 2, 0}: min 0, three pieces above it */
+        assertEquals(0.75, avail.availability(), DELTA);
+
+        avail = tracker.update(new int[]{1, 1, 2, 1}, own, false);
+        /* Availability {2, 1, 2, 1}: min 1, two pieces above it */
+        assertEquals(1.5, avail.availability(), DELTA);
+    }
+
+    @Test
+    public void testFilesAvailability() {
+        var tracker = new PieceAvailabilityTracker();
+        tracker.setFilePieces(new int[]{0, 2, -1}, new int[]{1, 5, -1});
+
+        var avail = tracker.update(new int[]{1, 0, 1, 1, 0, 0}, PieceMap.empty(6), false);
+        assertArrayEquals(new double[]{0.5, 0.5, -1}, avail.filesAvailability(), DELTA);
+    }
+
+    @Test
+    public void testSeeding() {
+        var tracker = new PieceAvailabilityTracker();
+        tracker.setFilePieces(new int[]{0}, new int[]{1});
+
+        /* No piece picker while seeding */
+        var avail = tracker.update(new int[0], PieceMap.full(2), true);
+        assertEquals(1.0, avail.availability(), DELTA);
+        assertArrayEquals(new double[]{1.0}, avail.filesAvailability(), DELTA);
+    }
+
+    @Test
+    public void testSeedingWithPeers() {
+        var tracker = new PieceAvailabilityTracker();
+
+        /* Peers counted from the bitfields */
+        var avail = tracker.update(new int[]{2, 1, 0, 1}, PieceMap.full(4), true);
+        /* Availability {3, 2, 1, 2}: min 1, three pieces above it */
+        assertEquals(1.75, avail.availability(), DELTA);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamingSchedulerTest {
+    private static final int PIECE_LENGTH = 1024 * 1024;
+
+    @Test
+    public void testInitialWindow() {
+        var scheduler = new StreamingScheduler(10, 200, PIECE_LENGTH);
+
+        var plan = scheduler.update(10, 1, 0);
+        assertTrue(plan.reset().isEmpty());
+        assertEquals(StreamingScheduler.MIN_WINDOW, plan.deadlines().size());
+        assertEquals(new StreamingScheduler.Deadline(10, StreamingScheduler.MIN_PIECE_DEADLINE),
+                plan.deadlines().get(0));
+        assertEquals(new StreamingScheduler.Deadline(11, StreamingScheduler.DEFAULT_PIECE_DEADLINE),
+                plan.deadlines().get(1));
+        assertEquals(new StreamingScheduler.Deadline(12, 2 * StreamingScheduler.DEFAULT_PIECE_DEADLINE),
+                plan.deadlines().get(2));
+    }
+
+    @Test
+    public void testSamePiece() {
+        var scheduler = new StreamingScheduler(0, 100, PIECE_LENGTH);
+
+        assertFalse(scheduler.update(0, 1, 0).isEmpty());
+        assertTrue(scheduler.update(0, 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        var scheduler = new StreamingScheduler(0, 1000, PIECE_LENGTH);
+
+        scheduler.update(0, 1, 0);
+        /* 1 MiB/s */
+        var plan = scheduler.update(2, 1, 2000);
+        assertEquals(PIECE_LENGTH, scheduler.getBitrate());
+        assertEquals(List.of(0, 1), plan.reset());
+
+        /* 30 seconds of playback */
+        assertEquals(30, scheduler.windowSize());
+        assertEquals(30, plan.deadlines().size());
+        assertEquals(2, plan.deadlines().get(0).piece());
+        assertEquals(1000, plan.deadlines().get(1).deadline());
+        assertEquals(29 * 1000, plan.deadlines().get(29).deadline());
+        assertFalse(scheduler.contains(1));
+        assertTrue(scheduler.contains(31));
+    }
+
+    @Test
+    public void testWindowBounds() {
+        var scheduler = new StreamingScheduler(0, 6, PIECE_LENGTH);
+
+        var plan = scheduler.update(4, 1, 0);
+        assertEquals(3, plan.deadlines().size());
+        assertEquals(6, plan.deadlines().get(2).piece());
+
+        assertTrue(scheduler.update(7, 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testSeek() {
+        var scheduler = new StreamingScheduler(0, 1000, PIECE_LENGTH);
+
+        scheduler.update(0, 1, 0);
+        scheduler.update(1, 1, 1000);
+        long bitrate = scheduler.getBitrate();
+
+        var plan = scheduler.update(500, 1, 1001);
+        /* Whole old window is reset, bitrate isn't affected by the jump */
+        assertEquals(1, (int) plan.reset().get(0));
+        assertEquals(bitrate, scheduler.getBitrate());
+        assertEquals(500, plan.deadlines().get(0).piece());
+        assertFalse(scheduler.contains(1));
+    }
+
+    @Test
+    public void testCancel() {
+        var scheduler = new StreamingScheduler(0, 100, PIECE_LENGTH);
+
+        assertTrue(scheduler.cancel().isEmpty());
+
+        scheduler.update(10, 2, 0);
+        assertEquals(List.of(10, 11, 12, 13, 14), scheduler.cancel());
+        assertFalse(scheduler.contains(10));
+        assertFalse(scheduler.update(10, 2, 10).isEmpty());
+    }
+
+    @Test
+    public void testCancelKeepsBitrate() {
+        var scheduler = new StreamingScheduler(0, 1000, PIECE_LENGTH);
+
+        scheduler.update(0, 1, 0);
+        scheduler.update(2, 1, 2000);
+        scheduler.cancel();
+
+        /* The new window after seek is sized by the previous estimate */
+        assertEquals(PIECE_LENGTH, scheduler.getBitrate());
+        var plan = scheduler.update(500, 1, 3000);
+        assertTrue(plan.reset().isEmpty());
+        assertEquals(30, plan.deadlines().size());
+        assertEquals(1000, plan.deadlines().get(1).deadline());
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.model.session;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.libtorrent4j.swig.add_torrent_params;
+import org.proninyaroslav.libretorrent.core.model.data.SessionRestoreStats;
+import org.proninyaroslav.libretorrent.core.model.data.entity.Torrent;
+import org.proninyaroslav.libretorrent.core.storage.TorrentRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TorrentRestorePipelineTest {
+    private static final long ADD_TIMEOUT = 100; /* ms */
+
+    /* Restores magnets only, without the fast resume data */
+    private final TorrentRepository repo = (TorrentRepository) Proxy.newProxyInstance(
+            TorrentRepository.class.getClassLoader(),
+            new Class[]{TorrentRepository.class},
+            (proxy, method, args) -> method.getName().equals("getFastResumePage") ?
+                    Collections.emptyList() : null
+    );
+
+    @Test
+    public void testWindow() throws Exception {
+        var session = new FakeSession();
+        var pipeline = new TorrentRestorePipeline(repo, session, makeMagnets(10), 2, 10000);
+        session.onAdd = (id) -> {
+            session.addExec.execute(() -> {
+                sleep(10);
+                session.inFlight.decrementAndGet();
+                pipeline.onTorrentAdded(id, null);
+            });
+            return true;
+        };
+        pipeline.start();
+
+        SessionRestoreStats stats = session.awaitRestored();
+        assertEquals(10, stats.restored());
+        assertEquals(0, stats.failed());
+        assertTrue(session.maxInFlight.get() <= 2);
+        assertFalse(pipeline.isRunning());
+    }
+
+    @Test
+    public void testAddTimeout() throws Exception {
+        var session = new FakeSession();
+        var pipeline = new TorrentRestorePipeline(repo, session, makeMagnets(3), 1, ADD_TIMEOUT);
+        /* The ADD_TORRENT alerts are lost */
+        session.onAdd = (id) -> true;
+        pipeline.start();
+
+        SessionRestoreStats stats = session.awaitRestored();
+        assertEquals(0, stats.restored());
+        assertEquals(3, stats.failed());
+        assertEquals(3, session.errors.size());
+        assertFalse(pipeline.isRunning());
+
+        /* Late alert is ignored */
+        pipeline.onTorrentAdded("0", null);
+        assertEquals(1, session.restoredCount.get());
+    }
+
+    @Test
+    public void testLateAlertReleasesWindowOnce() throws Exception {
+        var session = new FakeSession();
+        var first = new CountDownLatch(1);
+        var pipeline = new TorrentRestorePipeline(repo, session, makeMagnets(3), 1, ADD_TIMEOUT);
+        session.onAdd = (id) -> {
+            if (id.equals("0")) {
+                first.countDown();
+            } else {
+                session.addExec.execute(() -> pipeline.onTorrentAdded(id, null));
+            }
+            return true;
+        };
+        pipeline.start();
+
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        SessionRestoreStats stats = session.awaitRestored();
+        pipeline.onTorrentAdded("0", null);
+
+        assertEquals(2, stats.restored());
+        assertEquals(1, stats.failed());
+        assertEquals(List.of("0"), session.errors);
+    }
+
+    @Test
+    public void testSkippedAdd() throws Exception {
+        var session = new FakeSession();
+        var pipeline = new TorrentRestorePipeline(repo, session, makeMagnets(1), 1, 10000);
+        /* Stopped right before the add */
+        session.onAdd = (id) -> {
+            session.stopped = true;
+            return false;
+        };
+        pipeline.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.isRunning() && System.currentTimeMillis() < deadline)
+            sleep(10);
+
+        assertFalse(pipeline.isRunning());
+        assertEquals(List.of("0"), session.errors);
+    }
+
+    @Test
+    public void testMagnetAlreadyAdded() throws Exception {
+        var session = new FakeSession();
+        var pipeline = new TorrentRestorePipeline(repo, session, makeMagnets(2), 1, 10000);
+        session.onAdd = (id) -> false;
+        pipeline.start();
+
+        SessionRestoreStats stats = session.awaitRestored();
+        assertEquals(2, stats.restored());
+        assertEquals(0, stats.failed());
+        assertTrue(session.errors.isEmpty());
+    }
+
+    private static List<Torrent> makeMagnets(int count) {
+        var torrents = new ArrayList<Torrent>(count);
+        for (int i = 0; i < count; i++) {
+            var torrent = new Torrent(Integer.toString(i), null, "test", false, 0, false, false);
+            torrent.setMagnetUri("magnet:?xt=urn:btih:" + i);
+            torrents.add(torrent);
+        }
+
+        return torrents;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface AddHandler {
+        boolean add(String id);
+    }
+
+    private static class FakeSession implements TorrentRestorePipeline.Session {
+        final ExecutorService addExec = Executors.newCachedThreadPool();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        /* Submitted and not yet reported as added */
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger restoredCount = new AtomicInteger();
+        final CountDownLatch restoredLatch = new CountDownLatch(1);
+        volatile SessionRestoreStats stats;
+        volatile boolean stopped;
+        volatile AddHandler onAdd;
+
+        @Override
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        @Override
+        public boolean isTorrentAlreadyRunning(@NonNull String id) {
+            return false;
+        }
+
+        @Override
+        public boolean isAutoManaged() {
+            return false;
+        }
+
+        @Override
+        public boolean addTorrent(@NonNull add_torrent_params params) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean addMagnet(@NonNull Torrent torrent) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return onAdd.add(torrent.id);
+        }
+
+        @Override
+        public void onRestoreError(@NonNull String id, @NonNull Exception e) {
+            errors.add(id);
+        }
+
+        @Override
+        public void onRestoreProgress(int restored, int total) {
+        }
+
+        @Override
+        public void onRestored(@NonNull SessionRestoreStats stats) {
+            this.stats = stats;
+            restoredCount.incrementAndGet();
+            restoredLatch.countDown();
+        }
+
+        SessionRestoreStats awaitRestored() throws InterruptedException {
+            assertTrue(restoredLatch.await(5, TimeUnit.SECONDS));
+            return stats;
+        }
+    }
+}
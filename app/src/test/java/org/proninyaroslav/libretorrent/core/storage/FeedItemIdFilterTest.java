@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.storage;
+
+import org.junit.Test;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FeedItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FeedItemIdFilterTest {
+    @Test
+    public void testLoadAndAdd() {
+        var saved = new ArrayList<String>(List.of("1_a", "1_b"));
+        int[] loads = new int[1];
+        var filter = new FeedItemIdFilter((feedId) -> {
+            loads[0]++;
+            return new ArrayList<>(saved);
+        });
+
+        assertTrue(filter.mightContain(1, "1_a"));
+        assertTrue(filter.mightContain(1, "1_b"));
+        assertFalse(filter.mightContain(1, "1_c"));
+
+        var item = new FeedItem(1, null, null, "c", 0);
+        filter.add(List.of(item));
+        saved.add(item.id);
+        assertTrue(filter.mightContain(1, item.id));
+        assertEquals(1, loads[0]);
+
+        filter.remove(1);
+        assertTrue(filter.mightContain(1, item.id));
+        assertEquals(2, loads[0]);
+    }
+
+    @Test
+    public void testItemsAddedBeforeLoad() {
+        var saved = new ArrayList<String>();
+        var filter = new FeedItemIdFilter((feedId) -> new ArrayList<>(saved));
+
+        /* Not loaded yet, the item is picked up from the database */
+        var item = new FeedItem(2, null, null, "a", 0);
+        filter.add(List.of(item));
+        saved.add(item.id);
+        filter.add(List.of(item));
+
+        assertTrue(filter.mightContain(2, item.id));
+    }
+
+    @Test
+    public void testFilterLoadedBeforeInsert() {
+        var saved = new ArrayList<String>();
+        var filter = new FeedItemIdFilter((feedId) -> new ArrayList<>(saved));
+
+        var item = new FeedItem(3, null, null, "a", 0);
+        /* Not loaded yet, skipped */
+        filter.add(List.of(item));
+        /* Loaded by a concurrent check before the item is inserted */
+        assertFalse(filter.mightContain(3, item.id));
+        saved.add(item.id);
+        assertFalse(filter.mightContain(3, item.id));
+
+        /* Covered by the second call after the insert */
+        filter.add(List.of(item));
+        assertTrue(filter.mightContain(3, item.id));
+    }
+}
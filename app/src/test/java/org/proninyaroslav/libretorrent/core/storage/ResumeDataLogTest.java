@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2025 Yaroslav Pronin <proninyaroslav@mail.ru>
+ *
+ * This file is part of LibreTorrent.
+ *
+ * LibreTorrent is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LibreTorrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LibreTorrent.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.proninyaroslav.libretorrent.core.storage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.proninyaroslav.libretorrent.core.model.data.entity.FastResume;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResumeDataLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        File file = new File(folder.getRoot(), "resume.log");
+        try (var log = new ResumeDataLog(file)) {
+            assertTrue(log.isEmpty());
+            log.put(fastResume("a", "1"));
+            log.putAll(List.of(fastResume("b", "2"), fastResume("a", "3")));
+
+            assertEquals(2, log.count());
+            assertEquals("3", data(log.get("a")));
+            assertEquals("2", data(log.get("b")));
+            assertNull(log.get("c"));
+        }
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        File file = new File(folder.getRoot(), "resume.log");
+        try (var log = new ResumeDataLog(file)) {
+            log.putAll(List.of(fastResume("a", "1"), fastResume("b", "2")));
+            log.remove("a");
+            log.remove("c");
+
+            assertEquals(1, log.count());
+            assertNull(log.get("a"));
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        File file = new File(folder.getRoot(), "resume.log");
+        try (var log = new ResumeDataLog(file)) {
+            log.putAll(List.of(fastResume("a", "1"), fastResume("b", "2")));
+            log.put(fastResume("b", "22"));
+            log.remove("a");
+        }
+        try (var log = new ResumeDataLog(file)) {
+            assertEquals(1, log.count());
+            assertNull(log.get("a"));
+            assertEquals("22", data(log.get("b")));
+        }
+    }
+
+    @Test
+    public void testGetPage() throws Exception {
+        File file = new File(folder.getRoot(), "resume.log");
+        try (var log = new ResumeDataLog(file)) {
+            log.putAll(List.of(fastResume("c", "3"), fastResume("a", "1"), fastResume("b", "2")));
+
+            var page = log.getPage("", 2);
+            assertEquals(2, page.size());
+            assertEquals("a", page.get(0).torrentId);
+            assertEquals("b", page.get(1).torrentId);
+
+            page = log.getPage("b", 2);
+            assertEquals(1, page.size());
+            assertEquals("3", data(page.get(0)));
+
+            assertTrue(log.getPage("c", 2).isEmpty());
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        File file = new File(folder.getRoot(), "resume.log");
+        try (var log = new ResumeDataLog(file, 1024)) {
+            for (int i = 0; i < 100; i++)
+                log.putAll(List.of(fastResume("a", "a" + i), fastResume("b", "b" + i)));
+
+            assertTrue(log.fileSize() < 1024);
+            assertEquals(file.length(), log.fileSize());
+            assertEquals("a99", data(log.get("a")));
+            assertEquals("b99", data(log.get("b")));
+        }
+        try (var log = new ResumeDataLog(file, 1024)) {
+            assertEquals(2, log.count());
+            assertEquals("b99", data(log.get("b")));
+        }
+    }
+
+    private static FastResume fastResume(String id, String data) {
+        return new FastResume(id, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String data(FastResume fastResume) {
+        return new String(fastResume.data, StandardCharsets.UTF_8);
+    }
+}